@@ -0,0 +1,44 @@
+package com.ain.bankrot.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Прогон всех (или отфильтрованных) бенчмарков с GC-профайлером и JSON-отчётом —
+ * для сравнения «до/после» при изменениях и обновлениях зависимостей.
+ *
+ *   java -cp benchmarks/target/benchmarks.jar com.ain.bankrot.bench.BenchmarkRunner [regex]
+ *
+ * Отчёт: benchmarks-results/jmh-yyyyMMdd-HHmmss.json (открывается, например, в jmh.morethan.io).
+ * Аллокации на операцию — колонка gc.alloc.rate.norm (байт/op).
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {}
+
+    public static void main(String[] args) throws Exception {
+        String include = args.length > 0 ? args[0] : ".*Benchmark.*";
+
+        Path dir = Path.of("benchmarks-results");
+        Files.createDirectories(dir);
+        Path report = dir.resolve("jmh-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json");
+
+        Options opt = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(report.toString())
+                .build();
+
+        new Runner(opt).run();
+        System.out.println("JMH report: " + report.toAbsolutePath());
+    }
+}
@@ -0,0 +1,187 @@
+package com.ain.bankrot.bench;
+
+import com.ain.bankrot.api.ApiClient;
+import com.ain.bankrot.api.FedresursEndpoints;
+import com.ain.bankrot.api.HttpTransport;
+import com.ain.bankrot.excel.ColumnSelection;
+import com.ain.bankrot.excel.ExcelExporter;
+import com.ain.bankrot.metrics.Metrics;
+import com.ain.bankrot.model.legal.LegalEntityRow;
+import com.ain.bankrot.model.physical.PhysicalPersonRow;
+import com.ain.bankrot.service.CrawlPipeline;
+import com.ain.bankrot.service.LegalRowBuilder;
+import com.ain.bankrot.service.PersonRowBuilder;
+import com.ain.bankrot.service.TradesSweep;
+import com.ain.bankrot.util.Threads;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Полный прогон юрлиц + физлиц (конвейер, builder'ы, Excel) против двух replay-серверов
+ * вместо bankrot.fedresurs.ru и fedresurs.ru. Итог: строк/сек и p50/p99 времени сборки строки.
+ *
+ *   java -cp benchmarks/target/benchmarks.jar com.ain.bankrot.bench.CrawlBenchmark [key=value ...]
+ *
+ * Параметры (все необязательны):
+ *   archive=.cache/fixtures.jsonl.gz  — архив Main --record (по умолчанию — SyntheticArchive)
+ *   legal=60 persons=60               — сколько строк выгрузить
+ *   latency=80                        — медиана задержки ответа, мс (логнормальная, sigma 0.5)
+ *   faults=true                       — всплески 429/451/503
+ *   workers=4 threads=16 fedMax=5 page=15 pages=4 overlap=3 — как ENRICH_WORKERS / ENRICH_THREADS /
+ *                                       FED_MAX_CONCURRENT / размер страницы / LIST_PAGES_IN_FLIGHT /
+ *                                       LIST_PAGE_OVERLAP в Main (архив Main --record — только с тем же overlap)
+ *   legalColumns=ИНН,ОГРН personColumns=ФИО — выгружаемые колонки (как --legal-columns / --person-columns в Main)
+ *   tradesSweep=false sweepPage=500   — кол-во торгов одним проходом по листингу (как --trades-sweep в Main)
+ *   async=false                       — под-запросы builder'ов через getJsonAsync вместо getJson в пуле
+ *                                       (как ASYNC_SUBREQUESTS / --async в Main)
+ *
+ * Кэш, дельта и журнал выключены: меряется именно сеть + обогащение.
+ */
+public final class CrawlBenchmark {
+
+    private static final String BANKROT_BASE = "https://bankrot.fedresurs.ru";
+    private static final String FED_BASE = "https://fedresurs.ru";
+
+    private CrawlBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opt = new HashMap<>();
+        for (String a : args) {
+            int eq = a.indexOf('=');
+            if (eq > 0) opt.put(a.substring(0, eq), a.substring(eq + 1));
+        }
+
+        int legal = Integer.parseInt(opt.getOrDefault("legal", "60"));
+        int persons = Integer.parseInt(opt.getOrDefault("persons", "60"));
+        int pageSize = Integer.parseInt(opt.getOrDefault("page", "15"));
+        int workers = Integer.parseInt(opt.getOrDefault("workers", "4"));
+        int threads = Integer.parseInt(opt.getOrDefault("threads", "16"));
+        int fedMax = Integer.parseInt(opt.getOrDefault("fedMax", "5"));
+        int pagesInFlight = Integer.parseInt(opt.getOrDefault("pages", "4"));
+        int overlap = Integer.parseInt(opt.getOrDefault("overlap", "3"));
+        long latencyMs = Long.parseLong(opt.getOrDefault("latency", "80"));
+        boolean faults = Boolean.parseBoolean(opt.getOrDefault("faults", "true"));
+        boolean tradesSweep = Boolean.parseBoolean(opt.getOrDefault("tradesSweep", "false"));
+        int sweepPage = Integer.parseInt(opt.getOrDefault("sweepPage", "500"));
+        boolean async = Boolean.parseBoolean(opt.getOrDefault("async", "false"));
+        ColumnSelection columns = ColumnSelection.parse(opt.get("legalColumns"), opt.get("personColumns"));
+
+        Map<String, ReplayServer.Recorded> bankrotResponses;
+        Map<String, ReplayServer.Recorded> fedResponses;
+        String archive = opt.get("archive");
+        if (archive != null) {
+            Map<String, Map<String, ReplayServer.Recorded>> byBase = ReplayServer.loadArchive(Path.of(archive));
+            bankrotResponses = byBase.getOrDefault(BANKROT_BASE, Map.of());
+            fedResponses = byBase.getOrDefault(FED_BASE, Map.of());
+        } else {
+            bankrotResponses = SyntheticArchive.bankrot(legal, persons, pageSize, overlap);
+            fedResponses = SyntheticArchive.fed(legal, persons, sweepPage);
+        }
+
+        ReplayProfile profile = new ReplayProfile().latency(ReplayProfile.logNormal(latencyMs, 0.5));
+        if (faults) {
+            profile.burst(429, 150, 3)
+                    .burst(451, 400, 2)
+                    .burst(503, 90, 1);
+        }
+
+        // разные имена хостов → у каждого свой RateLimiter, как у настоящих bankrot/fedresurs
+        try (ReplayServer bankrotServer = new ReplayServer(bankrotResponses, profile, "127.0.0.1");
+             ReplayServer fedServer = new ReplayServer(fedResponses, profile, "localhost");
+             HttpTransport transport = new HttpTransport(HttpTransport.DEFAULT_MAX_REQUESTS)) {
+
+            ApiClient bankrot = new ApiClient(transport, bankrotServer.baseUrl(), Map.of(), 0);
+            ApiClient fed = new ApiClient(transport, fedServer.baseUrl(), Map.of(), fedMax);
+
+            ExecutorService enrichPool = Executors.newFixedThreadPool(threads, Threads.daemonFactory("enrich"));
+            LegalRowBuilder legalBuilder = new LegalRowBuilder(fed, enrichPool, columns).setAsyncFetch(async);
+            PersonRowBuilder personBuilder = new PersonRowBuilder(fed, enrichPool, columns).setAsyncFetch(async);
+            if (tradesSweep) legalBuilder.setTradeCounts(TradesSweep.run(fed, sweepPage, enrichPool));
+
+            LatencyRecorder rowLatency = new LatencyRecorder(legal + persons);
+            AtomicInteger rows = new AtomicInteger();
+
+            // builder'ы и ApiClient печатают каждую строку — на время прогона глушим stdout
+            PrintStream console = System.out;
+            long started = System.nanoTime();
+            try (ExcelExporter excel = new ExcelExporter(500, columns)) {
+                System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+                new CrawlPipeline(bankrot, pageSize, workers, 64)
+                        .setPagesInFlight(pagesInFlight)
+                        .setListOverlap(overlap)
+                        .addSource("COMPANIES", FedresursEndpoints::listCompanies, legal,
+                                item -> rowLatency.time(() -> legalBuilder.buildFromListItem(item)),
+                                (LegalEntityRow row) -> {
+                                    excel.appendLegal(row);
+                                    rows.incrementAndGet();
+                                })
+                        .addSource("PERSONS", FedresursEndpoints::listPersons, persons,
+                                item -> rowLatency.time(() -> personBuilder.buildFromListItem(item)),
+                                (PhysicalPersonRow row) -> {
+                                    excel.appendPhysical(row);
+                                    rows.incrementAndGet();
+                                })
+                        .run();
+            } finally {
+                System.setOut(console);
+                enrichPool.shutdownNow();
+            }
+            double seconds = (System.nanoTime() - started) / 1e9;
+
+            System.out.println();
+            System.out.println("=== CRAWL BENCHMARK (" + (archive != null ? archive : "synthetic")
+                    + (async ? ", async" : "") + ") ===");
+            System.out.printf("rows            %d in %.2f s -> %.2f rows/s%n", rows.get(), seconds, rows.get() / seconds);
+            System.out.printf("row latency     p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                    rowLatency.percentileMs(0.50), rowLatency.percentileMs(0.99), rowLatency.percentileMs(1.0));
+            System.out.printf("bankrot         %d requests, injected %s, 404 %d, rate %.2f/s%n",
+                    bankrotServer.requests(), bankrotServer.injected(), bankrotServer.notFound(), bankrot.rateLimiter().currentRate());
+            System.out.printf("fedresurs       %d requests, injected %s, 404 %d, rate %.2f/s%n",
+                    fedServer.requests(), fedServer.injected(), fedServer.notFound(), fed.rateLimiter().currentRate());
+
+            Metrics.printSummary(System.out, Math.round(seconds * 1000));
+        }
+    }
+
+    /** Время сборки строк (нс); percentile — по всем строкам прогона. */
+    private static final class LatencyRecorder {
+        private long[] samples;
+        private int size;
+
+        LatencyRecorder(int expected) {
+            samples = new long[Math.max(16, expected)];
+        }
+
+        <R> R time(Callable<R> build) throws Exception {
+            long t0 = System.nanoTime();
+            try {
+                return build.call();
+            } finally {
+                add(System.nanoTime() - t0);
+            }
+        }
+
+        private synchronized void add(long nanos) {
+            if (size == samples.length) samples = Arrays.copyOf(samples, size * 2);
+            samples[size++] = nanos;
+        }
+
+        synchronized double percentileMs(double p) {
+            if (size == 0) return 0;
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            int idx = (int) Math.ceil(p * size) - 1;
+            return sorted[Math.max(0, Math.min(size - 1, idx))] / 1e6;
+        }
+    }
+}
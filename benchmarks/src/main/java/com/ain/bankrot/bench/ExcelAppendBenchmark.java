@@ -0,0 +1,103 @@
+package com.ain.bankrot.bench;
+
+import com.ain.bankrot.excel.ExcelExporter;
+import com.ain.bankrot.model.legal.LegalEntityRow;
+import com.ain.bankrot.model.physical.PhysicalPersonRow;
+import com.ain.bankrot.service.CompanyMapper;
+import com.ain.bankrot.service.PersonMapper;
+import com.ain.bankrot.store.RowTable;
+import com.ain.bankrot.store.Rows;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ExcelExporter.appendLegal / appendPhysical: одна операция = одна строка.
+ * Каждый вызов — свежая книга на ROWS строк (как лист за прогон, только короче), без сохранения на диск.
+ * rowWindow: 0 — обычная XSSF-книга, >0 — потоковая SXSSF (как EXCEL_ROW_WINDOW в Main).
+ * appendLegalFromTable — те же строки, но из колоночной RowTable (ячейки декодируются на лету).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgs = {"-Xmx1g"})
+public class ExcelAppendBenchmark {
+
+    private static final int ROWS = 2000;
+
+    @Param({"0", "500"})
+    public int rowWindow;
+
+    private LegalEntityRow[] legal;
+    private PhysicalPersonRow[] persons;
+    private RowTable legalTable;
+
+    @Setup
+    public void setup() {
+        CompanyMapper companyMapper = new CompanyMapper();
+        JsonNode[] cards = {Fixtures.json("company-card.json"), Fixtures.json("company-card-2.json")};
+        List<JsonNode> items = Fixtures.listItems("companies-list.json");
+        legal = new LegalEntityRow[items.size()];
+        for (int i = 0; i < legal.length; i++) {
+            LegalEntityRow r = companyMapper.fromCompanyJson(cards[i % cards.length], "https://fedresurs.ru/company");
+            JsonNode last = items.get(i).path("lastLegalCase");
+            r.caseNumber = last.path("number").asText(last.path("caseNumber").asText(""));
+            r.caseStatus = last.path("status").path("name").asText("");
+            r.arbitrationManagerName = last.path("arbitrManagerFio").asText("");
+            r.publicationsCount = String.valueOf(10 + i);
+            r.tradesCount = String.valueOf(i);
+            legal[i] = r;
+        }
+        legalTable = Rows.legalTable(legal.length);
+        for (LegalEntityRow r : legal) Rows.add(legalTable, r);
+
+        PersonMapper personMapper = new PersonMapper();
+        JsonNode[] personCards = {Fixtures.json("person-card.json"), Fixtures.json("person-card-nested.json")};
+        List<JsonNode> personItems = Fixtures.listItems("persons-list.json");
+        persons = new PhysicalPersonRow[personItems.size()];
+        for (int i = 0; i < persons.length; i++) {
+            PhysicalPersonRow r = personMapper.fromPersonJson(personCards[i % personCards.length], "https://fedresurs.ru/person");
+            r.caseNumber = personItems.get(i).path("lastLegalCase").path("number").asText("");
+            persons[i] = r;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void appendLegal() throws Exception {
+        try (ExcelExporter x = new ExcelExporter(rowWindow)) {
+            for (int i = 0; i < ROWS; i++) x.appendLegal(legal[i % legal.length]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void appendLegalFromTable() throws Exception {
+        try (ExcelExporter x = new ExcelExporter(rowWindow)) {
+            for (int i = 0; i < ROWS; i++) x.appendLegal(legalTable, i % legal.length);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void appendPhysical() throws Exception {
+        try (ExcelExporter x = new ExcelExporter(rowWindow)) {
+            for (int i = 0; i < ROWS; i++) x.appendPhysical(persons[i % persons.length]);
+        }
+    }
+}
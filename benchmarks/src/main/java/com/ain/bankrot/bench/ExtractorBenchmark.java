@@ -0,0 +1,50 @@
+package com.ain.bankrot.bench;
+
+import com.ain.bankrot.util.Dates;
+import com.ain.bankrot.util.RegionExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RegionExtractor.extract и Dates.toDdMmYyyyFromIsoDateTime на наборе реальных форм входа
+ * (адреса с индексом/без, города федерального значения, автономные округа; даты с/без времени и зоны).
+ * Одна операция = весь набор из фикстуры.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtractorBenchmark {
+
+    private String[] addresses;
+    private String[] dates;
+
+    @Setup
+    public void setup() {
+        addresses = Fixtures.lines("addresses.txt").toArray(new String[0]);
+        dates = Fixtures.lines("dates.txt").toArray(new String[0]);
+    }
+
+    @Benchmark
+    public void regionExtract(Blackhole bh) {
+        for (String a : addresses) bh.consume(RegionExtractor.extract(a));
+    }
+
+    @Benchmark
+    public void isoDateToDdMmYyyy(Blackhole bh) {
+        for (String d : dates) bh.consume(Dates.toDdMmYyyyFromIsoDateTime(d));
+    }
+}
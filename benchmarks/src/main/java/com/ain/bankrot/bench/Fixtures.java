@@ -0,0 +1,55 @@
+package com.ain.bankrot.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Обезличенные ответы fedresurs из src/main/resources/fixtures
+ * (структура как у настоящих ответов, ИНН/СНИЛС/ФИО/адреса заменены).
+ */
+public final class Fixtures {
+
+    private static final ObjectMapper OM = new ObjectMapper();
+
+    private Fixtures() {}
+
+    public static String text(String name) {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) throw new IllegalArgumentException("no fixture " + name);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static JsonNode json(String name) {
+        try {
+            return OM.readTree(text(name));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Непустые строки текстовой фикстуры (адреса, даты ...). */
+    public static List<String> lines(String name) {
+        List<String> out = new ArrayList<>();
+        for (String line : text(name).split("\\R")) {
+            if (!line.isBlank()) out.add(line);
+        }
+        return out;
+    }
+
+    /** Элементы pageData фикстуры-страницы списка. */
+    public static List<JsonNode> listItems(String name) {
+        List<JsonNode> out = new ArrayList<>();
+        json(name).path("pageData").forEach(out::add);
+        return out;
+    }
+}
@@ -0,0 +1,87 @@
+package com.ain.bankrot.bench;
+
+import com.ain.bankrot.model.legal.LegalEntityRow;
+import com.ain.bankrot.model.physical.PhysicalPersonRow;
+import com.ain.bankrot.service.CompanyMapper;
+import com.ain.bankrot.service.PersonMapper;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор карточек: CompanyMapper / PersonMapper.
+ * *Json — из готового дерева (как в конвейере после ApiClient.getJson),
+ * *String — вместе с readTree (String-перегрузки).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MapperBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class CompanyCard {
+        @Param({"company-card.json", "company-card-2.json"})
+        public String fixture;
+
+        String text;
+        JsonNode json;
+
+        @Setup
+        public void setup() {
+            text = Fixtures.text(fixture);
+            json = Fixtures.json(fixture);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class PersonCard {
+        @Param({"person-card.json", "person-card-nested.json"})
+        public String fixture;
+
+        String text;
+        JsonNode json;
+
+        @Setup
+        public void setup() {
+            text = Fixtures.text(fixture);
+            json = Fixtures.json(fixture);
+        }
+    }
+
+    private final CompanyMapper companyMapper = new CompanyMapper();
+    private final PersonMapper personMapper = new PersonMapper();
+
+    @Benchmark
+    public LegalEntityRow companyFromJson(CompanyCard card) {
+        return companyMapper.fromCompanyJson(card.json, "https://fedresurs.ru/company");
+    }
+
+    @Benchmark
+    public LegalEntityRow companyFromString(CompanyCard card) throws Exception {
+        return companyMapper.fromCompanyJson(card.text, "https://fedresurs.ru/company");
+    }
+
+    @Benchmark
+    public PhysicalPersonRow personFromJson(PersonCard card) {
+        return personMapper.fromPersonJson(card.json, "https://fedresurs.ru/person");
+    }
+
+    @Benchmark
+    public PhysicalPersonRow personFromString(PersonCard card) throws Exception {
+        return personMapper.fromPersonJson(card.text, "https://fedresurs.ru/person");
+    }
+}
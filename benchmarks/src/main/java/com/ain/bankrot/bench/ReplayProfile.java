@@ -0,0 +1,95 @@
+package com.ain.bankrot.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Поведение replay-сервера: задержка ответа и подмешанные блоки/сбои.
+ *
+ * Всплески (burst) детерминированы: из каждых every запросов первые length получают code —
+ * так прогоны повторяемы, а AIMD/backoff клиента видит «волну» 429, а не одиночные ошибки.
+ */
+public final class ReplayProfile {
+
+    /** Задержка до заголовков ответа, мс. */
+    public interface Latency {
+        long sampleMillis(Random rnd);
+    }
+
+    public static Latency fixed(long ms) {
+        return rnd -> ms;
+    }
+
+    public static Latency uniform(long minMs, long maxMs) {
+        return rnd -> minMs + (long) (rnd.nextDouble() * (maxMs - minMs));
+    }
+
+    /** Логнормальная задержка: медиана medianMs, разброс sigma (0.5 ≈ p99 в 3.2 раза выше медианы). */
+    public static Latency logNormal(long medianMs, double sigma) {
+        return rnd -> Math.round(medianMs * Math.exp(sigma * rnd.nextGaussian()));
+    }
+
+    private static final class Burst {
+        final int code;
+        final long every;
+        final long length;
+        final long retryAfterSeconds;
+
+        Burst(int code, long every, long length, long retryAfterSeconds) {
+            this.code = code;
+            this.every = every;
+            this.length = length;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+    }
+
+    private Latency latency = fixed(0);
+    private final List<Burst> bursts = new ArrayList<>();
+    private long seed = 42;
+
+    public ReplayProfile latency(Latency latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /** Из каждых every запросов первые length отвечают code (Retry-After не шлём). */
+    public ReplayProfile burst(int code, long every, long length) {
+        return burst(code, every, length, -1);
+    }
+
+    /** То же, с заголовком Retry-After (секунды); retryAfterSeconds < 0 — без заголовка. */
+    public ReplayProfile burst(int code, long every, long length, long retryAfterSeconds) {
+        bursts.add(new Burst(code, every, length, retryAfterSeconds));
+        return this;
+    }
+
+    public ReplayProfile seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    Latency latency() {
+        return latency;
+    }
+
+    long seed() {
+        return seed;
+    }
+
+    /** Подмешанный код для n-го запроса (с 1) или 0, если отвечаем записанным ответом. */
+    int faultFor(long n) {
+        for (Burst b : bursts) {
+            // смещаем окно, чтобы всплески разных кодов не совпадали на первых запросах
+            if ((n + b.code) % b.every < b.length) return b.code;
+        }
+        return 0;
+    }
+
+    long retryAfterFor(int code) {
+        for (Burst b : bursts) {
+            if (b.code == code) return b.retryAfterSeconds;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,118 @@
+package com.ain.bankrot.bench;
+
+import com.ain.bankrot.api.FixtureRecorder;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Локальная подмена одного хоста fedresurs: отдаёт записанные ответы (FixtureRecorder / SyntheticArchive)
+ * по пути запроса, с задержкой и подмешанными 429/451/503 из ReplayProfile.
+ * Неизвестный путь → 404 с пустым телом.
+ */
+public final class ReplayServer implements Closeable {
+
+    /** Записанный ответ. */
+    public static final class Recorded {
+        final int code;
+        final String body;
+
+        public Recorded(int code, String body) {
+            this.code = code;
+            this.body = body;
+        }
+    }
+
+    private final MockWebServer server = new MockWebServer();
+    private final String host;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong notFound = new AtomicLong();
+    private final Map<Integer, AtomicLong> injected = new ConcurrentHashMap<>();
+
+    /**
+     * @param host имя, под которым клиент обращается к серверу ("127.0.0.1" или "localhost"):
+     *             у каждого хоста свой RateLimiter, поэтому двум подменным хостам нужны разные имена
+     */
+    public ReplayServer(Map<String, Recorded> byPath, ReplayProfile profile, String host) throws IOException {
+        this.host = host;
+        Random rnd = new Random(profile.seed());
+
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                long n = requests.incrementAndGet();
+                long delay;
+                synchronized (rnd) {
+                    delay = Math.max(0, profile.latency().sampleMillis(rnd));
+                }
+
+                MockResponse r = new MockResponse().setHeadersDelay(delay, TimeUnit.MILLISECONDS);
+
+                int fault = profile.faultFor(n);
+                if (fault != 0) {
+                    injected.computeIfAbsent(fault, k -> new AtomicLong()).incrementAndGet();
+                    long retryAfter = profile.retryAfterFor(fault);
+                    if (retryAfter >= 0) r.setHeader("Retry-After", String.valueOf(retryAfter));
+                    return r.setResponseCode(fault).setBody("{\"error\":\"injected " + fault + "\"}");
+                }
+
+                Recorded rec = byPath.get(request.getPath());
+                if (rec == null) {
+                    notFound.incrementAndGet();
+                    return r.setResponseCode(404).setBody("");
+                }
+                return r.setResponseCode(rec.code)
+                        .setHeader("Content-Type", "application/json; charset=utf-8")
+                        .setBody(rec.body);
+            }
+        });
+        server.start(InetAddress.getByName("127.0.0.1"), 0);
+    }
+
+    /** Базовый URL для ApiClient. */
+    public String baseUrl() {
+        return "http://" + host + ":" + server.getPort();
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    public long notFound() {
+        return notFound.get();
+    }
+
+    /** Сколько ответов каждого кода подмешано. */
+    public Map<Integer, Long> injected() {
+        Map<Integer, Long> out = new HashMap<>();
+        injected.forEach((k, v) -> out.put(k, v.get()));
+        return out;
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.shutdown();
+    }
+
+    /** Архив FixtureRecorder → ответы по исходному baseUrl, затем по пути (при повторах побеждает последний). */
+    public static Map<String, Map<String, Recorded>> loadArchive(Path file) throws IOException {
+        Map<String, Map<String, Recorded>> out = new HashMap<>();
+        FixtureRecorder.read(file, n -> out
+                .computeIfAbsent(n.path("base").asText(""), b -> new HashMap<>())
+                .put(n.path("path").asText(""), new Recorded(n.path("code").asInt(200), n.path("body").asText(""))));
+        return out;
+    }
+}
@@ -0,0 +1,102 @@
+package com.ain.bankrot.bench;
+
+import com.ain.bankrot.excel.ColumnSelection;
+import com.ain.bankrot.excel.ExcelExporter;
+import com.ain.bankrot.model.legal.LegalEntityRow;
+import com.ain.bankrot.output.CsvSink;
+import com.ain.bankrot.output.JsonLinesSink;
+import com.ain.bankrot.output.RowSink;
+import com.ain.bankrot.service.CompanyMapper;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Запись строк юрлиц в файл целиком (append ROWS строк + finish) разными RowSink'ами:
+ * xlsx — ExcelExporter (SXSSF, окно 500, как в Main), csv / jsonl — построчные, gzip — сжатие .gz (xlsx не касается).
+ * Одна операция = одна строка, в цену входит и сохранение файла на диск.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgs = {"-Xmx1g"})
+public class SinkWriteBenchmark {
+
+    private static final int ROWS = 5000;
+
+    @Param({"xlsx", "csv", "jsonl"})
+    public String format;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    private LegalEntityRow[] legal;
+    private Path dir;
+
+    @Setup
+    public void setup() throws IOException {
+        CompanyMapper companyMapper = new CompanyMapper();
+        JsonNode[] cards = {Fixtures.json("company-card.json"), Fixtures.json("company-card-2.json")};
+        List<JsonNode> items = Fixtures.listItems("companies-list.json");
+        legal = new LegalEntityRow[items.size()];
+        for (int i = 0; i < legal.length; i++) {
+            LegalEntityRow r = companyMapper.fromCompanyJson(cards[i % cards.length], "https://fedresurs.ru/company");
+            JsonNode last = items.get(i).path("lastLegalCase");
+            r.caseNumber = last.path("number").asText(last.path("caseNumber").asText(""));
+            r.caseStatus = last.path("status").path("name").asText("");
+            r.arbitrationManagerName = last.path("arbitrManagerFio").asText("");
+            r.publicationsCount = String.valueOf(10 + i);
+            r.tradesCount = String.valueOf(i);
+            legal[i] = r;
+        }
+        dir = Files.createTempDirectory("sink-bench");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void writeLegal() throws Exception {
+        try (RowSink out = open()) {
+            for (int i = 0; i < ROWS; i++) out.appendLegal(legal[i % legal.length]);
+            out.finish();
+        }
+    }
+
+    private RowSink open() throws IOException {
+        ColumnSelection all = ColumnSelection.all();
+        String gz = gzip ? ".gz" : "";
+        return switch (format) {
+            case "xlsx" -> new ExcelExporter(500, all, dir.resolve("out.xlsx"));
+            case "csv" -> new CsvSink(dir.resolve("legal.csv" + gz), dir.resolve("physical.csv" + gz), all);
+            case "jsonl" -> new JsonLinesSink(dir.resolve("out.jsonl" + gz), all);
+            default -> throw new IllegalArgumentException(format);
+        };
+    }
+}
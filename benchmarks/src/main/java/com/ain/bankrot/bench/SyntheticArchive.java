@@ -0,0 +1,133 @@
+package com.ain.bankrot.bench;
+
+import com.ain.bankrot.api.FedresursEndpoints;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Архив ответов для офлайн-прогона без записанного архива: N юрлиц и M физлиц,
+ * размноженных из обезличенных фикстур (у каждого свой guid).
+ * Пути — ровно те, что спрашивают конвейер и builder'ы, при заданном размере страницы.
+ */
+public final class SyntheticArchive {
+
+    private static final ObjectMapper OM = new ObjectMapper();
+
+    private SyntheticArchive() {}
+
+    /** Ответы bankrot.fedresurs.ru (списки), страницы встык. */
+    public static Map<String, ReplayServer.Recorded> bankrot(int legal, int persons, int pageSize) {
+        return bankrot(legal, persons, pageSize, 0);
+    }
+
+    /** Ответы bankrot.fedresurs.ru (списки) с шагом offset'а pageSize - overlap, как у CrawlPipeline.setListOverlap. */
+    public static Map<String, ReplayServer.Recorded> bankrot(int legal, int persons, int pageSize, int overlap) {
+        int stride = pageSize - Math.max(0, Math.min(overlap, pageSize / 2));
+        Map<String, ReplayServer.Recorded> out = new HashMap<>();
+        List<JsonNode> companyItems = Fixtures.listItems("companies-list.json");
+        List<JsonNode> personItems = Fixtures.listItems("persons-list.json");
+
+        for (int offset = 0; offset <= legal; offset += stride) {
+            ArrayNode page = OM.createArrayNode();
+            for (int i = offset; i < Math.min(legal, offset + pageSize); i++) {
+                ObjectNode item = companyItems.get(i % companyItems.size()).deepCopy();
+                item.put("guid", guid("a1", i));
+                item.put("companyGuid", guid("c5", i));
+                item.remove("company");
+                page.add(item);
+            }
+            out.put(FedresursEndpoints.listCompanies(pageSize, offset), page(page, legal));
+        }
+
+        for (int offset = 0; offset <= persons; offset += stride) {
+            ArrayNode page = OM.createArrayNode();
+            for (int i = offset; i < Math.min(persons, offset + pageSize); i++) {
+                ObjectNode item = personItems.get(i % personItems.size()).deepCopy();
+                item.put("guid", guid("b2", i));
+                page.add(item);
+            }
+            out.put(FedresursEndpoints.listPersons(pageSize, offset), page(page, persons));
+        }
+        return out;
+    }
+
+    /** Ответы fedresurs.ru (карточки, счётчики, bankruptcy/ieb, ИП, general-info). */
+    public static Map<String, ReplayServer.Recorded> fed(int legal, int persons) {
+        return fed(legal, persons, 500);
+    }
+
+    /** То же + листинг /backend/biddings страницами по sweepPage (для TradesSweep), торги те же, что в счётчиках. */
+    public static Map<String, ReplayServer.Recorded> fed(int legal, int persons, int sweepPage) {
+        Map<String, ReplayServer.Recorded> out = new HashMap<>();
+        ArrayNode biddings = OM.createArrayNode();
+        JsonNode[] companyCards = {Fixtures.json("company-card.json"), Fixtures.json("company-card-2.json")};
+        JsonNode[] personCards = {Fixtures.json("person-card.json"), Fixtures.json("person-card-nested.json")};
+        JsonNode ieb = Fixtures.json("company-ieb.json");
+        JsonNode bankruptcy = Fixtures.json("company-bankruptcy.json");
+        JsonNode generalInfo = Fixtures.json("person-general-info.json");
+
+        for (int i = 0; i < legal; i++) {
+            String bankruptGuid = guid("a1", i);
+            String companyGuid = guid("c5", i);
+
+            ObjectNode card = companyCards[i % companyCards.length].deepCopy();
+            card.put("guid", companyGuid);
+            out.put(FedresursEndpoints.company(companyGuid), ok(card));
+            out.put(FedresursEndpoints.companyPublications(companyGuid, 1, 0), ok(counter(3 + i % 17)));
+            out.put(FedresursEndpoints.biddingsByBankruptGuid(bankruptGuid, 1, 0), ok(counter(i % 5)));
+            for (int b = 0; b < i % 5; b++) {
+                ObjectNode bidding = OM.createObjectNode();
+                bidding.put("guid", guid("d4", i * 5 + b));
+                bidding.put("bankruptGuid", bankruptGuid);
+                biddings.add(bidding);
+            }
+            out.put(FedresursEndpoints.companyBankruptcy(companyGuid), ok(bankruptcy));
+            out.put(FedresursEndpoints.companyIeb(companyGuid), ok(ieb));
+        }
+
+        for (int offset = 0; offset < Math.max(1, biddings.size()); offset += sweepPage) {
+            ArrayNode page = OM.createArrayNode();
+            for (int i = offset; i < Math.min(biddings.size(), offset + sweepPage); i++) page.add(biddings.get(i));
+            out.put(FedresursEndpoints.biddings(sweepPage, offset), page(page, biddings.size()));
+        }
+
+        for (int i = 0; i < persons; i++) {
+            String guid = guid("b2", i);
+
+            ObjectNode card = personCards[i % personCards.length].deepCopy();
+            card.put("guid", guid);
+            out.put(FedresursEndpoints.person(guid), ok(card));
+            out.put(FedresursEndpoints.personIndividualEntrepreneurs(guid, 1, 0), ok(counter(0)));
+            out.put(FedresursEndpoints.personGeneralInfo(guid), ok(generalInfo));
+        }
+        return out;
+    }
+
+    private static String guid(String prefix, int i) {
+        return String.format("%s000000-0000-4000-8000-%012d", prefix, i);
+    }
+
+    private static ReplayServer.Recorded page(ArrayNode items, int total) {
+        ObjectNode n = OM.createObjectNode();
+        n.set("pageData", items);
+        n.put("total", total);
+        return ok(n);
+    }
+
+    private static JsonNode counter(int total) {
+        ObjectNode n = OM.createObjectNode();
+        n.set("pageData", OM.createArrayNode());
+        n.put("total", total);
+        return n;
+    }
+
+    private static ReplayServer.Recorded ok(JsonNode body) {
+        return new ReplayServer.Recorded(200, body.toString());
+    }
+}
@@ -0,0 +1,123 @@
+package com.ain.bankrot.service;
+
+import com.ain.bankrot.bench.Fixtures;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Прежний findDeep (обход дерева на каждый ключ) против JsonKeyIndex (один обход на документ)
+ * на тех же цепочках ключей, что спрашивают PersonMapper / LegalRowBuilder / PersonRowBuilder.
+ *
+ * В setup результаты обоих вариантов сверяются — расхождение валит прогон.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeepFindBenchmark {
+
+    // PersonMapper: все deep-цепочки карточки физлица (fallback "value")
+    private static final String[][] PERSON_KEYS = {
+            {"fullName", "fio", "name", "personName", "debtorName"},
+            {"inn"},
+            {"snils"},
+            {"birthdateBankruptcy", "birthDate", "birthdate", "dateOfBirth"},
+            {"birthplaceBankruptcy", "birthPlace", "birthplace", "placeOfBirth"},
+            {"residenceAddress", "address", "fullAddress", "value"},
+            {"lastName", "surname"},
+            {"firstName", "givenName"},
+            {"middleName", "patronymic"},
+            {"previousLastName", "oldLastName", "surnamePrevious", "lastNamePrevious"},
+            {"previousSurname", "oldSurname"},
+            {"previousFullName", "previousName", "oldName", "fioPrevious", "fullNamePrevious"},
+    };
+
+    // LegalRowBuilder.fillFromIeb + PersonRowBuilder general-info (fallback "description")
+    private static final String[][] BUILDER_KEYS = {
+            {"arbitrationManagerInn", "arbitrationManagerINN", "arbitrManagerInn", "managerInn"},
+            {"managerAppointmentDate", "appointmentDate", "arbitrManagerDate", "arbitrManagerSince"},
+            {"egrulDateCreate", "dateCreate", "dateCreated"},
+            {"previousFullName", "previousName", "oldName"},
+            {"fioPrevious", "fullNamePrevious"},
+    };
+
+    // LegalRowBuilder.statusFromBooleans
+    private static final String[][] BOOLEAN_KEYS = {
+            {"isActiveLegalCase", "activeLegalCase", "isActiveCase", "activeCase", "isActive", "active"},
+            {"isFinished", "finished", "isEnded", "ended", "isClosed", "closed",
+                    "isCompleted", "completed", "isTerminated", "terminated"},
+    };
+
+    @Param({"person-card.json", "person-card-nested.json", "person-general-info.json",
+            "company-ieb.json", "company-bankruptcy.json"})
+    public String fixture;
+
+    private JsonNode doc;
+    private String[][] keys;
+    private String fallbackField;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        doc = Fixtures.json(fixture);
+        boolean person = fixture.startsWith("person-card");
+        keys = person ? PERSON_KEYS : BUILDER_KEYS;
+        fallbackField = person ? JsonKeyIndex.VALUE : JsonKeyIndex.DESCRIPTION;
+
+        JsonKeyIndex idx = new JsonKeyIndex(doc, fallbackField);
+        for (String[] k : keys) {
+            String expected = LegacyDeepFind.findDeep(doc, fallbackField, k);
+            String actual = idx.find(k);
+            if (!expected.equals(actual)) {
+                throw new IllegalStateException(fixture + " " + Arrays.toString(k) + ": legacy=" + expected + " index=" + actual);
+            }
+        }
+        for (String[] k : BOOLEAN_KEYS) {
+            Boolean expected = LegacyDeepFind.findDeepBoolean(doc, k);
+            Boolean actual = idx.findBoolean(k);
+            if (!Objects.equals(expected, actual)) {
+                throw new IllegalStateException(fixture + " " + Arrays.toString(k) + ": legacy=" + expected + " index=" + actual);
+            }
+        }
+    }
+
+    @Benchmark
+    public void legacyFindDeep(Blackhole bh) {
+        for (String[] k : keys) bh.consume(LegacyDeepFind.findDeep(doc, fallbackField, k));
+    }
+
+    @Benchmark
+    public void keyIndex(Blackhole bh) {
+        // индекс строится заново на каждую операцию — как в mapper'е на каждую карточку
+        JsonKeyIndex idx = new JsonKeyIndex(doc, fallbackField);
+        for (String[] k : keys) bh.consume(idx.find(k));
+    }
+
+    @Benchmark
+    public void legacyFindDeepBoolean(Blackhole bh) {
+        for (String[] k : BOOLEAN_KEYS) bh.consume(LegacyDeepFind.findDeepBoolean(doc, k));
+    }
+
+    @Benchmark
+    public void keyIndexBoolean(Blackhole bh) {
+        JsonKeyIndex idx = new JsonKeyIndex(doc, fallbackField);
+        for (String[] k : BOOLEAN_KEYS) bh.consume(idx.findBoolean(k));
+    }
+}
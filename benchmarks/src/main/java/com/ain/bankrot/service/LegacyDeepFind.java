@@ -0,0 +1,91 @@
+package com.ain.bankrot.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Прежний deep-поиск (рекурсивный обход всего дерева на каждый ключ) — база для сравнения с JsonKeyIndex.
+ * Скопирован без изменений из LegalRowBuilder/PersonRowBuilder (fallback "description")
+ * и PersonMapper (fallback "value").
+ */
+final class LegacyDeepFind {
+
+    private LegacyDeepFind() {}
+
+    static String findDeep(JsonNode root, String fallbackField, String... keys) {
+        if (root == null || root.isNull() || root.isMissingNode()) return "";
+        for (String k : keys) {
+            String v = findByKey(root, k, fallbackField);
+            if (v != null && !v.isBlank()) return v.trim();
+        }
+        return "";
+    }
+
+    private static String findByKey(JsonNode node, String key, String fallbackField) {
+        if (node == null || node.isNull() || node.isMissingNode()) return null;
+
+        if (node.isObject()) {
+            JsonNode direct = node.get(key);
+            if (direct != null && !direct.isNull()) {
+                String s = direct.asText("");
+                if (s != null && !s.isBlank()) return s;
+
+                String name = direct.path("name").asText("");
+                if (!name.isBlank()) return name;
+
+                String fallback = direct.path(fallbackField).asText("");
+                if (!fallback.isBlank()) return fallback;
+            }
+
+            var it = node.fields();
+            while (it.hasNext()) {
+                var e = it.next();
+                String got = findByKey(e.getValue(), key, fallbackField);
+                if (got != null && !got.isBlank()) return got;
+            }
+        } else if (node.isArray()) {
+            for (JsonNode x : node) {
+                String got = findByKey(x, key, fallbackField);
+                if (got != null && !got.isBlank()) return got;
+            }
+        }
+        return null;
+    }
+
+    static Boolean findDeepBoolean(JsonNode node, String... keys) {
+        if (node == null || node.isNull() || node.isMissingNode()) return null;
+
+        if (node.isObject()) {
+            for (String k : keys) {
+                JsonNode v = node.get(k);
+                if (v != null && !v.isNull()) {
+                    if (v.isBoolean()) return v.asBoolean();
+                    if (v.isInt() || v.isLong()) {
+                        int n = v.asInt();
+                        if (n == 0) return false;
+                        if (n == 1) return true;
+                    }
+                    if (v.isTextual()) {
+                        String t = v.asText("").trim().toLowerCase();
+                        if (t.equals("true")) return true;
+                        if (t.equals("false")) return false;
+                        if (t.equals("1")) return true;
+                        if (t.equals("0")) return false;
+                    }
+                }
+            }
+            var it = node.fields();
+            while (it.hasNext()) {
+                var e = it.next();
+                Boolean got = findDeepBoolean(e.getValue(), keys);
+                if (got != null) return got;
+            }
+        } else if (node.isArray()) {
+            for (JsonNode x : node) {
+                Boolean got = findDeepBoolean(x, keys);
+                if (got != null) return got;
+            }
+        }
+
+        return null;
+    }
+}
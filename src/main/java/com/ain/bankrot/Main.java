@@ -2,43 +2,169 @@ package com.ain.bankrot;
 
 import com.ain.bankrot.api.ApiClient;
 import com.ain.bankrot.api.FedresursEndpoints;
+import com.ain.bankrot.api.FixtureRecorder;
+import com.ain.bankrot.api.HttpTransport;
+import com.ain.bankrot.api.ResponseCache;
+import com.ain.bankrot.excel.ColumnSelection;
 import com.ain.bankrot.excel.ExcelExporter;
+import com.ain.bankrot.metrics.Metrics;
 import com.ain.bankrot.model.legal.LegalEntityRow;
 import com.ain.bankrot.model.physical.PhysicalPersonRow;
+import com.ain.bankrot.output.CsvSink;
+import com.ain.bankrot.output.H2Sink;
+import com.ain.bankrot.output.JsonLinesSink;
+import com.ain.bankrot.output.RegionWorkbooksSink;
+import com.ain.bankrot.output.RowSink;
+import com.ain.bankrot.output.TeeSink;
+import com.ain.bankrot.service.CrawlJournal;
+import com.ain.bankrot.service.CrawlPipeline;
+import com.ain.bankrot.service.DeltaStore;
 import com.ain.bankrot.service.LegalRowBuilder;
 import com.ain.bankrot.service.PersonRowBuilder;
+import com.ain.bankrot.service.TradesSweep;
+import com.ain.bankrot.util.Threads;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Main {
+    private static final Logger log = LoggerFactory.getLogger(Main.class);
 
-    private static final int HEAD = 350;
-
-    // ✅ включай, если хочешь увидеть, как реально заполняются ФИО/прежняя фамилия у первых N людей
-    private static final boolean DEBUG_FIRST_PERSONS = true;
+    // ✅ как реально заполняются ФИО/прежняя фамилия у первых N людей;
+    //    включается/выключается уровнем логгера com.ain.bankrot.debug.persons в logback.xml
+    private static final Logger personsDebug = LoggerFactory.getLogger("com.ain.bankrot.debug.persons");
     private static final int DEBUG_PERSONS_LIMIT = 3;
 
-    // ✅ небольшая пауза между запросами
-    private static final long SLEEP_MS = 200;
+    // ✅ под-запросы одного должника (карточка, счётчики, ieb ...) — параллельно
+    private static final boolean PARALLEL_ENRICH = true;
+    private static final int ENRICH_THREADS = 16;
 
-    private static String head(String s) {
-        if (s == null) return "null";
-        return s.substring(0, Math.min(HEAD, s.length()));
-    }
+    // ✅ конвейер: сколько строк обогащается одновременно и ёмкость очередей между стадиями
+    private static final int ENRICH_WORKERS = 4;
+    private static final int PIPELINE_QUEUE = 64;
+
+    // ✅ сколько страниц списка одного источника грузится одновременно (после первой, когда известен total)
+    private static final int LIST_PAGES_IN_FLIGHT = 4;
+
+    // ✅ перекрытие соседних страниц списка: список живой и сдвигается, пока мы его листаем
+    private static final int LIST_PAGE_OVERLAP = 3;
+
+    // ✅ не больше стольких одновременных запросов к fedresurs.ru
+    private static final int FED_MAX_CONCURRENT = 5;
+
+    // ✅ под-запросы builder'ов неблокирующие (getJsonAsync): потоки ENRICH_THREADS не ждут сеть.
+    //    Пока упираемся в лимитер fedresurs, скорость та же (CrawlBenchmark async=true/false), поэтому
+    //    по умолчанию выключено; включается и аргументом --async
+    private static final boolean ASYNC_SUBREQUESTS = false;
+
+    // ✅ дисковый кэш ответов fedresurs (карточки, ieb, счётчики); повторный прогон — в основном из кэша
+    private static final boolean USE_CACHE = true;
+    private static final Path CACHE_DIR = Path.of(".cache", "http");
+    private static final long CACHE_MAX_BYTES = 512L * 1024 * 1024;
+
+    // ✅ дельта-режим: неизменившиеся с прошлого прогона должники не обогащаются заново.
+    //    Счётчики публикаций/торгов у них тоже берутся из прошлого прогона (могут устареть), поэтому
+    //    по умолчанию выключено; включается и аргументом --delta
+    private static final boolean DELTA_CRAWL = false;
+    private static final Path DELTA_FILE = Path.of(".cache", "delta-state.jsonl.gz");
+
+    // ✅ журнал прогона: после падения запуск с --resume продолжает с последнего готового должника
+    private static final Path JOURNAL_FILE = Path.of(".cache", "crawl.journal");
+
+    // ✅ запуск с --record: все ответы пишутся в архив фикстур (для офлайн-бенчмарков, см. benchmarks/)
+    private static final Path RECORD_FILE = Path.of(".cache", "fixtures.jsonl.gz");
+
+    // ✅ Excel пишется потоково: в памяти только последние N строк листа (0 → весь workbook в памяти)
+    private static final int EXCEL_ROW_WINDOW = 500;
+
+    // ✅ выходы: XLSX и/или построчные форматы тем же проходом — CSV (файл на лист) и JSON Lines.
+    //    Строчные пишутся куда быстрее XLSX и без лимита ~1 млн строк на лист; LINE_GZIP → файлы .gz.
+    //    Аргументы: --csv, --jsonl, --no-xlsx
+    private static final boolean XLSX_OUTPUT = true;
+    private static final boolean CSV_OUTPUT = false;
+    private static final boolean JSONL_OUTPUT = false;
+    private static final boolean LINE_GZIP = true;
+
+    // ✅ отдельная книга на регион (папка fedresurs_debtors_<stamp>_regions + index.csv), книги пишутся
+    //    параллельно на всех ядрах; лист дорос до лимита xlsx — начинается следующий файл региона. Аргумент --by-region
+    private static final boolean XLSX_BY_REGION = false;
+
+    // ✅ встроенная БД H2 (файл H2_FILE.mv.db): upsert по guid должника, ежедневные прогоны обновляют те же строки.
+    //    Индексы по ИНН/ОГРН/номеру дела — поиск без Excel. Аргумент --h2
+    private static final boolean H2_OUTPUT = false;
+    private static final Path H2_FILE = Path.of("fedresurs_debtors_db", "debtors");
+
+    // ✅ какие колонки выгружать (заголовки Sheets или номера с 1, через запятую; "" — все колонки листа).
+    //    Можно переопределить аргументами --legal-columns=ИНН,ОГРН,Номер дела / --person-columns=...
+    //    Запросы, которые не заполняют ни одной выбранной колонки, не делаются.
+    private static final String LEGAL_COLUMNS = "";
+    private static final String PERSON_COLUMNS = "";
+
+    // ✅ кол-во торгов одним проходом по листингу /backend/biddings (страницы по TRADES_SWEEP_PAGE)
+    //    вместо запроса на каждого юрлица; выгодно на полных выгрузках. Включается и аргументом --trades-sweep
+    private static final boolean TRADES_SWEEP = false;
+    private static final int TRADES_SWEEP_PAGE = 500;
 
     private static String safeText(JsonNode node) {
         return node == null ? "" : node.asText("");
     }
 
+    private static String nz(String s) {
+        return s == null ? "" : s;
+    }
+
     private static Map<String, String> referer(String base) {
         return Map.of("Referer", base.endsWith("/") ? base : (base + "/"));
     }
 
-    private static void sleepQuiet(long ms) {
-        try { Thread.sleep(ms); } catch (InterruptedException ignored) {}
+    /** Значение аргумента вида --name=value (нет аргумента → def). */
+    private static String argValue(String[] args, String name, String def) {
+        for (String a : args) {
+            if (a.startsWith(name + "=")) return a.substring(name.length() + 1);
+        }
+        return def;
+    }
+
+    /** Все включённые выходы одним RowSink; файлы — fedresurs_debtors_<stamp>*. */
+    private static RowSink openOutputs(ColumnSelection columns, long stamp,
+                                      boolean xlsx, boolean byRegion, boolean csv, boolean jsonl, boolean h2)
+            throws IOException {
+        String base = "fedresurs_debtors_" + stamp;
+        String gz = LINE_GZIP ? ".gz" : "";
+
+        List<RowSink> sinks = new ArrayList<>(5);
+        try {
+            if (xlsx) sinks.add(new ExcelExporter(EXCEL_ROW_WINDOW, columns, Path.of(base + ".xlsx")));
+            if (byRegion) {
+                sinks.add(new RegionWorkbooksSink(Path.of(base + "_regions"), columns, EXCEL_ROW_WINDOW,
+                        RegionWorkbooksSink.EXCEL_MAX_ROWS, Runtime.getRuntime().availableProcessors()));
+            }
+            if (csv) {
+                sinks.add(new CsvSink(Path.of(base + "_legal.csv" + gz), Path.of(base + "_physical.csv" + gz), columns));
+            }
+            if (jsonl) sinks.add(new JsonLinesSink(Path.of(base + ".jsonl" + gz), columns));
+            if (h2) sinks.add(new H2Sink(H2_FILE, columns, H2Sink.DEFAULT_BATCH, H2Sink.DEFAULT_COMMIT_ROWS));
+            return TeeSink.of(sinks);
+        } catch (IOException | RuntimeException e) {
+            for (RowSink s : sinks) {
+                try {
+                    s.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
     }
 
     private static String firstNonBlank(String... xs) {
@@ -47,6 +173,19 @@ public class Main {
     }
 
     public static void main(String[] args) throws Exception {
+        long runStarted = System.currentTimeMillis();
+
+        boolean resume = Arrays.asList(args).contains("--resume");
+        boolean record = Arrays.asList(args).contains("--record");
+        boolean tradesSweep = TRADES_SWEEP || Arrays.asList(args).contains("--trades-sweep");
+        boolean xlsx = XLSX_OUTPUT && !Arrays.asList(args).contains("--no-xlsx");
+        boolean csv = CSV_OUTPUT || Arrays.asList(args).contains("--csv");
+        boolean jsonl = JSONL_OUTPUT || Arrays.asList(args).contains("--jsonl");
+        boolean h2 = H2_OUTPUT || Arrays.asList(args).contains("--h2");
+        boolean byRegion = XLSX_BY_REGION || Arrays.asList(args).contains("--by-region");
+        boolean async = ASYNC_SUBREQUESTS || Arrays.asList(args).contains("--async");
+        boolean deltaCrawl = DELTA_CRAWL || Arrays.asList(args).contains("--delta");
+        if (!xlsx && !byRegion && !csv && !jsonl && !h2) xlsx = true;
 
         // ✅ заголовки
         Map<String, String> headersBankrot = Map.of(
@@ -58,21 +197,42 @@ public class Main {
                 "Connection", "keep-alive"
         );
 
-        ApiClient bankrot = new ApiClient("https://bankrot.fedresurs.ru", headersBankrot);
+        // ✅ один транспорт на оба хоста: общий пул соединений, Dispatcher и таймер повторов
+        HttpTransport transport = new HttpTransport(HttpTransport.DEFAULT_MAX_REQUESTS);
+
+        ApiClient bankrot = new ApiClient(transport, "https://bankrot.fedresurs.ru", headersBankrot, 0);
 
-        ApiClient fed = new ApiClient("https://fedresurs.ru", Map.of(
+        ApiClient fed = new ApiClient(transport, "https://fedresurs.ru", Map.of(
                 "User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/122.0.0.0 Safari/537.36",
                 "Accept", "application/json, text/plain, */*",
                 "Accept-Language", "ru-RU,ru;q=0.9,en-US;q=0.8,en;q=0.7",
                 "Referer", "https://fedresurs.ru/",
                 "Origin", "https://fedresurs.ru",
                 "Connection", "keep-alive"
-        ));
+        ), FED_MAX_CONCURRENT);
+
+        ResponseCache cache = USE_CACHE ? ResponseCache.open(CACHE_DIR, CACHE_MAX_BYTES) : null;
+        bankrot.setCache(cache);
+        fed.setCache(cache);
+
+        FixtureRecorder recorder = record ? FixtureRecorder.create(RECORD_FILE) : null;
+        bankrot.setRecorder(recorder);
+        fed.setRecorder(recorder);
 
-        ObjectMapper om = new ObjectMapper();
+        ExecutorService enrichPool = PARALLEL_ENRICH
+                ? Executors.newFixedThreadPool(ENRICH_THREADS, Threads.daemonFactory("enrich"))
+                : null;
 
-        LegalRowBuilder legalBuilder = new LegalRowBuilder(fed);
-        PersonRowBuilder personBuilder = new PersonRowBuilder(fed);
+        ColumnSelection columns = ColumnSelection.parse(
+                argValue(args, "--legal-columns", LEGAL_COLUMNS),
+                argValue(args, "--person-columns", PERSON_COLUMNS));
+        if (!columns.isAll()) log.info("COLUMNS {}", columns);
+
+        // ✅ неполные строки (выбраны не все колонки) в дельту не пишем и из неё не берём
+        DeltaStore delta = deltaCrawl && columns.isAll() ? DeltaStore.load(DELTA_FILE) : null;
+
+        LegalRowBuilder legalBuilder = new LegalRowBuilder(fed, enrichPool, columns).setAsyncFetch(async);
+        PersonRowBuilder personBuilder = new PersonRowBuilder(fed, enrichPool, columns).setAsyncFetch(async);
 
         // ✅ сколько нужно выгрузить
         int needLegals =500;
@@ -81,118 +241,131 @@ public class Main {
         // ✅ размер страницы
         int pageSize = 15;
 
-        int exportedLegals = 0;
-        int exportedPersons = 0;
-
-        try (ExcelExporter excel = new ExcelExporter()) {
-
-            // ---------------- LEGALS ----------------
-            int offset = 0;
-            int got = 0;
-
-            while (got < needLegals) {
-
-                String listPath = FedresursEndpoints.listCompanies(pageSize, offset);
-                String listJson = bankrot.get(listPath);
-
-                System.out.println("\n=== LIST COMPANIES ===");
-                System.out.println("LIST URL = https://bankrot.fedresurs.ru" + listPath);
-                System.out.println("LIST RESP head = " + head(listJson));
-
-                JsonNode root = om.readTree(listJson);
-                JsonNode arr = root.path("pageData");
-                if (!arr.isArray() || arr.size() == 0) break;
-
-                for (JsonNode item : arr) {
-                    String guid = safeText(item.path("guid"));
-                    String caseNumber = safeText(item.path("lastLegalCase").path("number"));
-
-                    System.out.println("\n--- LEGAL ITEM ---");
-                    System.out.println("LEGAL GUID = " + guid);
-                    System.out.println("LEGAL caseNumber = " + caseNumber);
+        if (tradesSweep && needLegals > 0 && columns.legal("Кол-во торгов")) {
+            legalBuilder.setTradeCounts(TradesSweep.run(fed, TRADES_SWEEP_PAGE, enrichPool));
+        }
 
-                    LegalEntityRow row = legalBuilder.buildFromListItem(item);
-                    excel.appendLegal(row);
-                    exportedLegals++;
+        AtomicInteger exportedLegals = new AtomicInteger();
+        AtomicInteger exportedPersons = new AtomicInteger();
+
+        CrawlJournal journal = CrawlJournal.open(JOURNAL_FILE, resume);
+
+        try (RowSink out = openOutputs(columns, System.currentTimeMillis(), xlsx, byRegion, csv, jsonl, h2)) {
+
+            // ✅ --resume: всё, что успели в прошлый раз, берём из журнала без запросов
+            if (resume) {
+                journal.replay("COMPANIES", LegalEntityRow.class, row -> {
+                    if (delta != null) delta.resumedLegal(row);   // иначе delta.save() их потеряет
+                    out.appendLegal(row);
+                    exportedLegals.incrementAndGet();
+                });
+                journal.replay("PERSONS", PhysicalPersonRow.class, row -> {
+                    if (delta != null) delta.resumedPerson(row);
+                    out.appendPhysical(row);
+                    exportedPersons.incrementAndGet();
+                });
+                log.info("RESUME from journal: legal={} (offset {}), persons={} (offset {})",
+                        exportedLegals.get(), journal.resumeOffset("COMPANIES"),
+                        exportedPersons.get(), journal.resumeOffset("PERSONS"));
+            }
 
-                    got++;
-                    if (got >= needLegals) break;
-                }
+            CrawlPipeline pipeline = new CrawlPipeline(bankrot, pageSize, ENRICH_WORKERS, PIPELINE_QUEUE)
+                    .setPagesInFlight(LIST_PAGES_IN_FLIGHT)
+                    .setListOverlap(LIST_PAGE_OVERLAP)
+                    .setJournal(journal);
 
-                offset += pageSize;
-                sleepQuiet(SLEEP_MS);
-            }
+            // ---------------- LEGALS ----------------
+            pipeline.addSource("COMPANIES", FedresursEndpoints::listCompanies,
+                    journal.resumeOffset("COMPANIES"), Math.max(0, needLegals - journal.rowCount("COMPANIES")),
+                    journal.knownGuids("COMPANIES"),
+                    item -> {
+                        if (log.isDebugEnabled()) {
+                            log.debug("LEGAL ITEM guid={} caseNumber={}",
+                                    safeText(item.path("guid")), safeText(item.path("lastLegalCase").path("number")));
+                        }
+
+                        return delta != null
+                                ? delta.legal(item, legalBuilder::buildFromListItem)
+                                : legalBuilder.buildFromListItem(item);
+                    },
+                    (LegalEntityRow row) -> {
+                        out.appendLegal(row);
+                        exportedLegals.incrementAndGet();
+                    });
 
             // ---------------- PERSONS ----------------
-            offset = 0;
-            got = 0;
-
-            int debugShown = 0;
-
-            while (got < needPersons) {
-
-                String listPath = FedresursEndpoints.listPersons(pageSize, offset);
-                String listJson = bankrot.get(listPath);
-
-                System.out.println("\n=== LIST PERSONS ===");
-                System.out.println("LIST URL = https://bankrot.fedresurs.ru" + listPath);
-                System.out.println("LIST RESP head = " + head(listJson));
-
-                JsonNode root = om.readTree(listJson);
-                JsonNode arr = root.path("pageData");
-                if (!arr.isArray() || arr.size() == 0) break;
-
-                for (JsonNode item : arr) {
-                    String guid = safeText(item.path("guid"));
-                    String caseNumber = safeText(item.path("lastLegalCase").path("number"));
-
-                    // ✅ ФИО ИЗ СПИСКА (bankrot) — это наш стабильный источник current fullName
-                    String fioFromList = firstNonBlank(
-                            safeText(item.path("fullName")),
-                            safeText(item.path("fio")),
-                            safeText(item.path("name")),
-                            safeText(item.path("debtor").path("fullName")),
-                            safeText(item.path("debtor").path("fio")),
-                            safeText(item.path("debtor").path("name"))
-                    );
-
-                    System.out.println("\n--- PERSON ITEM ---");
-                    System.out.println("PERSON GUID = " + guid);
-                    System.out.println("PERSON caseNumber = " + caseNumber);
-                    if (!fioFromList.isBlank()) System.out.println("PERSON fioFromList = " + fioFromList);
-
-                    PhysicalPersonRow row = personBuilder.buildFromListItem(item);
-
-                    // ✅ ДУБЛЬ-СТРАХОВКА: если builder вдруг вернул пусто — подставим ФИО из списка
-                    if ((row.fullName == null || row.fullName.isBlank()) && !fioFromList.isBlank()) {
-                        row.fullName = fioFromList;
-                    }
-
-                    // ✅ дебаг первых N физлиц: покажем, заполнилась ли прежняя фамилия
-                    if (DEBUG_FIRST_PERSONS && debugShown < DEBUG_PERSONS_LIMIT) {
-                        debugShown++;
-                        System.out.println("PARSED fullName = " + (row.fullName == null ? "" : row.fullName));
-                        System.out.println("PARSED previousSurname = " + (row.previousFullName == null ? "" : row.previousFullName));
-                        System.out.println("PARSED inn = " + (row.inn == null ? "" : row.inn));
-                        System.out.println("PARSED snils = " + (row.snils == null ? "" : row.snils));
-                    }
-
-                    excel.appendPhysical(row);
-                    exportedPersons++;
-
-                    got++;
-                    if (got >= needPersons) break;
-
-                    sleepQuiet(SLEEP_MS);
-                }
-
-                offset += pageSize;
-                sleepQuiet(SLEEP_MS);
+            int[] debugShown = {0};
+
+            pipeline.addSource("PERSONS", FedresursEndpoints::listPersons,
+                    journal.resumeOffset("PERSONS"), Math.max(0, needPersons - journal.rowCount("PERSONS")),
+                    journal.knownGuids("PERSONS"),
+                    item -> {
+                        // ✅ ФИО ИЗ СПИСКА (bankrot) — это наш стабильный источник current fullName
+                        String fioFromList = firstNonBlank(
+                                safeText(item.path("fullName")),
+                                safeText(item.path("fio")),
+                                safeText(item.path("name")),
+                                safeText(item.path("debtor").path("fullName")),
+                                safeText(item.path("debtor").path("fio")),
+                                safeText(item.path("debtor").path("name"))
+                        );
+
+                        if (log.isDebugEnabled()) {
+                            log.debug("PERSON ITEM guid={} caseNumber={} fioFromList={}",
+                                    safeText(item.path("guid")), safeText(item.path("lastLegalCase").path("number")), fioFromList);
+                        }
+
+                        PhysicalPersonRow row = delta != null
+                                ? delta.person(item, personBuilder::buildFromListItem)
+                                : personBuilder.buildFromListItem(item);
+
+                        // ✅ ДУБЛЬ-СТРАХОВКА: если builder вдруг вернул пусто — подставим ФИО из списка
+                        if ((row.fullName == null || row.fullName.isBlank()) && !fioFromList.isBlank()) {
+                            row.fullName = fioFromList;
+                        }
+
+                        return row;
+                    },
+                    (PhysicalPersonRow row) -> {
+                        // ✅ дебаг первых N физлиц (writer идёт в порядке списка → это именно первые N)
+                        if (debugShown[0] < DEBUG_PERSONS_LIMIT && personsDebug.isDebugEnabled()) {
+                            debugShown[0]++;
+                            personsDebug.debug("PARSED fullName={} previousSurname={} inn={} snils={}",
+                                    nz(row.fullName), nz(row.previousFullName), nz(row.inn), nz(row.snils));
+                        }
+
+                        out.appendPhysical(row);
+                        exportedPersons.incrementAndGet();
+                    });
+
+            // ✅ юрлица и физлица качаются одновременно, выходы пишет один поток
+            pipeline.run();
+
+            out.finish();
+            journal.finish();
+
+            if (delta != null) {
+                delta.save();
+                log.info("DELTA reused={} built={}", delta.reusedCount(), delta.builtCount());
             }
-
-            excel.saveAtomic(Path.of("fedresurs_debtors_" + System.currentTimeMillis() + ".xlsx"));
+        } finally {
+            journal.close();
+            if (enrichPool != null) enrichPool.shutdownNow();
+            transport.close();
+            log.info("DEDUP bankrot memo={} joined={}, fed memo={} joined={}",
+                    bankrot.dedupMemoHits(), bankrot.dedupJoined(), fed.dedupMemoHits(), fed.dedupJoined());
+            if (cache != null) {
+                log.info("CACHE hits={} misses={}", cache.hits(), cache.misses());
+                cache.close();
+            }
+            if (recorder != null) {
+                recorder.close();
+                log.info("RECORDED {} responses -> {}", recorder.records(), RECORD_FILE);
+            }
+            // ✅ куда ушло время: эндпоинты, паузы лимитера/backoff, стадии сборки строк (то же — в JMX)
+            log.info("{}", Metrics.summary(System.currentTimeMillis() - runStarted));
         }
 
-        System.out.println("OK: exported " + exportedLegals + " legal + " + exportedPersons + " persons");
+        log.info("OK: exported {} legal + {} persons", exportedLegals.get(), exportedPersons.get());
     }
 }
\ No newline at end of file
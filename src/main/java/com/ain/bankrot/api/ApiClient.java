@@ -1,94 +1,734 @@
 package com.ain.bankrot.api;
 
+import com.ain.bankrot.metrics.ApiCallEvent;
+import com.ain.bankrot.metrics.EndpointStats;
+import com.ain.bankrot.metrics.Metrics;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
 import okhttp3.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.time.Duration;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class ApiClient {
+    private static final Logger log = LoggerFactory.getLogger(ApiClient.class);
+
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long INITIAL_BACKOFF_MS = 1200;
+    private static final long MAX_BACKOFF_MS = 15000;
+
+    // сколько готовых ответов держать в памяти до конца прогона (склейка повторных запросов того же пути), байт по оценке
+    private static final long MEMO_MAX_BYTES = 32L * 1024 * 1024;
+
+    // как читалось тело: одинаковый путь, прочитанный по-разному, — разные результаты
+    private static final String TEXT = "text";
+    private static final String JSON = "json";
+    private static final String BYTES = "bytes";
+
+    // общий с другими клиентами транспорт: пул соединений, Dispatcher, таймер повторов
+    private final HttpTransport transport;
     private final OkHttpClient client;
     private final String baseUrl;
     private final Map<String, String> defaultHeaders;
 
+    // лимит одновременных запросов к хосту (null → без лимита)
+    private final HostPermits hostPermits;
+
+    // общий для всех клиентов хоста темп запросов (token bucket + AIMD)
+    private final RateLimiter limiter;
+
+    // одинаковые запросы в полёте → один вызов; окончательные ответы (2xx, 404) — в memo до конца прогона.
+    // Блоки (401/403), ошибки сервера и исчерпанные повторы (code -1) не запоминаются: позже путь спросят заново.
+    private final SingleFlight<Outcome<?>> flights =
+            new SingleFlight<>(MEMO_MAX_BYTES, ApiClient::estimateBytes, ApiClient::isFinal);
+
+    // дисковый кэш ответов (null → без кэша)
+    private volatile ResponseCache cache;
+
+    // запись ответов в архив фикстур (null → не пишем)
+    private volatile FixtureRecorder recorder;
+
+    private static final ObjectMapper OM = new ObjectMapper();
+
     public ApiClient(String baseUrl, Map<String, String> defaultHeaders) {
+        this(baseUrl, defaultHeaders, 0);
+    }
+
+    public ApiClient(String baseUrl, Map<String, String> defaultHeaders, int maxConcurrentRequests) {
+        this(HttpTransport.shared(), baseUrl, defaultHeaders, maxConcurrentRequests);
+    }
+
+    /**
+     * maxConcurrentRequests > 0 → не больше стольких запросов к этому хосту одновременно,
+     * сколько бы потоков ни звали get() / getJsonAsync(). Ждём только на время самого запроса, не на backoff.
+     */
+    public ApiClient(HttpTransport transport, String baseUrl, Map<String, String> defaultHeaders, int maxConcurrentRequests) {
+        this.transport = transport;
+        this.client = transport.client();
         this.baseUrl = baseUrl;
         this.defaultHeaders = defaultHeaders;
-
-        this.client = new OkHttpClient.Builder()
-                .callTimeout(Duration.ofSeconds(45))
-                .connectTimeout(Duration.ofSeconds(15))
-                .readTimeout(Duration.ofSeconds(45))
-                .build();
+        this.hostPermits = maxConcurrentRequests > 0 ? new HostPermits(maxConcurrentRequests) : null;
+        this.limiter = RateLimiter.forHost(HttpUrl.get(baseUrl).host());
     }
 
     public String get(String path) throws IOException {
         return get(path, Map.of());
     }
 
+    public RateLimiter rateLimiter() {
+        return limiter;
+    }
+
+    /** Сколько запросов отдано из memo прогона и сколько присоединилось к такому же запросу в полёте. */
+    public long dedupMemoHits() {
+        return flights.memoHits();
+    }
+
+    public long dedupJoined() {
+        return flights.joined();
+    }
+
+    /** Подключает дисковый кэш (один экземпляр можно делить между клиентами: ключ включает baseUrl). */
+    public void setCache(ResponseCache cache) {
+        this.cache = cache;
+    }
+
+    /** Режим записи: все окончательные ответы (и попадания в кэш) пишутся в архив фикстур. */
+    public void setRecorder(FixtureRecorder recorder) {
+        this.recorder = recorder;
+    }
+
     /**
      * GET с retry для антибота/лимитов.
+     * Темп задаёт общий RateLimiter хоста: блок (451/429/403) тормозит и ставит на паузу весь хост,
+     * а не только этот вызов; Retry-After от сервера соблюдается.
      * ВАЖНО: при блоке (451/429/403) и после нескольких попыток возвращает "" (не падает),
      * чтобы парсер продолжал работу и хотя бы частично выгрузил Excel.
      */
     public String get(String path, Map<String, String> headers) throws IOException {
-        int maxAttempts = 5;
-        long backoffMs = 1200;
+        ResponseCache c = cache != null && cache.caches(path) ? cache : null;   // списки не кэшируются: не ищем и не считаем промахом
+        String cacheKey = baseUrl + path;
+        if (c != null) {
+            String cached = c.get(cacheKey);
+            if (cached != null) {
+                stats(path).cacheHit();
+                recordCached(path, cached.getBytes(StandardCharsets.UTF_8));
+                return cached;
+            }
+        }
 
-        IOException last = null;
+        Outcome<String> o = fetchShared(TEXT, path, headers, ResponseBody::string);
+        if (o.value != null) {
+            if (c != null) c.put(cacheKey, path, o.value, isEmptyResult(o.value));
+            return o.value;
+        }
+        // 404 = «такого нет» → запоминаем как пустой результат (блоки/сбои не кэшируем)
+        if (c != null && o.code == 404) c.put(cacheKey, path, "", true);
+        return "";
+    }
 
-        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
-            Request req = buildRequest(path, headers);
+    public JsonNode getJson(String path) throws IOException {
+        return getJson(path, Map.of());
+    }
 
-            try (Response resp = client.newCall(req).execute()) {
+    /**
+     * То же, что get(), но сразу JSON-деревом: тело идёт из сокета прямо в Jackson,
+     * без промежуточной String (байты держим только если ответ надо положить в кэш).
+     * Блок/ошибка/не-JSON → MissingNode (path(...) на нём безопасен, как и readTree("")).
+     */
+    public JsonNode getJson(String path, Map<String, String> headers) throws IOException {
+        ResponseCache c = cache;
+        String cacheKey = baseUrl + path;
+
+        if (c == null || !c.caches(path)) {
+            Outcome<JsonNode> o = fetchShared(JSON, path, headers, body -> readTreeLenient(body.byteStream(), path));
+            return o.value != null ? o.value : MissingNode.getInstance();
+        }
 
-                int code = resp.code();
-                String body = resp.body() == null ? "" : resp.body().string();
+        byte[] cached = c.getBytes(cacheKey);
+        if (cached != null) {
+            stats(path).cacheHit();
+            recordCached(path, cached);
+            return readTreeLenient(new ByteArrayInputStream(cached), path);
+        }
 
-                if (code >= 200 && code < 300) {
-                    return body;
-                }
+        Outcome<byte[]> o = fetchShared(BYTES, path, headers, ResponseBody::bytes);
+        if (o.value != null) {
+            JsonNode root = readTreeLenient(new ByteArrayInputStream(o.value), path);
+            c.put(cacheKey, path, o.value, isEmptyResult(root));
+            return root;
+        }
+        if (o.code == 404) c.put(cacheKey, path, new byte[0], true);
+        return MissingNode.getInstance();
+    }
+
+    public CompletableFuture<JsonNode> getJsonAsync(String path) {
+        return getJsonAsync(path, Map.of());
+    }
+
+    /**
+     * Неблокирующий getJson(): тот же кэш, retry и результат (блок/ошибка/не-JSON → MissingNode), но вызывающий
+     * поток не ждёт ни ответа, ни лимитера, ни backoff — запрос идёт через Dispatcher транспорта,
+     * паузы отсчитывает таймер. Future завершается в потоке Dispatcher'а (или таймера).
+     */
+    public CompletableFuture<JsonNode> getJsonAsync(String path, Map<String, String> headers) {
+        ResponseCache c = cache;
+        String cacheKey = baseUrl + path;
+
+        if (c == null || !c.caches(path)) {
+            return fetchSharedAsync(JSON, path, headers, body -> readTreeLenient(body.byteStream(), path))
+                    .thenApply(o -> o.value != null ? o.value : MissingNode.getInstance());
+        }
+
+        byte[] cached = c.getBytes(cacheKey);
+        if (cached != null) {
+            stats(path).cacheHit();
+            recordCached(path, cached);
+            try {
+                return CompletableFuture.completedFuture(readTreeLenient(new ByteArrayInputStream(cached), path));
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
 
-                // retry codes
-                if (code == 451 || code == 429 || code == 403 || code == 502 || code == 503 || code == 504) {
-                    System.out.println("HTTP " + code + " GET " + path +
-                            " attempt=" + attempt + "/" + maxAttempts +
-                            " -> backoff " + backoffMs + "ms; bodyHead=" + head(body, 200));
+        return fetchSharedAsync(BYTES, path, headers, ResponseBody::bytes).thenApply(o -> {
+            if (o.value == null) {
+                if (o.code == 404) c.put(cacheKey, path, new byte[0], true);
+                return MissingNode.getInstance();
+            }
+            try {
+                JsonNode root = readTreeLenient(new ByteArrayInputStream(o.value), path);
+                c.put(cacheKey, path, o.value, isEmptyResult(root));
+                return root;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /** Итог чтения страницы списка. */
+    public static final class ListPage {
+        /** total из ответа (-1 — сервер не прислал). */
+        public final int total;
+        /** сколько элементов pageData отдано. */
+        public final int items;
+
+        ListPage(int total, int items) {
+            this.total = total;
+            this.items = items;
+        }
+    }
+
+    /**
+     * Страница списка ({"pageData":[...],"total":N}) потоково: элементы pageData
+     * отдаются в onItem по одному, по мере чтения из сокета; дерево всей страницы не строится.
+     * При повторной попытке (429/обрыв посреди тела) уже отданные элементы пропускаются.
+     * Блок/ошибка → просто меньше элементов (как пустой pageData раньше).
+     */
+    public ListPage getListPage(String path, Map<String, String> headers, Consumer<JsonNode> onItem) throws IOException {
+        ResponseCache c = cache;
+        String cacheKey = baseUrl + path;
+        int[] emitted = {0};
+
+        if (c == null || !c.caches(path)) {
+            Outcome<Integer> o = fetch(path, headers, body -> readPageItems(body.byteStream(), path, emitted, onItem));
+            return new ListPage(o.value != null ? o.value : -1, emitted[0]);
+        }
+
+        byte[] cached = c.getBytes(cacheKey);
+        if (cached != null) {
+            stats(path).cacheHit();
+            recordCached(path, cached);
+            int total = readPageItems(new ByteArrayInputStream(cached), path, emitted, onItem);
+            return new ListPage(total, emitted[0]);
+        }
+
+        Outcome<byte[]> o = fetchShared(BYTES, path, headers, ResponseBody::bytes);
+        if (o.value == null) {
+            if (o.code == 404) c.put(cacheKey, path, new byte[0], true);
+            return new ListPage(-1, 0);
+        }
+        int total = readPageItems(new ByteArrayInputStream(o.value), path, emitted, onItem);
+        c.put(cacheKey, path, o.value, emitted[0] == 0);
+        return new ListPage(total, emitted[0]);
+    }
+
+    // =========================================================
+    // transport
+    // =========================================================
+
+    /** Как прочитать тело 2xx-ответа (вызывается, пока ответ открыт). */
+    private interface BodyReader<T> {
+        T read(ResponseBody body) throws IOException;
+    }
+
+    /** Итог GET: код последнего ответа (-1 — ответа не было) и прочитанное тело для 2xx. */
+    private static final class Outcome<T> {
+        final int code;
+        final T value;
+
+        Outcome(int code, T value) {
+            this.code = code;
+            this.value = value;
+        }
+    }
+
+    /** Окончательный ответ, который можно запомнить до конца прогона: 2xx или 404 («такого нет»). */
+    private static boolean isFinal(Outcome<?> o) {
+        return (o.code >= 200 && o.code < 300) || o.code == 404;
+    }
+
+    /** Примерный размер Outcome в куче, байт (для бюджета memo; точность ±в разы не важна). */
+    private static long estimateBytes(Outcome<?> o) {
+        Object v = o.value;
+        long bytes = 32;
+        if (v instanceof byte[] b) bytes += 16 + b.length;
+        else if (v instanceof String str) bytes += 40 + 2L * str.length();
+        else if (v instanceof JsonNode n) bytes += estimateBytes(n);
+        return bytes;
+    }
 
-                    sleepQuiet(backoffMs);
-                    backoffMs = Math.min((long) (backoffMs * 1.8), 15000);
-                    continue;
+    private static long estimateBytes(JsonNode n) {
+        if (n.isContainerNode()) {
+            long bytes = 64;
+            if (n.isObject()) {
+                for (Map.Entry<String, JsonNode> e : n.properties()) {
+                    bytes += 48 + 2L * e.getKey().length() + estimateBytes(e.getValue());
                 }
+            } else {
+                for (JsonNode c : n) bytes += 8 + estimateBytes(c);
+            }
+            return bytes;
+        }
+        return n.isTextual() ? 56 + 2L * n.textValue().length() : 24;
+    }
+
+    /** Семейство эндпоинта → его метрики (Metrics / JMX). */
+    private static EndpointStats stats(String path) {
+        return Metrics.endpoint(FedresursEndpoints.family(path).name());
+    }
+
+    /**
+     * fetch со склейкой: тот же baseUrl + путь, прочитанный тем же способом (kind), грузится один раз —
+     * параллельные вызовы ждут первый, последующие берут результат из memo.
+     * Не для reader'ов с побочными эффектами (потоковые страницы списков).
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Outcome<T> fetchShared(String kind, String path, Map<String, String> headers, BodyReader<T> reader) throws IOException {
+        return (Outcome<T>) flights.call(kind + " " + baseUrl + path, () -> fetch(path, headers, reader));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<Outcome<T>> fetchSharedAsync(String kind, String path, Map<String, String> headers, BodyReader<T> reader) {
+        return flights.callAsync(kind + " " + baseUrl + path, () -> fetchAsync(path, headers, reader).thenApply(o -> o))
+                .thenApply(o -> (Outcome<T>) o);
+    }
+
+    /** GET из сети с замером: полное время вызова (со всеми повторами и паузами) → метрики семейства. */
+    private <T> Outcome<T> fetch(String path, Map<String, String> headers, BodyReader<T> reader) throws IOException {
+        EndpointStats st = stats(path);
+        long t0 = System.nanoTime();
+        boolean ok = false;
+        try {
+            Outcome<T> o = fetch(path, headers, reader, st);
+            ok = o.code >= 0;
+            return o;
+        } finally {
+            st.call(System.nanoTime() - t0, ok);
+        }
+    }
+
+    /** Общий цикл retry для всех блокирующих вариантов GET; тело успешного ответа читает reader. */
+    private <T> Outcome<T> fetch(String path, Map<String, String> headers, BodyReader<T> reader, EndpointStats st) throws IOException {
+        long backoffMs = INITIAL_BACKOFF_MS;
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            Request req = buildRequest(path, headers, st);
+            long delayMs;
+
+            try {
+                long waitStart = System.nanoTime();
+                limiter.acquire();
+                st.rateLimitWait(System.nanoTime() - waitStart);
 
-                // остальные коды: не ретраим, но и не падаем — просто вернем пусто
-                System.out.println("HTTP " + code + " GET " + path +
-                        " (no retry) bodyHead=" + head(body, 200));
-                return "";
+                Step<T> step = afterReply(execute(req, path, attempt, reader), path, attempt, backoffMs, st);
+                if (step.done != null) return step.done;
+                delayMs = step.delayMs;
 
             } catch (IOException e) {
-                last = e;
-                // сетевые ошибки тоже иногда временные — ретраим
-                System.out.println("IO ERROR GET " + path + " attempt=" + attempt + "/" + maxAttempts +
-                        " -> " + e.getClass().getSimpleName() + ": " + e.getMessage() +
-                        " ; backoff " + backoffMs + "ms");
+                // прервали поток (остановка конвейера) — не ретраим
+                if (Thread.currentThread().isInterrupted()) throw e;
+                delayMs = afterIoError(e, path, attempt, backoffMs, st);
+            }
 
-                sleepQuiet(backoffMs);
-                backoffMs = Math.min((long) (backoffMs * 1.8), 15000);
+            if (delayMs > 0) {
+                backoffSleep(delayMs, path, st);
+                backoffMs = nextBackoff(backoffMs);
             }
         }
+        return exhausted(path);
+    }
+
+    /** Что делать после попытки: вернуть итог (done) или повторить — сразу (пауза в лимитере хоста) или через delayMs. */
+    private static final class Step<T> {
+        final Outcome<T> done;
+        final long delayMs;
+
+        private Step(Outcome<T> done, long delayMs) {
+            this.done = done;
+            this.delayMs = delayMs;
+        }
 
-        // если после всех попыток всё равно плохо — НЕ роняем весь прогон
-        System.out.println("BLOCKED/FAILED (max retries) GET " + path + " -> return empty");
-        if (last != null) {
-            // если хочешь — можешь временно раскомментить, чтобы видеть последнюю ошибку
-            // throw last;
+        static <T> Step<T> done(Outcome<T> o) {
+            return new Step<>(o, 0);
         }
-        return "";
+
+        static <T> Step<T> retry(long delayMs) {
+            return new Step<>(null, delayMs);
+        }
+    }
+
+    /** Разбор ответа — общий для блокирующего и асинхронного GET. */
+    private <T> Step<T> afterReply(Reply<T> reply, String path, int attempt, long backoffMs, EndpointStats st) {
+        int code = reply.code;
+        st.attempt(code);
+
+        if (code >= 200 && code < 300) {
+            limiter.onSuccess();
+            return Step.done(new Outcome<>(code, reply.value));
+        }
+
+        String body = reply.errorBody;
+
+        // антибот/лимит: тормозим весь хост (ждать будем в лимитере перед следующей попыткой)
+        if (code == 451 || code == 429 || code == 403) {
+            long pauseMs = limiter.onThrottled(parseRetryAfterMs(reply.retryAfter));
+            if (log.isWarnEnabled()) {
+                log.warn("HTTP {} GET {} attempt={}/{} -> host pause {}ms, rate {}/s; bodyHead={}",
+                        code, path, attempt, MAX_ATTEMPTS, pauseMs,
+                        String.format("%.2f", limiter.currentRate()), head(body, 200));
+            }
+            return Step.retry(0);
+        }
+
+        // сбой сервера: backoff только этого вызова (но Retry-After уважаем)
+        if (code == 502 || code == 503 || code == 504) {
+            long retryAfterMs = parseRetryAfterMs(reply.retryAfter);
+            long sleepMs = Math.max(backoffMs, retryAfterMs);
+            if (log.isWarnEnabled()) {
+                log.warn("HTTP {} GET {} attempt={}/{} -> backoff {}ms; bodyHead={}",
+                        code, path, attempt, MAX_ATTEMPTS, sleepMs, head(body, 200));
+            }
+            return Step.retry(sleepMs);
+        }
+
+        // остальные коды: не ретраим, но и не падаем — просто вернем пусто
+        // (404 = «такого нет» — обычное дело, видно только в DEBUG)
+        if (code == 404) {
+            log.debug("HTTP 404 GET {} (no retry)", path);
+        } else if (log.isWarnEnabled()) {
+            log.warn("HTTP {} GET {} (no retry) bodyHead={}", code, path, head(body, 200));
+        }
+        return Step.done(new Outcome<>(code, null));
+    }
+
+    /** Сетевая ошибка: тоже иногда временная — ретраим через backoff. @return пауза перед повтором */
+    private static long afterIoError(IOException e, String path, int attempt, long backoffMs, EndpointStats st) {
+        st.ioError();
+        log.warn("IO ERROR GET {} attempt={}/{} -> {}: {} ; backoff {}ms",
+                path, attempt, MAX_ATTEMPTS, e.getClass().getSimpleName(), e.getMessage(), backoffMs);
+        return backoffMs;
+    }
+
+    /** Если после всех попыток всё равно плохо — НЕ роняем весь прогон. */
+    private static <T> Outcome<T> exhausted(String path) {
+        log.warn("BLOCKED/FAILED (max retries) GET {} -> return empty", path);
+        return new Outcome<>(-1, null);
+    }
+
+    private static long nextBackoff(long backoffMs) {
+        return Math.min((long) (backoffMs * 1.8), MAX_BACKOFF_MS);
+    }
+
+    private static final class Reply<T> {
+        final int code;
+        final T value;            // тело 2xx (через reader)
+        final String errorBody;   // тело остальных ответов — только для лога
+        final String retryAfter;
+
+        Reply(int code, T value, String errorBody, String retryAfter) {
+            this.code = code;
+            this.value = value;
+            this.errorBody = errorBody;
+            this.retryAfter = retryAfter;
+        }
+    }
+
+    /** Один HTTP-обмен под лимитом хоста: permit держим только пока читаем ответ. */
+    private <T> Reply<T> execute(Request req, String path, int attempt, BodyReader<T> reader) throws IOException {
+        if (hostPermits != null) hostPermits.acquire();
+
+        ApiCallEvent ev = new ApiCallEvent();
+        ev.begin();
+        int code = -1;
+        try (Response resp = client.newCall(req).execute()) {
+            code = resp.code();
+            return readReply(resp, path, reader);
+        } finally {
+            if (hostPermits != null) hostPermits.release();
+            commitApiCall(ev, req, path, attempt, code);
+        }
+    }
+
+    /** Тело ответа: 2xx → reader, остальное → строка для лога (+ запись в архив фикстур в режиме записи). */
+    private <T> Reply<T> readReply(Response resp, String path, BodyReader<T> reader) throws IOException {
+        ResponseBody body = resp.body();
+
+        FixtureRecorder rec = recorder;
+        if (rec != null && isFinalCode(resp.code())) {
+            // в режиме записи тело читаем целиком: одна копия в архив, вторая — reader'у
+            byte[] raw = body == null ? new byte[0] : body.bytes();
+            rec.record(baseUrl, path, resp.code(), raw);
+            body = ResponseBody.create(raw, body == null ? null : body.contentType());
+        }
+
+        if (resp.isSuccessful()) {
+            return new Reply<>(resp.code(), body == null ? null : reader.read(body), null, null);
+        }
+        String errorBody = body == null ? "" : body.string();
+        return new Reply<>(resp.code(), null, errorBody, resp.header("Retry-After"));
+    }
+
+    /** JFR ApiCall: поля заполняем, только если событие реально пишется (JFR выключен → почти бесплатно). */
+    private static void commitApiCall(ApiCallEvent ev, Request req, String path, int attempt, int code) {
+        ev.end();
+        if (ev.shouldCommit()) {
+            ev.host = req.url().host();
+            ev.path = path;
+            ev.endpoint = FedresursEndpoints.family(path).name();
+            ev.attempt = attempt;
+            ev.code = code;
+            ev.commit();
+        }
+    }
+
+    // =========================================================
+    // async transport
+    // =========================================================
+
+    /** Асинхронный GET из сети: тот же retry, что у fetch, но без занятого потока на ожидание. */
+    private <T> CompletableFuture<Outcome<T>> fetchAsync(String path, Map<String, String> headers, BodyReader<T> reader) {
+        AsyncFetch<T> f = new AsyncFetch<>(path, headers, reader);
+        f.nextAttempt();
+        return f.result;
+    }
+
+    /**
+     * Один асинхронный GET со всеми попытками. Шаги:
+     * токен лимитера (нет — повтор на таймере) → permit хоста (без блокировки) → enqueue →
+     * ответ в потоке Dispatcher'а → итог или повтор (backoff — тоже на таймере).
+     * Тело ответа читается в callback'е, т.е. потоком Dispatcher'а, пока ответ открыт.
+     */
+    private final class AsyncFetch<T> implements Callback {
+        final String path;
+        final Map<String, String> headers;
+        final BodyReader<T> reader;
+        final EndpointStats st;
+        final CompletableFuture<Outcome<T>> result = new CompletableFuture<>();
+        final long started = System.nanoTime();
+
+        int attempt;
+        long backoffMs = INITIAL_BACKOFF_MS;
+        long waitStart;
+        Request req;
+        ApiCallEvent ev;
+
+        AsyncFetch(String path, Map<String, String> headers, BodyReader<T> reader) {
+            this.path = path;
+            this.headers = headers;
+            this.reader = reader;
+            this.st = stats(path);
+        }
+
+        void nextAttempt() {
+            if (result.isDone()) return;   // отменили снаружи
+            if (++attempt > MAX_ATTEMPTS) {
+                finish(exhausted(path));
+                return;
+            }
+            waitStart = System.nanoTime();
+            awaitToken();
+        }
+
+        void awaitToken() {
+            if (result.isDone()) return;
+            long waitNanos = limiter.tryAcquire();
+            if (waitNanos > 0) {
+                transport.schedule(this::awaitToken, waitNanos, TimeUnit.NANOSECONDS);
+                return;
+            }
+            st.rateLimitWait(System.nanoTime() - waitStart);
+            if (hostPermits == null) {
+                send();
+            } else {
+                hostPermits.acquireAsync().thenRun(this::send);
+            }
+        }
+
+        void send() {
+            try {
+                req = buildRequest(path, headers, st);
+                ev = new ApiCallEvent();
+                ev.begin();
+                client.newCall(req).enqueue(this);
+            } catch (RuntimeException e) {
+                if (hostPermits != null) hostPermits.release();
+                fail(e);
+            }
+        }
+
+        @Override
+        public void onResponse(Call call, Response resp) {
+            Reply<T> reply;
+            try (resp) {
+                reply = readReply(resp, path, reader);
+            } catch (IOException e) {
+                // оборвалось посреди тела — как сетевая ошибка
+                endAttempt(resp.code());
+                retry(afterIoError(e, path, attempt, backoffMs, st));
+                return;
+            } catch (RuntimeException e) {
+                endAttempt(resp.code());
+                fail(e);
+                return;
+            }
+            endAttempt(reply.code);
+
+            try {
+                Step<T> step = afterReply(reply, path, attempt, backoffMs, st);
+                if (step.done != null) finish(step.done);
+                else retry(step.delayMs);
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            endAttempt(-1);
+            retry(afterIoError(e, path, attempt, backoffMs, st));
+        }
+
+        private void endAttempt(int code) {
+            if (hostPermits != null) hostPermits.release();
+            commitApiCall(ev, req, path, attempt, code);
+        }
+
+        private void retry(long delayMs) {
+            if (delayMs <= 0) {
+                nextAttempt();
+                return;
+            }
+            st.backoff(TimeUnit.MILLISECONDS.toNanos(delayMs));
+            backoffMs = nextBackoff(backoffMs);
+            transport.schedule(this::nextAttempt, delayMs, TimeUnit.MILLISECONDS);
+        }
+
+        private void finish(Outcome<T> o) {
+            st.call(System.nanoTime() - started, o.code >= 0);
+            result.complete(o);
+        }
+
+        private void fail(Throwable e) {
+            st.call(System.nanoTime() - started, false);
+            result.completeExceptionally(e);
+        }
+    }
+
+    /** Ответ, на котором retry-цикл заканчивается (2xx или «не ретраим»), а не блок/сбой сервера. */
+    private static boolean isFinalCode(int code) {
+        if (code >= 200 && code < 300) return true;
+        return code >= 400 && code < 500 && code != 403 && code != 429 && code != 451;
+    }
+
+    private void recordCached(String path, byte[] body) {
+        FixtureRecorder rec = recorder;
+        if (rec != null) rec.record(baseUrl, path, 200, body);
+    }
+
+    // =========================================================
+    // streaming JSON
+    // =========================================================
+
+    /** Не-JSON в 2xx (html-заглушка и т.п.) — не повод ретраить: MissingNode, как от readTree(""). */
+    private static JsonNode readTreeLenient(InputStream in, String path) throws IOException {
+        try {
+            JsonNode root = OM.readTree(in);
+            return root == null ? MissingNode.getInstance() : root;
+        } catch (JsonProcessingException e) {
+            log.warn("BAD JSON GET {} -> {}", path, e.getOriginalMessage());
+            return MissingNode.getInstance();
+        }
+    }
+
+    /**
+     * Разбирает {"pageData":[...],"total":N} потоком: каждый элемент pageData → onItem.
+     * emitted — сколько элементов уже отдано (в т.ч. прошлыми попытками): их пропускаем.
+     *
+     * @return total или -1
+     */
+    private static int readPageItems(InputStream in, String path, int[] emitted, Consumer<JsonNode> onItem) throws IOException {
+        int total = -1;
+        try (JsonParser p = OM.createParser(in)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) return total;
+
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken t = p.nextToken();
+
+                if ("pageData".equals(field) && t == JsonToken.START_ARRAY) {
+                    int idx = 0;
+                    while (p.nextToken() != JsonToken.END_ARRAY) {
+                        if (idx++ < emitted[0]) {
+                            p.skipChildren();
+                            continue;
+                        }
+                        JsonNode item = p.readValueAsTree();
+                        emitted[0]++;
+                        onItem.accept(item);
+                    }
+                } else if ("total".equals(field) && t.isNumeric()) {
+                    total = p.getIntValue();
+                } else {
+                    p.skipChildren();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            log.warn("BAD JSON GET {} -> {}", path, e.getOriginalMessage());
+        }
+        return total;
     }
 
-    private Request buildRequest(String path, Map<String, String> headers) {
+    private Request buildRequest(String path, Map<String, String> headers, EndpointStats st) {
         Request.Builder b = new Request.Builder()
                 .url(baseUrl + path)
+                .tag(EndpointStats.class, st)
                 .get();
 
         // default headers
@@ -137,12 +777,70 @@ public class ApiClient {
         return false;
     }
 
+    /** Пустой результат: пустое тело, {} / [] или пустой pageData (например ieb без записей). */
+    static boolean isEmptyResult(String body) {
+        if (body == null || body.isBlank()) return true;
+        if (body.length() > 512) return false;
+        try {
+            return isEmptyResult(OM.readTree(body));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    static boolean isEmptyResult(JsonNode root) {
+        if (root == null || root.isMissingNode() || root.isNull()) return true;
+        if (root.isContainerNode() && root.size() == 0) return true;
+        JsonNode pd = root.path("pageData");
+        return pd.isArray() && pd.size() == 0;
+    }
+
+    /** Retry-After: секунды или HTTP-дата. Нет/непонятно → -1. */
+    static long parseRetryAfterMs(String value) {
+        if (value == null || value.isBlank()) return -1;
+        String v = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(v)) * 1000;
+        } catch (NumberFormatException ignore) {
+            // не число → пробуем дату
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(v, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, at.toInstant().toEpochMilli() - System.currentTimeMillis());
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /** Первые n символов с ужатыми пробелами (как replaceAll("\\s+", " ").trim(), но без regex). */
     private static String head(String s, int n) {
         if (s == null) return "";
-        return s.substring(0, Math.min(n, s.length())).replaceAll("\\s+", " ").trim();
+        int end = Math.min(n, s.length());
+        StringBuilder sb = new StringBuilder(end);
+        boolean gap = false;
+        for (int i = 0; i < end; i++) {
+            char ch = s.charAt(i);
+            if (Character.isWhitespace(ch)) {
+                gap = true;
+                continue;
+            }
+            if (gap && sb.length() > 0) sb.append(' ');
+            gap = false;
+            sb.append(ch);
+        }
+        return sb.toString();
     }
 
-    private static void sleepQuiet(long ms) {
-        try { Thread.sleep(ms); } catch (InterruptedException ignored) {}
+    /** Пауза перед повтором. Прервали — флаг прерывания остаётся (по нему SingleFlight отличает отмену от ошибки), повторов нет. */
+    private static void backoffSleep(long ms, String path, EndpointStats st) throws InterruptedIOException {
+        long t0 = System.nanoTime();
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted during retry backoff of GET " + path);
+        } finally {
+            st.backoff(System.nanoTime() - t0);
+        }
     }
 }
\ No newline at end of file
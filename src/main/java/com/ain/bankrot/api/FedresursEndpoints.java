@@ -49,6 +49,15 @@ public final class FedresursEndpoints {
         return "/backend/biddings?limit=" + limit + "&offset=" + offset + "&bankruptGuid=" + bankruptGuid;
     }
 
+    /**
+     * Весь листинг торгов без фильтра по банкроту — для массового подсчёта торгов (см. TradesSweep).
+     * Пример:
+     * /backend/biddings?limit=500&offset=0
+     */
+    public static String biddings(int limit, int offset) {
+        return "/backend/biddings?limit=" + limit + "&offset=" + offset;
+    }
+
     /** Детали торгов */
     public static String bidding(String biddingGuid) {
         return "/backend/biddings/" + biddingGuid;
@@ -78,4 +87,55 @@ public final class FedresursEndpoints {
     public static String personIndividualEntrepreneurs(String personGuid, int limit, int offset) {
         return "/backend/persons/" + personGuid + "/individual-entrepreneurs?limit=" + limit + "&offset=" + offset;
     }
-}
\ No newline at end of file
+
+    // =========================
+    // FAMILIES (для кэша/метрик: к какому эндпоинту относится путь)
+    // =========================
+
+    public enum Family {
+        LIST_COMPANIES,
+        LIST_PERSONS,
+        COMPANY,
+        COMPANY_PUBLICATIONS,
+        COMPANY_BANKRUPTCY,
+        COMPANY_IEB,
+        PERSON,
+        PERSON_GENERAL_INFO,
+        PERSON_ENTREPRENEURS,
+        BIDDINGS,
+        BIDDING,
+        BIDDING_LOTS,
+        OTHER
+    }
+
+    /** Семейство эндпоинта по пути (обратное к методам выше). */
+    public static Family family(String path) {
+        if (path == null) return Family.OTHER;
+        int q = path.indexOf('?');
+        String p = q >= 0 ? path.substring(0, q) : path;
+
+        if (p.equals("/backend/cmpbankrupts")) return Family.LIST_COMPANIES;
+        if (p.equals("/backend/prsnbankrupts")) return Family.LIST_PERSONS;
+
+        if (p.startsWith("/backend/companies/")) {
+            if (p.endsWith("/publications")) return Family.COMPANY_PUBLICATIONS;
+            if (p.endsWith("/bankruptcy")) return Family.COMPANY_BANKRUPTCY;
+            if (p.endsWith("/ieb")) return Family.COMPANY_IEB;
+            return p.indexOf('/', "/backend/companies/".length()) < 0 ? Family.COMPANY : Family.OTHER;
+        }
+
+        if (p.startsWith("/backend/persons/")) {
+            if (p.endsWith("/general-info")) return Family.PERSON_GENERAL_INFO;
+            if (p.endsWith("/individual-entrepreneurs")) return Family.PERSON_ENTREPRENEURS;
+            return p.indexOf('/', "/backend/persons/".length()) < 0 ? Family.PERSON : Family.OTHER;
+        }
+
+        if (p.equals("/backend/biddings")) return Family.BIDDINGS;
+        if (p.startsWith("/backend/biddings/")) {
+            if (p.endsWith("/lots")) return Family.BIDDING_LOTS;
+            return Family.BIDDING;
+        }
+
+        return Family.OTHER;
+    }
+}
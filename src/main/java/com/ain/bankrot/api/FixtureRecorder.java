@@ -0,0 +1,80 @@
+package com.ain.bankrot.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Запись ответов в архив фикстур — чтобы потом гонять парсер/бенчмарки офлайн (replay-сервер в benchmarks/).
+ *
+ * Формат: gzip JSON Lines, по строке на ответ: {"base":baseUrl,"path":path,"code":200,"body":"..."}.
+ * Пишутся окончательные ответы (2xx и «не ретраим»-коды вроде 404) и попадания в кэш (как 200);
+ * промежуточные 429/451/503 не пишутся — их replay-сервер подмешивает сам.
+ * Один путь может встретиться несколько раз; при чтении обычно побеждает последний.
+ */
+public final class FixtureRecorder implements Closeable {
+
+    private static final ObjectMapper OM = new ObjectMapper();
+
+    private final OutputStream out;
+    private long records;
+
+    private FixtureRecorder(OutputStream out) {
+        this.out = out;
+    }
+
+    /** Новый архив (существующий файл перезаписывается). */
+    public static FixtureRecorder create(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        return new FixtureRecorder(new GZIPOutputStream(Files.newOutputStream(file), 1 << 16));
+    }
+
+    public synchronized void record(String baseUrl, String path, int code, byte[] body) {
+        try {
+            ObjectNode n = OM.createObjectNode();
+            n.put("base", baseUrl);
+            n.put("path", path);
+            n.put("code", code);
+            n.put("body", new String(body, StandardCharsets.UTF_8));
+            out.write(OM.writeValueAsBytes(n));
+            out.write('\n');
+            records++;
+        } catch (IOException ignore) {
+            // запись фикстур — вспомогательная: прогон из-за неё не роняем
+        }
+    }
+
+    public synchronized long records() {
+        return records;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    /** Читает архив по записям: {"base","path","code","body"}. */
+    public static void read(Path file, Consumer<JsonNode> onRecord) throws IOException {
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.isBlank()) continue;
+                onRecord.accept(OM.readTree(line));
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.ain.bankrot.api;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Лимит одновременных запросов к хосту — и для блокирующих вызовов, и для асинхронных.
+ * Ожидающие обслуживаются по очереди (как честный Semaphore); асинхронный запрос ждёт permit
+ * не занимая поток: получает его в completion своего future.
+ */
+final class HostPermits {
+
+    private static final CompletableFuture<Void> GRANTED = CompletableFuture.completedFuture(null);
+
+    private final int max;
+    private final ArrayDeque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private int inUse;
+
+    HostPermits(int max) {
+        this.max = max;
+    }
+
+    /** Permit сразу (завершённый future) или в порядке очереди, когда его вернёт release(). */
+    synchronized CompletableFuture<Void> acquireAsync() {
+        if (inUse < max && waiters.isEmpty()) {
+            inUse++;
+            return GRANTED;
+        }
+        CompletableFuture<Void> f = new CompletableFuture<>();
+        waiters.add(f);
+        return f;
+    }
+
+    /** Блокирующее ожидание permit'а. */
+    void acquire() throws InterruptedIOException {
+        CompletableFuture<Void> f = acquireAsync();
+        try {
+            f.get();
+        } catch (InterruptedException e) {
+            boolean stillWaiting;
+            synchronized (this) {
+                stillWaiting = waiters.remove(f);
+            }
+            // permit успели выдать, пока нас прерывали, — возвращаем
+            if (!stillWaiting) release();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for host permit");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /** Возвращает permit: он сразу переходит первому в очереди (его продолжение выполнится в этом потоке). */
+    void release() {
+        CompletableFuture<Void> next;
+        synchronized (this) {
+            next = waiters.poll();
+            if (next == null) inUse--;
+        }
+        if (next != null) next.complete(null);
+    }
+}
@@ -0,0 +1,102 @@
+package com.ain.bankrot.api;
+
+import com.ain.bankrot.metrics.EndpointStats;
+import com.ain.bankrot.util.Threads;
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP-транспорт, общий для нескольких ApiClient (bankrot + fed): один OkHttpClient —
+ * один пул соединений и один Dispatcher для асинхронных запросов (enqueue),
+ * плюс таймер, на котором асинхронные запросы ждут лимитер хоста и backoff вместо Thread.sleep.
+ *
+ * Лимиты на хост (RateLimiter, maxConcurrentRequests) остаются в ApiClient;
+ * Dispatcher ограничивает только общее число асинхронных запросов в полёте.
+ */
+public final class HttpTransport implements Closeable {
+
+    public static final int DEFAULT_MAX_REQUESTS = 256;
+
+    private static volatile HttpTransport shared;
+
+    /**
+     * Транспорт по умолчанию — для ApiClient, созданных без явного транспорта.
+     * Явно его никто не закрывает: потоки daemon и выход JVM не держат, закрывается в shutdown hook.
+     */
+    public static HttpTransport shared() {
+        HttpTransport t = shared;
+        if (t == null) {
+            synchronized (HttpTransport.class) {
+                t = shared;
+                if (t == null) {
+                    shared = t = new HttpTransport(DEFAULT_MAX_REQUESTS);
+                    Runtime.getRuntime().addShutdownHook(new Thread(t::close, "http-transport-shutdown"));
+                }
+            }
+        }
+        return t;
+    }
+
+    // сколько байт тела реально пришло по сети (в т.ч. при потоковом чтении, где длины заранее нет)
+    private static final EventListener BYTES_LISTENER = new EventListener() {
+        @Override
+        public void responseBodyEnd(Call call, long byteCount) {
+            EndpointStats st = call.request().tag(EndpointStats.class);
+            if (st != null) st.bytes(byteCount);
+        }
+    };
+
+    private final OkHttpClient client;
+    private final ScheduledThreadPoolExecutor timer;
+
+    /**
+     * @param maxRequests сколько асинхронных запросов может быть в полёте одновременно (на все хосты)
+     */
+    public HttpTransport(int maxRequests) {
+        // как у OkHttp по умолчанию, но daemon: незакрытый транспорт не держит JVM ещё минуту после main
+        Dispatcher dispatcher = new Dispatcher(new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), Threads.daemonFactory("http-dispatcher")));
+        dispatcher.setMaxRequests(maxRequests);
+        // на хост ограничивает сам ApiClient (maxConcurrentRequests), здесь не мешаем
+        dispatcher.setMaxRequestsPerHost(maxRequests);
+
+        this.client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(32, 5, TimeUnit.MINUTES))
+                .callTimeout(Duration.ofSeconds(45))
+                .connectTimeout(Duration.ofSeconds(15))
+                .readTimeout(Duration.ofSeconds(45))
+                .eventListener(BYTES_LISTENER)
+                .build();
+
+        this.timer = new ScheduledThreadPoolExecutor(1, Threads.daemonFactory("http-timer"));
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    OkHttpClient client() {
+        return client;
+    }
+
+    /** Отложенный шаг асинхронного запроса (ожидание токена, повтор после backoff). Задача не должна блокировать. */
+    void schedule(Runnable task, long delay, TimeUnit unit) {
+        timer.schedule(task, delay, unit);
+    }
+
+    /** Останавливает таймер и потоки Dispatcher'а, закрывает простаивающие соединения. */
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+}
@@ -0,0 +1,131 @@
+package com.ain.bankrot.api;
+
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket на хост с адаптивной скоростью (AIMD).
+ *
+ * - каждый запрос к хосту берёт токен; токены копятся со скоростью rate в секунду (не больше BURST);
+ * - 2xx → скорость медленно растёт (+ADDITIVE_STEP запросов/сек за каждую секунду успешной работы);
+ * - 429/451/403 → скорость делится пополам, а весь хост ставится на паузу
+ *   (Retry-After, если сервер его прислал, иначе растущий backoff);
+ * - один лимитер на хост общий для всех ApiClient и всех потоков.
+ */
+public final class RateLimiter {
+
+    public static final double DEFAULT_RATE = 5.0;    // ≈ прежние SLEEP_MS = 200
+    public static final double MIN_RATE = 0.2;
+    public static final double MAX_RATE = 20.0;
+
+    private static final double ADDITIVE_STEP = 0.1;
+    private static final double DECREASE_FACTOR = 0.5;
+    private static final double BURST = 2.0;
+
+    private static final long BASE_PAUSE_MS = 1200;
+    private static final long MAX_PAUSE_MS = 15000;
+
+    private static final Map<String, RateLimiter> BY_HOST = new ConcurrentHashMap<>();
+
+    /** Общий лимитер хоста (создаётся при первом обращении). */
+    public static RateLimiter forHost(String host) {
+        return BY_HOST.computeIfAbsent(host.toLowerCase(), h -> new RateLimiter(h, DEFAULT_RATE, MIN_RATE, MAX_RATE));
+    }
+
+    private final String host;
+    private final double minRate;
+    private final double maxRate;
+
+    private double rate;
+    private double tokens;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+    private int consecutiveThrottles;
+
+    RateLimiter(String host, double initialRate, double minRate, double maxRate) {
+        this.host = host;
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.rate = initialRate;
+        this.tokens = 1.0;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /** Ждёт свой токен (и конец паузы хоста, если она есть). */
+    public void acquire() throws InterruptedIOException {
+        while (true) {
+            long waitNanos = tryAcquire();
+            if (waitNanos == 0) return;
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for rate limiter of " + host);
+            }
+        }
+    }
+
+    /**
+     * Неблокирующий acquire: 0 — токен взят; иначе сколько (нс, не меньше 1 мс) подождать
+     * до следующей попытки (асинхронные запросы ждут это время на таймере, а не во сне).
+     */
+    public synchronized long tryAcquire() {
+        long now = System.nanoTime();
+        refill(now);
+
+        long waitNanos;
+        if (now < pausedUntilNanos) {
+            waitNanos = pausedUntilNanos - now;
+        } else if (tokens >= 1.0) {
+            tokens -= 1.0;
+            return 0;
+        } else {
+            waitNanos = (long) ((1.0 - tokens) / rate * 1e9);
+        }
+        return Math.max(waitNanos, 1_000_000);
+    }
+
+    /** Ответ 2xx: аддитивный рост скорости. */
+    public synchronized void onSuccess() {
+        consecutiveThrottles = 0;
+        rate = Math.min(maxRate, rate + ADDITIVE_STEP / rate);
+    }
+
+    /**
+     * Блок/лимит (429/451/403): скорость ×0.5 и пауза всего хоста.
+     * retryAfterMs < 0 → сервер не сказал, сколько ждать, берём растущий backoff.
+     *
+     * @return сколько (мс) хост будет на паузе
+     */
+    public synchronized long onThrottled(long retryAfterMs) {
+        long now = System.nanoTime();
+
+        // одна волна ответов 429 от параллельных запросов = одно снижение, а не N
+        boolean alreadyBackingOff = now < pausedUntilNanos;
+        if (!alreadyBackingOff) {
+            consecutiveThrottles++;
+            rate = Math.max(minRate, rate * DECREASE_FACTOR);
+        }
+
+        long backoff = (long) Math.min(MAX_PAUSE_MS, BASE_PAUSE_MS * Math.pow(1.8, Math.max(0, consecutiveThrottles - 1)));
+        long pauseMs = retryAfterMs >= 0 ? retryAfterMs : backoff;
+
+        pausedUntilNanos = Math.max(pausedUntilNanos, now + TimeUnit.MILLISECONDS.toNanos(pauseMs));
+        tokens = 0;
+        lastRefillNanos = now;
+
+        return TimeUnit.NANOSECONDS.toMillis(pausedUntilNanos - now);
+    }
+
+    public synchronized double currentRate() {
+        return rate;
+    }
+
+    private void refill(long now) {
+        if (now <= lastRefillNanos) return;
+        tokens = Math.min(BURST, tokens + (now - lastRefillNanos) / 1e9 * rate);
+        lastRefillNanos = now;
+    }
+}
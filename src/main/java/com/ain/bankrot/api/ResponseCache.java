@@ -0,0 +1,525 @@
+package com.ain.bankrot.api;
+
+import com.ain.bankrot.api.FedresursEndpoints.Family;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Дисковый кэш ответов (ключ = baseUrl + path).
+ *
+ * Хранение:
+ * - responses.seg — append-only сегмент: [magic][key][storedAt][expiresAt][flags][gzip(body)][crc32];
+ * - responses.idx — снимок индекса (пишется при close/компакции). После падения индекс
+ *   дочитывается сканированием хвоста сегмента, оборванная запись в конце отрезается.
+ *
+ * TTL задаётся на семейство эндпоинтов (карточки — долго, счётчики — коротко, списки не кэшируем).
+ * Пустые ответы (пустой body, пустой pageData, 404) кэшируются отдельно, как «negative», со своим TTL.
+ * Объём ограничен maxBytes: вытесняем давно не читанные записи (LRU), сегмент периодически уплотняем.
+ *
+ * Потоки: под монитором индекса — только операции с картой (найти/опубликовать запись, вытеснение).
+ * Чтение записи с диска, gzip/gunzip и дозапись в сегмент идут вне него и параллельно
+ * (позиционные read/write FileChannel; место под новую запись резервируется под монитором).
+ * Компакция и close берут write-lock сегмента и ждут, пока текущие чтения/записи закончатся.
+ * Процесс упал посреди параллельных дозаписей → при загрузке сегмент обрезается по первой недописанной
+ * записи (более поздние теряются — это всего лишь кэш).
+ */
+public final class ResponseCache implements Closeable {
+
+    private static final int MAGIC = 0xCAC4E001;
+    private static final int IDX_MAGIC = 0xCAC4E1D1;
+
+    private static final byte FLAG_NEGATIVE = 1;
+
+    private final Path segPath;
+    private final Path idxPath;
+    private final long maxBytes;
+    private final Map<Family, Duration> ttls;
+    private final Duration negativeTtl;
+
+    // read-lock: чтение и дозапись записей; write-lock: компакция (смена файла и смещений), close
+    private final ReentrantReadWriteLock segLock = new ReentrantReadWriteLock();
+    private volatile FileChannel seg;
+
+    // под indexLock: index, segEnd, liveBytes, putsSinceSweep
+    private final Object indexLock = new Object();
+    private long segEnd;
+    private long liveBytes;
+
+    // access-order → итерация с самых давно использованных (LRU)
+    private final LinkedHashMap<String, Entry> index = new LinkedHashMap<>(1024, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private int putsSinceSweep;
+
+    private static final class Entry {
+        final long offset;
+        final int length;
+        final long expiresAt;
+        final boolean negative;
+
+        Entry(long offset, int length, long expiresAt, boolean negative) {
+            this.offset = offset;
+            this.length = length;
+            this.expiresAt = expiresAt;
+            this.negative = negative;
+        }
+    }
+
+    /** TTL по умолчанию: карточки живут долго, счётчики — несколько часов, списки не кэшируются. */
+    public static Map<Family, Duration> defaultTtls() {
+        Map<Family, Duration> m = new EnumMap<>(Family.class);
+        m.put(Family.COMPANY, Duration.ofDays(7));
+        m.put(Family.PERSON, Duration.ofDays(7));
+        m.put(Family.COMPANY_BANKRUPTCY, Duration.ofDays(1));
+        m.put(Family.COMPANY_IEB, Duration.ofDays(1));
+        m.put(Family.PERSON_GENERAL_INFO, Duration.ofDays(1));
+        m.put(Family.PERSON_ENTREPRENEURS, Duration.ofDays(1));
+        m.put(Family.BIDDING, Duration.ofDays(1));
+        m.put(Family.BIDDING_LOTS, Duration.ofDays(1));
+        m.put(Family.COMPANY_PUBLICATIONS, Duration.ofHours(3));
+        m.put(Family.BIDDINGS, Duration.ofHours(3));
+        return m;
+    }
+
+    public static ResponseCache open(Path dir, long maxBytes) throws IOException {
+        return new ResponseCache(dir, maxBytes, defaultTtls(), Duration.ofHours(12));
+    }
+
+    /**
+     * @param ttls        TTL по семействам; нет в карте (или 0) → не кэшируем
+     * @param negativeTtl TTL пустых ответов (не больше TTL семейства)
+     */
+    public ResponseCache(Path dir, long maxBytes, Map<Family, Duration> ttls, Duration negativeTtl) throws IOException {
+        Files.createDirectories(dir);
+        this.segPath = dir.resolve("responses.seg");
+        this.idxPath = dir.resolve("responses.idx");
+        this.maxBytes = maxBytes;
+        this.ttls = new EnumMap<>(Family.class);
+        this.ttls.putAll(ttls);
+        this.negativeTtl = negativeTtl;
+
+        this.seg = FileChannel.open(segPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        load();
+    }
+
+    // =========================================================
+    // API
+    // =========================================================
+
+    /** Кэшируется ли этот путь вообще (есть TTL у семейства). */
+    public boolean caches(String path) {
+        Duration ttl = ttls.get(FedresursEndpoints.family(path));
+        return ttl != null && !ttl.isZero() && !ttl.isNegative();
+    }
+
+    /** Тело из кэша или null (нет / протухло / битое). */
+    public String get(String key) {
+        byte[] b = getBytes(key);
+        return b == null ? null : new String(b, StandardCharsets.UTF_8);
+    }
+
+    /** То же, но сырыми байтами UTF-8 (для разбора Jackson'ом без промежуточной строки). */
+    public byte[] getBytes(String key) {
+        Entry e;
+        Record r;
+        segLock.readLock().lock();
+        try {
+            FileChannel ch = seg;
+            if (ch == null) return miss();
+            synchronized (indexLock) {
+                e = index.get(key);
+                if (e == null) return miss();
+                if (e.expiresAt <= System.currentTimeMillis()) {
+                    drop(key, e);
+                    return miss();
+                }
+            }
+            try {
+                r = readRecord(ch, e.offset);
+            } catch (IOException ex) {
+                r = null;
+            }
+        } finally {
+            segLock.readLock().unlock();
+        }
+
+        if (r == null || !r.key.equals(key)) return dropMiss(key, e);
+        try {
+            byte[] body = gunzip(r.data);
+            hits.incrementAndGet();
+            return body;
+        } catch (IOException ex) {
+            return dropMiss(key, e);
+        }
+    }
+
+    /** Кладёт ответ в кэш (если для семейства задан TTL). */
+    public void put(String key, String path, String body, boolean negative) {
+        put(key, path, body.getBytes(StandardCharsets.UTF_8), negative);
+    }
+
+    public void put(String key, String path, byte[] body, boolean negative) {
+        Family family = FedresursEndpoints.family(path);
+        Duration ttl = ttls.get(family);
+        if (ttl == null || ttl.isZero() || ttl.isNegative()) return;
+        if (negative && negativeTtl.compareTo(ttl) < 0) ttl = negativeTtl;
+
+        try {
+            long now = System.currentTimeMillis();
+            long expiresAt = now + ttl.toMillis();
+            byte[] rec = encodeRecord(key, now, expiresAt, negative ? FLAG_NEGATIVE : 0, gzip(body));
+
+            boolean compactNow;
+            segLock.readLock().lock();
+            try {
+                FileChannel ch = seg;
+                if (ch == null) return;
+
+                long offset;
+                synchronized (indexLock) {
+                    offset = segEnd;
+                    segEnd += rec.length;
+                }
+                writeFully(ch, rec, offset);
+
+                // запись видна читателям только после того, как целиком легла в файл
+                synchronized (indexLock) {
+                    Entry old = index.put(key, new Entry(offset, rec.length, expiresAt, negative));
+                    if (old != null) liveBytes -= old.length;
+                    liveBytes += rec.length;
+                    evict();
+                    compactNow = needsCompaction();
+                }
+            } finally {
+                segLock.readLock().unlock();
+            }
+
+            if (compactNow) {
+                segLock.writeLock().lock();
+                try {
+                    if (seg != null && needsCompaction()) compact();
+                } finally {
+                    segLock.writeLock().unlock();
+                }
+            }
+        } catch (IOException ignore) {
+            // кэш — оптимизация: при ошибке диска просто работаем без него
+        }
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        segLock.writeLock().lock();
+        try {
+            if (seg == null) return;
+            seg.force(false);
+            synchronized (indexLock) {
+                writeIndex();
+            }
+            seg.close();
+            seg = null;
+        } finally {
+            segLock.writeLock().unlock();
+        }
+    }
+
+    // =========================================================
+    // index / eviction
+    // =========================================================
+
+    private byte[] miss() {
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /** Битая запись: убираем из индекса (если её ещё не заменили) и считаем промахом. */
+    private byte[] dropMiss(String key, Entry e) {
+        synchronized (indexLock) {
+            drop(key, e);
+        }
+        return miss();
+    }
+
+    /** Под indexLock. Удаляет key, только если в индексе всё ещё e (не новая запись того же ключа). */
+    private void drop(String key, Entry e) {
+        if (index.remove(key, e)) liveBytes -= e.length;
+    }
+
+    private boolean needsCompaction() {
+        synchronized (indexLock) {
+            return segEnd > 2 * liveBytes + (16L << 20);
+        }
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, Entry>> it = index.entrySet().iterator();
+        while (liveBytes > maxBytes && it.hasNext()) {
+            Entry e = it.next().getValue();
+            it.remove();
+            liveBytes -= e.length;
+        }
+        // раз в несколько тысяч записей заодно выкидываем протухшие
+        if (++putsSinceSweep >= 4096) {
+            putsSinceSweep = 0;
+            it = index.entrySet().iterator();
+            while (it.hasNext()) {
+                Entry e = it.next().getValue();
+                if (e.expiresAt <= now) {
+                    it.remove();
+                    liveBytes -= e.length;
+                }
+            }
+        }
+    }
+
+    /** Под write-lock сегмента. Переписываем только живые записи (в LRU-порядке) в новый сегмент. */
+    private void compact() throws IOException {
+        synchronized (indexLock) {
+            compactLocked();
+        }
+    }
+
+    private void compactLocked() throws IOException {
+        Path tmp = segPath.resolveSibling(segPath.getFileName() + ".tmp");
+        LinkedHashMap<String, Entry> fresh = new LinkedHashMap<>(Math.max(16, index.size() * 2), 0.75f, true);
+        long pos = 0;
+
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Map.Entry<String, Entry> me : index.entrySet()) {
+                Entry e = me.getValue();
+                ByteBuffer buf = ByteBuffer.allocate(e.length);
+                readFully(seg, buf, e.offset);
+                buf.flip();
+                while (buf.hasRemaining()) out.write(buf);
+                fresh.put(me.getKey(), new Entry(pos, e.length, e.expiresAt, e.negative));
+                pos += e.length;
+            }
+            out.force(false);
+        }
+
+        seg.close();
+        Files.move(tmp, segPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        seg = FileChannel.open(segPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        index.clear();
+        index.putAll(fresh);
+        segEnd = pos;
+        writeIndex();
+    }
+
+    private void load() throws IOException {
+        long segSize = seg.size();
+        long scanFrom = 0;
+
+        if (Files.exists(idxPath)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(idxPath)))) {
+                if (in.readInt() == IDX_MAGIC) {
+                    long snapshotEnd = in.readLong();
+                    int n = in.readInt();
+                    if (snapshotEnd <= segSize) {
+                        for (int i = 0; i < n; i++) {
+                            String key = in.readUTF();
+                            long off = in.readLong();
+                            int len = in.readInt();
+                            long exp = in.readLong();
+                            boolean neg = in.readBoolean();
+                            index.put(key, new Entry(off, len, exp, neg));
+                            liveBytes += len;
+                        }
+                        scanFrom = snapshotEnd;
+                    }
+                }
+            } catch (IOException broken) {
+                index.clear();
+                liveBytes = 0;
+                scanFrom = 0;
+            }
+        }
+
+        // хвост после снимка (или весь сегмент, если снимка нет): записи после последнего close()
+        long pos = scanFrom;
+        while (pos < segSize) {
+            Record r;
+            try {
+                r = readRecord(seg, pos);
+            } catch (IOException e) {
+                r = null;
+            }
+            if (r == null) break;
+
+            Entry old = index.put(r.key, new Entry(pos, r.length, r.expiresAt, (r.flags & FLAG_NEGATIVE) != 0));
+            if (old != null) liveBytes -= old.length;
+            liveBytes += r.length;
+            pos += r.length;
+        }
+
+        // оборванная запись в конце (процесс упал посреди write) — отрезаем
+        if (pos < segSize) seg.truncate(pos);
+        segEnd = pos;
+
+        evict();
+    }
+
+    private void writeIndex() throws IOException {
+        Path tmp = idxPath.resolveSibling(idxPath.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(IDX_MAGIC);
+            out.writeLong(segEnd);
+            out.writeInt(index.size());
+            for (Map.Entry<String, Entry> me : index.entrySet()) {
+                Entry e = me.getValue();
+                out.writeUTF(me.getKey());
+                out.writeLong(e.offset);
+                out.writeInt(e.length);
+                out.writeLong(e.expiresAt);
+                out.writeBoolean(e.negative);
+            }
+        }
+        Files.move(tmp, idxPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // =========================================================
+    // record format
+    // =========================================================
+
+    private static final class Record {
+        String key;
+        long expiresAt;
+        byte flags;
+        byte[] data;
+        int length;
+    }
+
+    private static byte[] encodeRecord(String key, long storedAt, long expiresAt, byte flags, byte[] data) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length + key.length() + 48);
+        DataOutputStream out = new DataOutputStream(bos);
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+
+        out.writeInt(MAGIC);
+        out.writeInt(k.length);
+        out.write(k);
+        out.writeLong(storedAt);
+        out.writeLong(expiresAt);
+        out.writeByte(flags);
+        out.writeInt(data.length);
+        out.write(data);
+
+        byte[] body = bos.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body, 4, body.length - 4);
+        out.writeInt((int) crc.getValue());
+        return bos.toByteArray();
+    }
+
+    /** Читает запись по смещению; null — если запись битая или оборвана. */
+    private static Record readRecord(FileChannel ch, long offset) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(8);
+        if (!tryRead(ch, head, offset)) return null;
+        head.flip();
+        if (head.getInt() != MAGIC) return null;
+        int keyLen = head.getInt();
+        if (keyLen < 0 || keyLen > 64 * 1024) return null;
+
+        ByteBuffer mid = ByteBuffer.allocate(keyLen + 8 + 8 + 1 + 4);
+        if (!tryRead(ch, mid, offset + 8)) return null;
+        mid.flip();
+        byte[] k = new byte[keyLen];
+        mid.get(k);
+        long storedAt = mid.getLong();
+        long expiresAt = mid.getLong();
+        byte flags = mid.get();
+        int dataLen = mid.getInt();
+        if (dataLen < 0 || dataLen > 256 * 1024 * 1024) return null;
+
+        ByteBuffer tail = ByteBuffer.allocate(dataLen + 4);
+        if (!tryRead(ch, tail, offset + 8 + mid.capacity())) return null;
+        tail.flip();
+        byte[] data = new byte[dataLen];
+        tail.get(data);
+        int storedCrc = tail.getInt();
+
+        CRC32 crc = new CRC32();
+        crc.update(head.array(), 4, 4);
+        crc.update(mid.array());
+        crc.update(data);
+        if ((int) crc.getValue() != storedCrc) return null;
+
+        Record r = new Record();
+        r.key = new String(k, StandardCharsets.UTF_8);
+        r.expiresAt = expiresAt;
+        r.flags = flags;
+        r.data = data;
+        r.length = 8 + mid.capacity() + dataLen + 4;
+        return r;
+    }
+
+    private static boolean tryRead(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, pos);
+            if (n < 0) return false;
+            pos += n;
+        }
+        return true;
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+        if (!tryRead(ch, buf, pos)) throw new IOException("cache segment truncated at " + pos);
+    }
+
+    private static void writeFully(FileChannel ch, byte[] data, long pos) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(data);
+        while (buf.hasRemaining()) {
+            pos += ch.write(buf, pos);
+        }
+    }
+
+    private static byte[] gzip(byte[] raw) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+        try (OutputStream gz = new GZIPOutputStream(bos)) {
+            gz.write(raw);
+        }
+        return bos.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] data) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return in.readAllBytes();
+        }
+    }
+}
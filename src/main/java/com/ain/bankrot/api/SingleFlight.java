@@ -0,0 +1,204 @@
+package com.ain.bankrot.api;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Склейка одинаковых запросов: пока по ключу идёт вызов, остальные ждут его результат, а не делают свой.
+ * Готовые результаты, которые memoizable пропускает, запоминаются до конца прогона
+ * (LRU, в сумме не больше maxBytes по оценке weigher).
+ *
+ * Если первого вызвавшего прервали (остановка его потока), ждавшие не получают чужое прерывание:
+ * каждый из них повторяет вызов сам (один снова станет первым, остальные склеятся с ним).
+ *
+ * Результат общий для всех, кто его получил, — менять его нельзя (JsonNode / byte[] только читаем).
+ */
+final class SingleFlight<V> {
+
+    /** Загрузка в потоке первого вызвавшего. */
+    interface Loader<V> {
+        V load() throws IOException;
+    }
+
+    /** Первый вызвавший прерван: ошибка его, а не запроса — ждавшим надо повторить. */
+    private static final class LeaderInterrupted extends RuntimeException {
+        LeaderInterrupted() {
+            super("coalesced request abandoned by an interrupted caller", null, false, false);
+        }
+    }
+
+    private static final class Memo<V> {
+        final V value;
+        final long bytes;
+
+        Memo(V value, long bytes) {
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
+
+    private final ConcurrentHashMap<String, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, Memo<V>> memo = new LinkedHashMap<>(256, 0.75f, true);
+    private final long maxBytes;
+    private final ToLongFunction<V> weigher;
+    private final Predicate<V> memoizable;
+    private long memoBytes;   // под synchronized (memo)
+
+    private final LongAdder memoHits = new LongAdder();
+    private final LongAdder joined = new LongAdder();
+
+    /**
+     * @param maxBytes   сколько (по оценке weigher) держать готовых результатов; 0 → не запоминать
+     * @param weigher    примерный размер результата в памяти, байт
+     */
+    SingleFlight(long maxBytes, ToLongFunction<V> weigher, Predicate<V> memoizable) {
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+        this.memoizable = memoizable;
+    }
+
+    /** Блокирующий вариант: первый по ключу грузит сам, остальные ждут его. */
+    V call(String key, Loader<V> loader) throws IOException {
+        for (;;) {
+            V done = memoized(key);
+            if (done != null) return done;
+
+            CompletableFuture<V> mine = new CompletableFuture<>();
+            CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+            if (running != null) {
+                joined.increment();
+                try {
+                    return await(running);
+                } catch (LeaderInterrupted e) {
+                    continue;
+                }
+            }
+
+            // предыдущий вызов мог завершиться между проверкой memo и putIfAbsent
+            done = memoized(key);
+            if (done != null) {
+                settle(key, mine, done, null);
+                return done;
+            }
+
+            try {
+                V v = loader.load();
+                settle(key, mine, v, null);
+                return v;
+            } catch (IOException | RuntimeException | Error e) {
+                settle(key, mine, null, Thread.currentThread().isInterrupted() ? new LeaderInterrupted() : e);
+                throw e;
+            }
+        }
+    }
+
+    /** Асинхронный вариант: каждому вызвавшему — своя копия future (отмена одного не трогает остальных). */
+    CompletableFuture<V> callAsync(String key, Supplier<CompletableFuture<V>> start) {
+        V done = memoized(key);
+        if (done != null) return CompletableFuture.completedFuture(done);
+
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            joined.increment();
+            return running.copy().exceptionallyCompose(e -> unwrap(e) instanceof LeaderInterrupted
+                    ? callAsync(key, start)
+                    : CompletableFuture.failedFuture(e));
+        }
+
+        done = memoized(key);
+        if (done != null) {
+            settle(key, mine, done, null);
+            return mine.copy();
+        }
+
+        try {
+            start.get().whenComplete((v, e) -> settle(key, mine, v, e));
+        } catch (RuntimeException e) {
+            settle(key, mine, null, e);
+        }
+        return mine.copy();
+    }
+
+    /** Сколько вызовов отдано из memo. */
+    long memoHits() {
+        return memoHits.sum();
+    }
+
+    /** Сколько вызовов присоединилось к уже идущему. */
+    long joined() {
+        return joined.sum();
+    }
+
+    /** Сколько байт (по оценке) сейчас в memo. */
+    long memoBytes() {
+        synchronized (memo) {
+            return memoBytes;
+        }
+    }
+
+    // порядок важен: сначала memo, потом убрать из inFlight — новый вызов увидит хотя бы одно из двух
+    private void settle(String key, CompletableFuture<V> f, V v, Throwable error) {
+        if (error == null && v != null && memoizable.test(v)) remember(key, v);
+        inFlight.remove(key, f);
+        if (error != null) f.completeExceptionally(error);
+        else f.complete(v);
+    }
+
+    private void remember(String key, V v) {
+        long bytes = weigher.applyAsLong(v);   // оценка — вне монитора
+        if (bytes > maxBytes) return;          // один ответ больше всего бюджета — не держим
+        synchronized (memo) {
+            Memo<V> old = memo.put(key, new Memo<>(v, bytes));
+            memoBytes += bytes - (old == null ? 0 : old.bytes);
+            Iterator<Memo<V>> it = memo.values().iterator();
+            while (memoBytes > maxBytes && it.hasNext()) {
+                memoBytes -= it.next().bytes;
+                it.remove();
+            }
+        }
+    }
+
+    private V memoized(String key) {
+        Memo<V> m;
+        synchronized (memo) {
+            m = memo.get(key);
+        }
+        if (m == null) return null;
+        memoHits.increment();
+        return m.value;
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    private static <V> V await(CompletableFuture<V> f) throws IOException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a coalesced request");
+        } catch (CancellationException e) {
+            throw new IOException("coalesced request cancelled", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.ain.bankrot.excel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Какие колонки листов выгружать (подмножество Sheets.LEGAL_HEADERS / PHYSICAL_HEADERS, порядок листа сохраняется).
+ *
+ * ExcelExporter пишет только выбранные колонки, а LegalRowBuilder/PersonRowBuilder по выбору решают,
+ * какие запросы к fedresurs вообще нужны (без «ИНН управляющего» и «Даты назначения» нет запроса ieb и т.п.).
+ */
+public final class ColumnSelection {
+
+    private static final ColumnSelection ALL = new ColumnSelection(
+            all(Sheets.LEGAL_HEADERS.size()), all(Sheets.PHYSICAL_HEADERS.size()));
+
+    private final boolean[] legal;
+    private final boolean[] physical;
+
+    private ColumnSelection(boolean[] legal, boolean[] physical) {
+        this.legal = legal;
+        this.physical = physical;
+    }
+
+    /** Все колонки обоих листов (как раньше). */
+    public static ColumnSelection all() {
+        return ALL;
+    }
+
+    /**
+     * Колонки через запятую — заголовки листа (без учёта регистра) или их номера с 1:
+     * "ИНН,ОГРН,Номер дела" или "2,3,13". null/пусто → все колонки листа.
+     *
+     * @throws IllegalArgumentException неизвестная колонка
+     */
+    public static ColumnSelection parse(String legalSpec, String physicalSpec) {
+        return new ColumnSelection(
+                parse(legalSpec, Sheets.LEGAL_HEADERS, Sheets.LEGAL),
+                parse(physicalSpec, Sheets.PHYSICAL_HEADERS, Sheets.PHYSICAL));
+    }
+
+    // =========================================================
+    // queries
+    // =========================================================
+
+    public boolean legal(String header) {
+        return legal[index(Sheets.LEGAL_HEADERS, header)];
+    }
+
+    public boolean physical(String header) {
+        return physical[index(Sheets.PHYSICAL_HEADERS, header)];
+    }
+
+    /** Хотя бы одна из колонок юрлиц выбрана. */
+    public boolean anyLegal(String... headers) {
+        for (String h : headers) if (legal(h)) return true;
+        return false;
+    }
+
+    /** Хотя бы одна из колонок физлиц выбрана. */
+    public boolean anyPhysical(String... headers) {
+        for (String h : headers) if (physical(h)) return true;
+        return false;
+    }
+
+    public boolean isAll() {
+        return count(legal) == legal.length && count(physical) == physical.length;
+    }
+
+    public List<String> legalHeaders() {
+        return select(Sheets.LEGAL_HEADERS, legal);
+    }
+
+    public List<String> physicalHeaders() {
+        return select(Sheets.PHYSICAL_HEADERS, physical);
+    }
+
+    /** Номера выбранных колонок листа юрлиц (с 0, в порядке листа). */
+    public int[] legalIndexes() {
+        return indexes(legal);
+    }
+
+    /** Номера выбранных колонок листа физлиц (с 0, в порядке листа). */
+    public int[] physicalIndexes() {
+        return indexes(physical);
+    }
+
+    /** Колонка листа юрлиц → колонка в файле (-1 — не выгружается). */
+    int[] legalLayout() {
+        return layout(legal);
+    }
+
+    /** Колонка листа физлиц → колонка в файле (-1 — не выгружается). */
+    int[] physicalLayout() {
+        return layout(physical);
+    }
+
+    @Override
+    public String toString() {
+        return isAll() ? "all" : "legal=" + legalHeaders() + " physical=" + physicalHeaders();
+    }
+
+    // =========================================================
+    // internals
+    // =========================================================
+
+    private static boolean[] parse(String spec, List<String> headers, String sheet) {
+        if (spec == null || spec.isBlank()) return all(headers.size());
+
+        boolean[] out = new boolean[headers.size()];
+        for (String part : spec.split(",")) {
+            String p = part.trim();
+            if (p.isEmpty()) continue;
+
+            int idx = -1;
+            if (p.chars().allMatch(Character::isDigit)) {
+                idx = Integer.parseInt(p) - 1;
+            } else {
+                for (int i = 0; i < headers.size(); i++) {
+                    if (headers.get(i).equalsIgnoreCase(p)) idx = i;
+                }
+            }
+            if (idx < 0 || idx >= headers.size()) {
+                throw new IllegalArgumentException("Unknown column for sheet " + sheet + ": " + p);
+            }
+            out[idx] = true;
+        }
+        return out;
+    }
+
+    private static int index(List<String> headers, String header) {
+        int idx = headers.indexOf(header);
+        if (idx < 0) throw new IllegalArgumentException("No such column: " + header);
+        return idx;
+    }
+
+    private static List<String> select(List<String> headers, boolean[] selected) {
+        List<String> out = new ArrayList<>(headers.size());
+        for (int i = 0; i < headers.size(); i++) if (selected[i]) out.add(headers.get(i));
+        return Collections.unmodifiableList(out);
+    }
+
+    private static int[] layout(boolean[] selected) {
+        int[] out = new int[selected.length];
+        int c = 0;
+        for (int i = 0; i < selected.length; i++) out[i] = selected[i] ? c++ : -1;
+        return out;
+    }
+
+    private static int[] indexes(boolean[] selected) {
+        int[] out = new int[count(selected)];
+        int c = 0;
+        for (int i = 0; i < selected.length; i++) if (selected[i]) out[c++] = i;
+        return out;
+    }
+
+    private static int count(boolean[] xs) {
+        int n = 0;
+        for (boolean x : xs) if (x) n++;
+        return n;
+    }
+
+    private static boolean[] all(int n) {
+        boolean[] out = new boolean[n];
+        Arrays.fill(out, true);
+        return out;
+    }
+}
@@ -1,8 +1,13 @@
 package com.ain.bankrot.excel;
 
+import com.ain.bankrot.metrics.ExcelWriteEvent;
 import com.ain.bankrot.model.legal.LegalEntityRow;
 import com.ain.bankrot.model.physical.PhysicalPersonRow;
+import com.ain.bankrot.output.Cells;
+import com.ain.bankrot.output.RowSink;
+import com.ain.bankrot.store.RowTable;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import java.io.IOException;
@@ -10,7 +15,7 @@ import java.io.OutputStream;
 import java.nio.file.*;
 import java.util.List;
 
-public class ExcelExporter implements AutoCloseable {
+public class ExcelExporter implements RowSink {
 
     private final Workbook wb;
     private final Sheet legalSheet;
@@ -22,8 +27,54 @@ public class ExcelExporter implements AutoCloseable {
     private int legalRowIdx = 1;     // 0 — header
     private int physicalRowIdx = 1;
 
+    // колонка листа → колонка в файле (-1 — колонка не выбрана, см. ColumnSelection)
+    private final int[] legalLayout;
+    private final int[] physicalLayout;
+
+    // оценка ширины колонок файла (в 1/256 символа), копится по ходу записи
+    private final int[] legalWidths;
+    private final int[] physicalWidths;
+
+    private static final int MAX_COLUMN_WIDTH = 255 * 256;
+
+    // куда сохраняет finish() (null — только явный saveAtomic)
+    private Path target;
+
+    // при сохранении убрать лист без строк (если другой лист не пуст)
+    private boolean skipEmptySheets;
+
+    /** Весь workbook в памяти (XSSF) — как раньше. */
     public ExcelExporter() {
-        this.wb = new XSSFWorkbook();
+        this(0);
+    }
+
+    /**
+     * rowWindow > 0 → потоковый режим (SXSSF): в памяти держим только последние rowWindow строк листа,
+     * остальные сбрасываются во временные файлы (сжатые gzip). Память не растёт с числом строк.
+     * rowWindow <= 0 → обычный XSSFWorkbook.
+     */
+    public ExcelExporter(int rowWindow) {
+        this(rowWindow, ColumnSelection.all());
+    }
+
+    /** Как ExcelExporter(rowWindow, columns), finish() сохраняет в target (как RowSink рядом с CSV/JSONL). */
+    public ExcelExporter(int rowWindow, ColumnSelection columns, Path target) {
+        this(rowWindow, columns);
+        this.target = target;
+    }
+
+    /** columns — какие колонки листов выгружать (остальные в файл не попадают). */
+    public ExcelExporter(int rowWindow, ColumnSelection columns) {
+        List<String> legalHeaders = columns.legalHeaders();
+        List<String> physicalHeaders = columns.physicalHeaders();
+        this.legalLayout = columns.legalLayout();
+        this.physicalLayout = columns.physicalLayout();
+        this.legalWidths = new int[legalHeaders.size()];
+        this.physicalWidths = new int[physicalHeaders.size()];
+
+        this.wb = rowWindow > 0
+                ? new SXSSFWorkbook(null, rowWindow, true)
+                : new XSSFWorkbook();
 
         // --- styles ---
         this.headerStyle = createHeaderStyle(wb);
@@ -33,20 +84,33 @@ public class ExcelExporter implements AutoCloseable {
         this.legalSheet = wb.createSheet(Sheets.LEGAL);
         this.physicalSheet = wb.createSheet(Sheets.PHYSICAL);
 
-        writeHeader(legalSheet, Sheets.LEGAL_HEADERS);
-        writeHeader(physicalSheet, Sheets.PHYSICAL_HEADERS);
+        writeHeader(legalSheet, legalHeaders, legalWidths);
+        writeHeader(physicalSheet, physicalHeaders, physicalWidths);
 
         // Закрепляем шапку
         legalSheet.createFreezePane(0, 1);
         physicalSheet.createFreezePane(0, 1);
 
         // Фильтр по заголовкам
-        legalSheet.setAutoFilter(new org.apache.poi.ss.util.CellRangeAddress(
-                0, 0, 0, Sheets.LEGAL_HEADERS.size() - 1
-        ));
-        physicalSheet.setAutoFilter(new org.apache.poi.ss.util.CellRangeAddress(
-                0, 0, 0, Sheets.PHYSICAL_HEADERS.size() - 1
-        ));
+        if (!legalHeaders.isEmpty()) {
+            legalSheet.setAutoFilter(new org.apache.poi.ss.util.CellRangeAddress(
+                    0, 0, 0, legalHeaders.size() - 1
+            ));
+        }
+        if (!physicalHeaders.isEmpty()) {
+            physicalSheet.setAutoFilter(new org.apache.poi.ss.util.CellRangeAddress(
+                    0, 0, 0, physicalHeaders.size() - 1
+            ));
+        }
+    }
+
+    /**
+     * true → в сохранённой книге нет пустого листа: лист без строк удаляется перед записью
+     * (если пусты оба — остаются оба). Сохранение после этого окончательное: в удалённый лист не дописать.
+     */
+    public ExcelExporter setSkipEmptySheets(boolean skipEmptySheets) {
+        this.skipEmptySheets = skipEmptySheets;
+        return this;
     }
 
     private static CellStyle createHeaderStyle(Workbook wb) {
@@ -87,7 +151,7 @@ public class ExcelExporter implements AutoCloseable {
         return style;
     }
 
-    private void writeHeader(Sheet sheet, List<String> headers) {
+    private void writeHeader(Sheet sheet, List<String> headers, int[] widths) {
         Row r = sheet.createRow(0);
         r.setHeightInPoints(28);
 
@@ -95,110 +159,203 @@ public class ExcelExporter implements AutoCloseable {
             Cell c = r.createCell(i, CellType.STRING);
             c.setCellValue(headers.get(i));
             c.setCellStyle(headerStyle);
+
+            // жирный шрифт чуть шире
+            trackWidth(widths, i, estimateWidth(headers.get(i)) * 1.1);
         }
     }
 
-    /**
-     * Нормализация значений для Excel:
-     * - null/blank -> ""
-     * - "н/д", "-", "null" и похожие маркеры -> ""
-     * => "нет данных" всегда = пустая ячейка
-     */
-    private static String normalizeCellValue(String value) {
-        if (value == null) return "";
-        String v = value.trim();
-        if (v.isBlank()) return "";
-
-        String low = v.toLowerCase();
-
-        // русские
-        if (low.equals("н/д") || low.equals("н.д") || low.equals("нет данных")) return "";
+    // =========================================================
+    // ширина колонок без autoSizeColumn
+    // =========================================================
 
-        // англ / частые маркеры
-        if (low.equals("null") || low.equals("none") || low.equals("undefined")) return "";
+    private static void trackWidth(int[] widths, int col, double chars) {
+        int w = (int) Math.min(MAX_COLUMN_WIDTH, Math.ceil((chars + 1) * 256));
+        if (w > widths[col]) widths[col] = w;
+    }
 
-        // прочие заглушки
-        if (v.equals("-") || v.equals("—")) return "";
+    /**
+     * Примерная ширина текста в «символах» стандартного шрифта (Calibri 11).
+     * autoSizeColumn меряет каждую ячейку через AWT — на больших листах это минуты,
+     * а в SXSSF сброшенных строк уже нет. Поэтому считаем по символам с весами:
+     * кириллица заметно шире латиницы/цифр, пробелы и точки — уже.
+     * Для многострочных значений берём самую длинную строку.
+     */
+    static double estimateWidth(String v) {
+        double max = 0;
+        double line = 0;
+        for (int i = 0; i < v.length(); i++) {
+            char ch = v.charAt(i);
+            if (ch == '\n') {
+                max = Math.max(max, line);
+                line = 0;
+                continue;
+            }
+            line += charWidth(ch);
+        }
+        return Math.max(max, line);
+    }
 
-        return v;
+    private static double charWidth(char ch) {
+        if (ch >= '\u0400' && ch <= '\u04FF') {
+            return Character.isUpperCase(ch) ? 1.3 : 1.1;
+        }
+        if (ch == ' ' || ch == '.' || ch == ',' || ch == ':' || ch == ';' || ch == '\'' || ch == '|'
+                || ch == 'i' || ch == 'l' || ch == 'I' || ch == 'j' || ch == '!') {
+            return 0.5;
+        }
+        if (ch >= 'A' && ch <= 'Z') return 1.2;
+        return 1.0;
     }
 
     /**
      * Всегда создаём ячейку, даже если значение пустое.
      * И всегда нормализуем "нет данных" в пустое.
+     * col < 0 — колонка не выбрана, ячейки нет.
      */
-    private void setCell(Row row, int col, String value) {
+    private void setCell(Row row, int col, String value, int[] widths) {
+        if (col < 0) return;
+        String v = Cells.normalize(value);
         Cell cell = row.createCell(col, CellType.STRING);
         cell.setCellStyle(dataStyle);
-        cell.setCellValue(normalizeCellValue(value));
+        cell.setCellValue(v);
+        if (!v.isEmpty()) trackWidth(widths, col, estimateWidth(v));
     }
 
+    @Override
     public void appendLegal(LegalEntityRow x) {
+        ExcelWriteEvent ev = new ExcelWriteEvent();
+        ev.begin();
         Row r = legalSheet.createRow(legalRowIdx++);
         int c = 0;
-        setCell(r, c++, x.fullName);
-        setCell(r, c++, x.inn);
-        setCell(r, c++, x.ogrn);
-        setCell(r, c++, x.kpp);
-        setCell(r, c++, x.authorizedCapital);
-        setCell(r, c++, x.registrationDate);
-        setCell(r, c++, x.address);
-        setCell(r, c++, x.region);
-        setCell(r, c++, x.legalForm);
-        setCell(r, c++, x.okved);
-        setCell(r, c++, x.status);
-        setCell(r, c++, x.procedureType);
-        setCell(r, c++, x.caseNumber);
-        setCell(r, c++, x.caseStatus);
-        setCell(r, c++, x.caseEndDate);
-        setCell(r, c++, x.arbitrationManagerName);
-        setCell(r, c++, x.arbitrationManagerInn);
-        setCell(r, c++, x.managerAppointmentDate);
-        setCell(r, c++, x.publicationsCount);
-        setCell(r, c++, x.tradesCount);
-        setCell(r, c++, x.sourceUrl);
+        setCell(r, legalLayout[c++], x.fullName, legalWidths);
+        setCell(r, legalLayout[c++], x.inn, legalWidths);
+        setCell(r, legalLayout[c++], x.ogrn, legalWidths);
+        setCell(r, legalLayout[c++], x.kpp, legalWidths);
+        setCell(r, legalLayout[c++], x.authorizedCapital, legalWidths);
+        setCell(r, legalLayout[c++], x.registrationDate, legalWidths);
+        setCell(r, legalLayout[c++], x.address, legalWidths);
+        setCell(r, legalLayout[c++], x.region, legalWidths);
+        setCell(r, legalLayout[c++], x.legalForm, legalWidths);
+        setCell(r, legalLayout[c++], x.okved, legalWidths);
+        setCell(r, legalLayout[c++], x.status, legalWidths);
+        setCell(r, legalLayout[c++], x.procedureType, legalWidths);
+        setCell(r, legalLayout[c++], x.caseNumber, legalWidths);
+        setCell(r, legalLayout[c++], x.caseStatus, legalWidths);
+        setCell(r, legalLayout[c++], x.caseEndDate, legalWidths);
+        setCell(r, legalLayout[c++], x.arbitrationManagerName, legalWidths);
+        setCell(r, legalLayout[c++], x.arbitrationManagerInn, legalWidths);
+        setCell(r, legalLayout[c++], x.managerAppointmentDate, legalWidths);
+        setCell(r, legalLayout[c++], x.publicationsCount, legalWidths);
+        setCell(r, legalLayout[c++], x.tradesCount, legalWidths);
+        setCell(r, legalLayout[c++], x.sourceUrl, legalWidths);
+        commitAppend(ev, Sheets.LEGAL, r.getRowNum());
     }
 
+    @Override
     public void appendPhysical(PhysicalPersonRow x) {
+        ExcelWriteEvent ev = new ExcelWriteEvent();
+        ev.begin();
         Row r = physicalSheet.createRow(physicalRowIdx++);
         int c = 0;
-        setCell(r, c++, x.fullName);
-        setCell(r, c++, x.previousFullName);
-        setCell(r, c++, x.inn);
-        setCell(r, c++, x.snils);
-        setCell(r, c++, x.birthDate);
-        setCell(r, c++, x.birthPlace);
-        setCell(r, c++, x.residenceAddress);
-        setCell(r, c++, x.region);
-        setCell(r, c++, x.entrepreneurOgrnip);
-        setCell(r, c++, x.entrepreneurStatus);
-        setCell(r, c++, x.okved);
-        setCell(r, c++, x.registrationDate);
-        setCell(r, c++, x.terminationDate);
-        setCell(r, c++, x.bankruptcyStatus);
-        setCell(r, c++, x.procedureType);
-        setCell(r, c++, x.caseNumber);
-        setCell(r, c++, x.arbitrationManagerName);
-        setCell(r, c++, x.sourceUrl);
+        setCell(r, physicalLayout[c++], x.fullName, physicalWidths);
+        setCell(r, physicalLayout[c++], x.previousFullName, physicalWidths);
+        setCell(r, physicalLayout[c++], x.inn, physicalWidths);
+        setCell(r, physicalLayout[c++], x.snils, physicalWidths);
+        setCell(r, physicalLayout[c++], x.birthDate, physicalWidths);
+        setCell(r, physicalLayout[c++], x.birthPlace, physicalWidths);
+        setCell(r, physicalLayout[c++], x.residenceAddress, physicalWidths);
+        setCell(r, physicalLayout[c++], x.region, physicalWidths);
+        setCell(r, physicalLayout[c++], x.entrepreneurOgrnip, physicalWidths);
+        setCell(r, physicalLayout[c++], x.entrepreneurStatus, physicalWidths);
+        setCell(r, physicalLayout[c++], x.okved, physicalWidths);
+        setCell(r, physicalLayout[c++], x.registrationDate, physicalWidths);
+        setCell(r, physicalLayout[c++], x.terminationDate, physicalWidths);
+        setCell(r, physicalLayout[c++], x.bankruptcyStatus, physicalWidths);
+        setCell(r, physicalLayout[c++], x.procedureType, physicalWidths);
+        setCell(r, physicalLayout[c++], x.caseNumber, physicalWidths);
+        setCell(r, physicalLayout[c++], x.arbitrationManagerName, physicalWidths);
+        setCell(r, physicalLayout[c++], x.sourceUrl, physicalWidths);
+        commitAppend(ev, Sheets.PHYSICAL, r.getRowNum());
+    }
+
+    /** Строка row колоночной таблицы юрлиц (Rows.legalTable) — без промежуточного LegalEntityRow. */
+    public void appendLegal(RowTable table, int row) {
+        ExcelWriteEvent ev = new ExcelWriteEvent();
+        ev.begin();
+        Row r = legalSheet.createRow(legalRowIdx++);
+        appendFrom(r, table, row, legalLayout, legalWidths);
+        commitAppend(ev, Sheets.LEGAL, r.getRowNum());
     }
 
+    /** Строка row колоночной таблицы физлиц (Rows.physicalTable). */
+    public void appendPhysical(RowTable table, int row) {
+        ExcelWriteEvent ev = new ExcelWriteEvent();
+        ev.begin();
+        Row r = physicalSheet.createRow(physicalRowIdx++);
+        appendFrom(r, table, row, physicalLayout, physicalWidths);
+        commitAppend(ev, Sheets.PHYSICAL, r.getRowNum());
+    }
+
+    // колонки таблицы — в порядке колонок листа (см. Rows), guid последним — в лист не идёт
+    private void appendFrom(Row r, RowTable table, int row, int[] layout, int[] widths) {
+        for (int c = 0; c < layout.length; c++) {
+            if (layout[c] >= 0) setCell(r, layout[c], table.get(row, c), widths);
+        }
+    }
+
+    private static void commitAppend(ExcelWriteEvent ev, String sheet, int row) {
+        ev.end();
+        if (ev.shouldCommit()) {
+            ev.operation = "append";
+            ev.sheet = sheet;
+            ev.row = row;
+            ev.commit();
+        }
+    }
+
+    /** Проставляет ширины колонок, накопленные при записи (один раз, перед сохранением). */
     public void autosizeAll() {
-        autosize(legalSheet, Sheets.LEGAL_HEADERS.size());
-        autosize(physicalSheet, Sheets.PHYSICAL_HEADERS.size());
+        applyWidths(legalSheet, legalWidths);
+        applyWidths(physicalSheet, physicalWidths);
     }
 
-    private void autosize(Sheet sheet, int columns) {
-        for (int i = 0; i < columns; i++) {
-            sheet.autoSizeColumn(i);
-            int width = sheet.getColumnWidth(i);
-            int max = 255 * 256;
-            if (width > max) sheet.setColumnWidth(i, max);
+    private static void applyWidths(Sheet sheet, int[] widths) {
+        for (int i = 0; i < widths.length; i++) {
+            sheet.setColumnWidth(i, Math.min(widths[i], MAX_COLUMN_WIDTH));
         }
     }
 
     /** Надежная запись: temp -> move */
     public void saveAtomic(Path target) throws IOException {
+        ExcelWriteEvent ev = new ExcelWriteEvent();
+        ev.begin();
+        try {
+            writeAtomic(target);
+        } finally {
+            ev.end();
+            if (ev.shouldCommit()) {
+                ev.operation = "save";
+                ev.file = target.toString();
+                ev.row = legalRowIdx + physicalRowIdx - 2;
+                ev.commit();
+            }
+        }
+    }
+
+    /** RowSink: сохраняет в target из конструктора. */
+    @Override
+    public void finish() throws IOException {
+        if (target == null) throw new IllegalStateException("ExcelExporter: no target path, use saveAtomic(path)");
+        saveAtomic(target);
+    }
+
+    private void writeAtomic(Path target) throws IOException {
         autosizeAll();
+        if (skipEmptySheets) {
+            if (legalRowIdx == 1 && physicalRowIdx > 1) removeSheet(legalSheet);
+            if (physicalRowIdx == 1 && legalRowIdx > 1) removeSheet(physicalSheet);
+        }
 
         Path parent = target.getParent();
         if (parent == null) parent = Path.of(".");
@@ -214,8 +371,15 @@ public class ExcelExporter implements AutoCloseable {
         Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
     }
 
+    private void removeSheet(Sheet sheet) {
+        int idx = wb.getSheetIndex(sheet);
+        if (idx >= 0) wb.removeSheetAt(idx);
+    }
+
     @Override
     public void close() throws IOException {
+        // SXSSF: удаляем временные файлы сброшенных строк
+        if (wb instanceof SXSSFWorkbook s) s.dispose();
         wb.close();
     }
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.ain.bankrot.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR: одна HTTP-попытка ApiClient (после ожидания лимитера и permit'а хоста — только сам обмен и чтение тела).
+ * Повторы после 429/503/обрыва — отдельные события с attempt 2, 3, ...
+ */
+@Name("com.ain.bankrot.ApiCall")
+@Label("API Call")
+@Category({"Bankrot", "HTTP"})
+@Description("One HTTP attempt of ApiClient")
+@StackTrace(false)
+public final class ApiCallEvent extends jdk.jfr.Event {
+
+    @Label("Host")
+    public String host;
+
+    @Label("Path")
+    public String path;
+
+    @Label("Endpoint")
+    public String endpoint;
+
+    @Label("Attempt")
+    public int attempt;
+
+    @Label("Status Code")
+    @Description("-1 — сетевая ошибка, ответа нет")
+    public int code;
+}
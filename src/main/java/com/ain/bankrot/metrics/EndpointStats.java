@@ -0,0 +1,129 @@
+package com.ain.bankrot.metrics;
+
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Статистика HTTP-вызовов одного семейства эндпоинтов (FedresursEndpoints.Family).
+ * Вызов = один get / getJson / getListPage ApiClient целиком, со всеми повторами и ожиданиями.
+ */
+public final class EndpointStats implements EndpointStatsMBean {
+
+    static final int IO_ERROR = -1;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder rateLimitWaitNanos = new LongAdder();
+    private final LongAdder backoffNanos = new LongAdder();
+    private final Map<Integer, LongAdder> statuses = new ConcurrentSkipListMap<>();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    // ---------------- запись (ApiClient) ----------------
+
+    /** Вызов завершён (из сети): полное время, включая повторы и паузы. ok=false — так и не дождались ответа. */
+    public void call(long nanos, boolean ok) {
+        calls.increment();
+        if (!ok) failed.increment();
+        latency.record(nanos);
+    }
+
+    public void cacheHit() {
+        cacheHits.increment();
+    }
+
+    /** Одна HTTP-попытка с кодом ответа. */
+    public void attempt(int code) {
+        attempts.increment();
+        statuses.computeIfAbsent(code, k -> new LongAdder()).increment();
+    }
+
+    /** Попытка оборвалась сетевой ошибкой. */
+    public void ioError() {
+        attempt(IO_ERROR);
+    }
+
+    public void bytes(long n) {
+        if (n > 0) bytes.add(n);
+    }
+
+    public void rateLimitWait(long nanos) {
+        rateLimitWaitNanos.add(nanos);
+    }
+
+    public void backoff(long nanos) {
+        backoffNanos.add(nanos);
+    }
+
+    // ---------------- чтение ----------------
+
+    LatencyHistogram latency() {
+        return latency;
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getAttempts() {
+        return attempts.sum();
+    }
+
+    @Override
+    public long getFailedCalls() {
+        return failed.sum();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return bytes.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latency.meanMillis();
+    }
+
+    @Override
+    public long getP50Millis() {
+        return latency.percentileMillis(0.50);
+    }
+
+    @Override
+    public long getP99Millis() {
+        return latency.percentileMillis(0.99);
+    }
+
+    @Override
+    public long getMaxMillis() {
+        return latency.maxMillis();
+    }
+
+    @Override
+    public long getRateLimitWaitMillis() {
+        return rateLimitWaitNanos.sum() / 1_000_000;
+    }
+
+    @Override
+    public long getBackoffMillis() {
+        return backoffNanos.sum() / 1_000_000;
+    }
+
+    @Override
+    public String getStatusCounts() {
+        StringJoiner j = new StringJoiner(", ");
+        statuses.forEach((code, n) -> j.add((code == IO_ERROR ? "IO" : String.valueOf(code)) + "=" + n.sum()));
+        return j.toString();
+    }
+}
@@ -0,0 +1,30 @@
+package com.ain.bankrot.metrics;
+
+/** JMX-вид статистики одного семейства эндпоинтов (com.ain.bankrot:type=Endpoint,name=...). */
+public interface EndpointStatsMBean {
+
+    long getCalls();
+
+    long getCacheHits();
+
+    long getAttempts();
+
+    long getFailedCalls();
+
+    long getBytesReceived();
+
+    double getMeanMillis();
+
+    long getP50Millis();
+
+    long getP99Millis();
+
+    long getMaxMillis();
+
+    long getRateLimitWaitMillis();
+
+    long getBackoffMillis();
+
+    /** Коды ответов по всем попыткам, например "200=950, 404=3, 429=12, IO=1". */
+    String getStatusCounts();
+}
@@ -0,0 +1,28 @@
+package com.ain.bankrot.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** JFR: запись в Excel — добавление строки на лист или сохранение файла. */
+@Name("com.ain.bankrot.ExcelWrite")
+@Label("Excel Write")
+@Category({"Bankrot", "Excel"})
+@StackTrace(false)
+public final class ExcelWriteEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    public String operation;   // append / save
+
+    @Label("Sheet")
+    public String sheet;
+
+    @Label("Row")
+    @Description("append — номер строки на листе, save — всего строк данных")
+    public int row;
+
+    @Label("File")
+    public String file;
+}
@@ -0,0 +1,59 @@
+package com.ain.bankrot.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Гистограмма длительностей с корзинами по степеням двойки (мс): <1, 1–2, 2–4, ... , ≥2^(BUCKETS-2).
+ * Без блокировок, пишут все потоки; перцентиль — верхняя граница корзины (точность ×2, для сводки хватает).
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKETS = 22;   // до ~35 минут
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        long ms = nanos / 1_000_000;
+        int idx = ms == 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(ms));
+        buckets.incrementAndGet(idx);
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long totalMillis() {
+        return totalNanos.sum() / 1_000_000;
+    }
+
+    public double meanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+    }
+
+    public long maxMillis() {
+        return maxNanos.get() / 1_000_000;
+    }
+
+    /** p в [0..1] → верхняя граница корзины, куда попал перцентиль (мс). */
+    public long percentileMillis(double p) {
+        long n = count.sum();
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(p * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) return Math.min(1L << i, Math.max(1, maxMillis()));
+        }
+        return maxMillis();
+    }
+}
@@ -0,0 +1,117 @@
+package com.ain.bankrot.metrics;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Метрики прогона: HTTP по семействам эндпоинтов и стадии сборки строк.
+ *
+ * Реестр общий на процесс (как RateLimiter.forHost); каждая запись сразу видна в JMX
+ * (jconsole / VisualVM → MBeans → com.ain.bankrot), а в конце прогона Main печатает сводку.
+ */
+public final class Metrics {
+
+    private static final String DOMAIN = "com.ain.bankrot";
+
+    private static final Map<String, EndpointStats> ENDPOINTS = new ConcurrentSkipListMap<>();
+    private static final Map<String, StageStats> STAGES = new ConcurrentSkipListMap<>();
+
+    private Metrics() {}
+
+    public static EndpointStats endpoint(String family) {
+        return ENDPOINTS.computeIfAbsent(family, f -> register(new EndpointStats(), "Endpoint", f));
+    }
+
+    public static StageStats stage(String name) {
+        return STAGES.computeIfAbsent(name, n -> register(new StageStats(), "Stage", n));
+    }
+
+    /** Выполняет call и записывает его время в стадию name (ошибка тоже считается). */
+    public static <T> T time(String stage, Callable<T> call) throws Exception {
+        StageStats st = stage(stage);
+        long t0 = System.nanoTime();
+        boolean ok = false;
+        try {
+            T result = call.call();
+            ok = true;
+            return result;
+        } finally {
+            st.record(System.nanoTime() - t0, ok);
+        }
+    }
+
+    private static <T> T register(T mbean, String type, String name) {
+        try {
+            ObjectName on = new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+            var server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(on)) server.registerMBean(mbean, on);
+        } catch (JMException | SecurityException ignore) {
+            // без JMX метрики всё равно копятся и печатаются в сводке
+        }
+        return mbean;
+    }
+
+    // =========================================================
+    // summary
+    // =========================================================
+
+    /**
+     * Сводка прогона: по эндпоинтам — сколько вызовов, доля времени, паузы лимитера и backoff;
+     * по стадиям — время сборки строк.
+     *
+     * @param wallMillis длительность прогона — от неё считаются доли (потоков много, сумма может быть >100%)
+     */
+    public static void printSummary(PrintStream out, long wallMillis) {
+        out.print(summary(wallMillis));
+        out.flush();
+    }
+
+    /** То же, что printSummary, текстом — для лога. */
+    public static String summary(long wallMillis) {
+        StringWriter sw = new StringWriter();
+        writeSummary(new PrintWriter(sw), wallMillis);
+        return sw.toString();
+    }
+
+    private static void writeSummary(PrintWriter out, long wallMillis) {
+        long wall = Math.max(1, wallMillis);
+
+        out.println();
+        out.printf("=== HTTP by endpoint (wall %.1f s) ===%n", wall / 1000.0);
+        out.printf("%-22s %7s %6s %7s %5s %8s %7s %7s %7s %9s %9s %9s  %s%n",
+                "endpoint", "calls", "cache", "tries", "fail", "mean ms", "p50", "p99", "wall%", "wait s", "backoff s", "KB", "codes");
+        long totalWait = 0;
+        long totalBackoff = 0;
+        for (Map.Entry<String, EndpointStats> e : ENDPOINTS.entrySet()) {
+            EndpointStats s = e.getValue();
+            totalWait += s.getRateLimitWaitMillis();
+            totalBackoff += s.getBackoffMillis();
+            out.printf("%-22s %7d %6d %7d %5d %8.1f %7d %7d %6.1f%% %9.1f %9.1f %9d  %s%n",
+                    e.getKey(), s.getCalls(), s.getCacheHits(), s.getAttempts(), s.getFailedCalls(),
+                    s.getMeanMillis(), s.getP50Millis(), s.getP99Millis(),
+                    100.0 * s.latency().totalMillis() / wall,
+                    s.getRateLimitWaitMillis() / 1000.0, s.getBackoffMillis() / 1000.0,
+                    s.getBytesReceived() / 1024, s.getStatusCounts());
+        }
+        out.printf("waiting for rate limiter: %.1f s, sleeping in backoff: %.1f s (summed over threads)%n",
+                totalWait / 1000.0, totalBackoff / 1000.0);
+
+        out.println();
+        out.println("=== Row build stages ===");
+        out.printf("%-26s %7s %5s %8s %7s %7s %7s %9s%n", "stage", "count", "err", "mean ms", "p50", "p99", "max", "total s");
+        for (Map.Entry<String, StageStats> e : STAGES.entrySet()) {
+            StageStats s = e.getValue();
+            out.printf("%-26s %7d %5d %8.1f %7d %7d %7d %9.1f%n",
+                    e.getKey(), s.getCount(), s.getErrors(), s.getMeanMillis(),
+                    s.getP50Millis(), s.getP99Millis(), s.getMaxMillis(), s.getTotalMillis() / 1000.0);
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,27 @@
+package com.ain.bankrot.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** JFR: сборка одной строки должника (buildFromListItem) — от элемента списка до готовой строки. */
+@Name("com.ain.bankrot.RowBuild")
+@Label("Row Build")
+@Category({"Bankrot", "Rows"})
+@Description("LegalRowBuilder / PersonRowBuilder buildFromListItem")
+@StackTrace(false)
+public final class RowBuildEvent extends jdk.jfr.Event {
+
+    @Label("Guid")
+    public String guid;
+
+    @Label("Entity Type")
+    @Description("LEGAL или PERSON")
+    public String entityType;
+
+    @Label("Sub-calls")
+    @Description("Сколько запросов к fedresurs.ru сделано для строки")
+    public int subCalls;
+}
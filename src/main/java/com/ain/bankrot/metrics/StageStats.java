@@ -0,0 +1,54 @@
+package com.ain.bankrot.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Время одной стадии сборки строки (карточка, счётчики, маппинг ...). */
+public final class StageStats implements StageStatsMBean {
+
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    public void record(long nanos, boolean ok) {
+        latency.record(nanos);
+        if (!ok) errors.increment();
+    }
+
+    LatencyHistogram latency() {
+        return latency;
+    }
+
+    @Override
+    public long getCount() {
+        return latency.count();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getTotalMillis() {
+        return latency.totalMillis();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latency.meanMillis();
+    }
+
+    @Override
+    public long getP50Millis() {
+        return latency.percentileMillis(0.50);
+    }
+
+    @Override
+    public long getP99Millis() {
+        return latency.percentileMillis(0.99);
+    }
+
+    @Override
+    public long getMaxMillis() {
+        return latency.maxMillis();
+    }
+}
@@ -0,0 +1,19 @@
+package com.ain.bankrot.metrics;
+
+/** JMX-вид одной стадии сборки строки (com.ain.bankrot:type=Stage,name=...). */
+public interface StageStatsMBean {
+
+    long getCount();
+
+    long getErrors();
+
+    long getTotalMillis();
+
+    double getMeanMillis();
+
+    long getP50Millis();
+
+    long getP99Millis();
+
+    long getMaxMillis();
+}
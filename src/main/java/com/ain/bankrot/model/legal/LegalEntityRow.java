@@ -1,6 +1,7 @@
 package com.ain.bankrot.model.legal;
 
 public class LegalEntityRow {
+    public String guid = "";   // guid должника в bankrot — ключ строки (в листы Excel не выгружается)
     public String fullName = "";
     public String inn = "";
     public String ogrn = "";
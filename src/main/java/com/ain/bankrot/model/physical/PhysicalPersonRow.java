@@ -1,6 +1,7 @@
 package com.ain.bankrot.model.physical;
 
 public class PhysicalPersonRow {
+    public String guid = "";   // guid должника в bankrot — ключ строки (в листы Excel не выгружается)
     public String fullName = "";
     public String previousFullName = "";
     public String inn = "";
@@ -0,0 +1,31 @@
+package com.ain.bankrot.output;
+
+/** Значения ячеек одинаково для всех форматов выгрузки. */
+public final class Cells {
+    private Cells() {}
+
+    /**
+     * Нормализация значений:
+     * - null/blank -> ""
+     * - "н/д", "-", "null" и похожие маркеры -> ""
+     * => "нет данных" всегда = пустая ячейка
+     */
+    public static String normalize(String value) {
+        if (value == null) return "";
+        String v = value.trim();
+        if (v.isBlank()) return "";
+
+        String low = v.toLowerCase();
+
+        // русские
+        if (low.equals("н/д") || low.equals("н.д") || low.equals("нет данных")) return "";
+
+        // англ / частые маркеры
+        if (low.equals("null") || low.equals("none") || low.equals("undefined")) return "";
+
+        // прочие заглушки
+        if (v.equals("-") || v.equals("—")) return "";
+
+        return v;
+    }
+}
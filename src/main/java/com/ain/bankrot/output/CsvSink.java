@@ -0,0 +1,111 @@
+package com.ain.bankrot.output;
+
+import com.ain.bankrot.excel.ColumnSelection;
+import com.ain.bankrot.model.legal.LegalEntityRow;
+import com.ain.bankrot.model.physical.PhysicalPersonRow;
+import com.ain.bankrot.store.Rows;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * CSV (RFC 4180): по файлу на лист, первая строка — заголовки выбранных колонок, разделитель ',',
+ * UTF-8 без BOM, строки через '\n'. Поле с ',', '"' или переводом строки берётся в кавычки.
+ * Значения нормализуются как в Excel (Cells.normalize): «нет данных» = пустое поле.
+ * Имя файла на .gz → файл сжимается gzip.
+ */
+public final class CsvSink implements RowSink {
+
+    private final LineChannel legal;
+    private final LineChannel physical;
+    private final int[] legalColumns;
+    private final int[] physicalColumns;
+
+    private final StringBuilder line = new StringBuilder(1024);
+
+    public CsvSink(Path legalFile, Path physicalFile, ColumnSelection columns) throws IOException {
+        this.legalColumns = columns.legalIndexes();
+        this.physicalColumns = columns.physicalIndexes();
+
+        this.legal = LineChannel.open(legalFile);
+        try {
+            this.physical = LineChannel.open(physicalFile);
+        } catch (IOException e) {
+            legal.close();
+            throw e;
+        }
+
+        writeHeader(legal, columns.legalHeaders());
+        writeHeader(physical, columns.physicalHeaders());
+    }
+
+    @Override
+    public void appendLegal(LegalEntityRow row) throws IOException {
+        writeRow(legal, Rows.cells(row), legalColumns);
+    }
+
+    @Override
+    public void appendPhysical(PhysicalPersonRow row) throws IOException {
+        writeRow(physical, Rows.cells(row), physicalColumns);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        legal.commit();
+        physical.commit();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            legal.close();
+        } finally {
+            physical.close();
+        }
+    }
+
+    // =========================================================
+    // internals
+    // =========================================================
+
+    private void writeHeader(LineChannel out, List<String> headers) throws IOException {
+        line.setLength(0);
+        for (int i = 0; i < headers.size(); i++) {
+            if (i > 0) line.append(',');
+            appendField(line, headers.get(i));
+        }
+        out.write(line.append('\n'));
+    }
+
+    private void writeRow(LineChannel out, String[] cells, int[] columns) throws IOException {
+        line.setLength(0);
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) line.append(',');
+            appendField(line, Cells.normalize(cells[columns[i]]));
+        }
+        out.write(line.append('\n'));
+    }
+
+    static void appendField(StringBuilder sb, String v) {
+        if (!needsQuotes(v)) {
+            sb.append(v);
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < v.length(); i++) {
+            char ch = v.charAt(i);
+            if (ch == '"') sb.append('"');
+            sb.append(ch);
+        }
+        sb.append('"');
+    }
+
+    private static boolean needsQuotes(String v) {
+        for (int i = 0; i < v.length(); i++) {
+            char ch = v.charAt(i);
+            if (ch == ',' || ch == '"' || ch == '\n' || ch == '\r') return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,288 @@
+package com.ain.bankrot.output;
+
+import com.ain.bankrot.excel.ColumnSelection;
+import com.ain.bankrot.model.legal.LegalEntityRow;
+import com.ain.bankrot.model.physical.PhysicalPersonRow;
+import com.ain.bankrot.store.Rows;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Встроенная файловая БД H2: таблицы legal_debtor / physical_debtor, строка на должника.
+ *
+ * Ключ — guid должника (нет guid → "inn:" + ИНН, нет и ИНН — строка пропускается). Строка с guid удаляет
+ * запасную "inn:"-строку того же ИНН — когда guid наконец приходит, дубликат не остаётся. Запись — MERGE ... KEY (guid)
+ * батчами prepared statement'ов, коммит раз в commitRows строк: ежедневные прогоны обновляют те же строки,
+ * новых копий не появляется. MERGE трогает только выбранные колонки (ColumnSelection) и updated_at —
+ * узкий прогон не затирает остальные колонки.
+ *
+ * Индексы: ИНН, ОГРН (у физлиц — ОГРНИП), номер дела. Значения — после Cells.normalize, «нет данных» → NULL,
+ * счётчики публикаций/торгов — INT.
+ *
+ * close без finish — незакоммиченный хвост откатывается (уже закоммиченное остаётся: upsert идемпотентен,
+ * повторный прогон его просто перезапишет).
+ */
+public final class H2Sink implements RowSink {
+    private static final Logger log = LoggerFactory.getLogger(H2Sink.class);
+
+    public static final int DEFAULT_BATCH = 1000;
+    public static final int DEFAULT_COMMIT_ROWS = 50_000;
+
+    // колонки таблиц — в порядке колонок листа (Sheets.LEGAL_HEADERS / PHYSICAL_HEADERS, см. Rows)
+    static final List<String> LEGAL_COLUMNS = List.of(
+            "full_name", "inn", "ogrn", "kpp", "authorized_capital", "registration_date", "address",
+            "region", "legal_form", "okved", "status", "procedure_type", "case_number", "case_status",
+            "case_end_date", "manager_name", "manager_inn", "manager_appointment_date",
+            "publications_count", "trades_count", "source_url");
+
+    static final List<String> PHYSICAL_COLUMNS = List.of(
+            "full_name", "previous_full_name", "inn", "snils", "birth_date", "birth_place", "residence_address",
+            "region", "ogrnip", "entrepreneur_status", "okved", "registration_date", "termination_date",
+            "bankruptcy_status", "procedure_type", "case_number", "manager_name", "source_url");
+
+    private static final String LEGAL_TABLE = "legal_debtor";
+    private static final String PHYSICAL_TABLE = "physical_debtor";
+    private static final String INN_KEY = "inn:";
+
+    private final Connection db;
+    private final Table legal;
+    private final Table physical;
+    private final int batchSize;
+    private final int commitRows;
+
+    private int uncommitted;
+    private long skipped;
+    private boolean finished;
+
+    /** @param dbFile файл БД без расширения (H2 допишет .mv.db); нет файла — создаётся со схемой */
+    public H2Sink(Path dbFile, ColumnSelection columns, int batchSize, int commitRows) throws IOException {
+        this.batchSize = Math.max(1, batchSize);
+        this.commitRows = Math.max(this.batchSize, commitRows);
+
+        Path abs = dbFile.toAbsolutePath();
+        Files.createDirectories(abs.getParent());
+
+        Connection c = null;
+        try {
+            c = DriverManager.getConnection("jdbc:h2:file:" + abs);
+            createSchema(c);
+            c.setAutoCommit(false);
+
+            this.legal = new Table(c, LEGAL_TABLE, LEGAL_COLUMNS, columns.legalIndexes(), "publications_count", "trades_count");
+            this.physical = new Table(c, PHYSICAL_TABLE, PHYSICAL_COLUMNS, columns.physicalIndexes());
+            this.db = c;
+        } catch (SQLException e) {
+            if (c != null) {
+                try {
+                    c.close();
+                } catch (SQLException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw new IOException("H2 open failed: " + abs + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void appendLegal(LegalEntityRow row) throws IOException {
+        append(legal, Rows.cells(row), row.guid, row.inn);
+    }
+
+    @Override
+    public void appendPhysical(PhysicalPersonRow row) throws IOException {
+        append(physical, Rows.cells(row), row.guid, row.inn);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        try {
+            legal.flush();
+            physical.flush();
+            db.commit();
+            uncommitted = 0;
+            finished = true;
+        } catch (SQLException e) {
+            throw new IOException("H2 commit failed: " + e.getMessage(), e);
+        }
+        log.info("H2 upserted legal={} persons={} (skipped without guid/inn: {})", legal.rows, physical.rows, skipped);
+    }
+
+    @Override
+    public void close() throws IOException {
+        SQLException error = null;
+        try {
+            if (!finished) db.rollback();
+        } catch (SQLException e) {
+            error = e;
+        }
+        // закрываются в обратном порядке (physical, legal, db) — каждый, даже если предыдущий бросил
+        try (Connection c = db; Table l = legal; Table p = physical) {
+            // только закрыть
+        } catch (SQLException e) {
+            if (error == null) error = e;
+            else error.addSuppressed(e);
+        }
+        if (error != null) throw new IOException("H2 close failed: " + error.getMessage(), error);
+    }
+
+    // =========================================================
+    // internals
+    // =========================================================
+
+    private void append(Table t, String[] cells, String guid, String inn) throws IOException {
+        String key = key(guid, inn);
+        if (key == null) {
+            skipped++;
+            return;
+        }
+        try {
+            t.add(key, cells);
+            if (!key.startsWith(INN_KEY)) {
+                String i = Cells.normalize(inn);
+                if (!i.isEmpty()) t.dropInnKey(INN_KEY + i);
+            }
+            if (t.pending >= batchSize) t.flush();
+            if (++uncommitted >= commitRows) {
+                legal.flush();
+                physical.flush();
+                db.commit();
+                uncommitted = 0;
+            }
+        } catch (SQLException e) {
+            throw new IOException("H2 upsert into " + t.name + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static String key(String guid, String inn) {
+        String g = Cells.normalize(guid);
+        if (!g.isEmpty()) return g;
+        String i = Cells.normalize(inn);
+        return i.isEmpty() ? null : INN_KEY + i;
+    }
+
+    private static void createSchema(Connection c) throws SQLException {
+        try (Statement st = c.createStatement()) {
+            st.execute(ddl(LEGAL_TABLE, LEGAL_COLUMNS, "publications_count", "trades_count"));
+            st.execute(ddl(PHYSICAL_TABLE, PHYSICAL_COLUMNS));
+            index(st, LEGAL_TABLE, "inn");
+            index(st, LEGAL_TABLE, "ogrn");
+            index(st, LEGAL_TABLE, "case_number");
+            index(st, PHYSICAL_TABLE, "inn");
+            index(st, PHYSICAL_TABLE, "ogrnip");
+            index(st, PHYSICAL_TABLE, "case_number");
+        }
+    }
+
+    private static String ddl(String table, List<String> columns, String... intColumns) {
+        StringBuilder sb = new StringBuilder("CREATE TABLE IF NOT EXISTS ").append(table)
+                .append(" (guid VARCHAR(64) PRIMARY KEY");
+        for (String col : columns) {
+            sb.append(", ").append(col).append(List.of(intColumns).contains(col) ? " INT" : " VARCHAR");
+        }
+        return sb.append(", updated_at TIMESTAMP NOT NULL)").toString();
+    }
+
+    private static void index(Statement st, String table, String column) throws SQLException {
+        st.execute("CREATE INDEX IF NOT EXISTS " + table + "_" + column + " ON " + table + " (" + column + ")");
+    }
+
+    /**
+     * MERGE одной таблицы: выбранные колонки + updated_at, батч копится в statement.
+     * DELETE запасных "inn:"-строк — своим батчем, выполняется после MERGE (в том же батче мог быть и сам "inn:"-ключ).
+     */
+    private static final class Table implements AutoCloseable {
+        final String name;
+        final PreparedStatement statement;
+        final PreparedStatement delete;
+        final int[] columns;       // номера колонок листа, в порядке параметров
+        final boolean[] integer;   // параметр — INT-колонка
+        int pending;
+        long rows;
+
+        Table(Connection c, String name, List<String> all, int[] selected, String... intColumns) throws SQLException {
+            this.name = name;
+            this.columns = selected;
+            this.integer = new boolean[selected.length];
+
+            List<String> names = new ArrayList<>(selected.length);
+            for (int i = 0; i < selected.length; i++) {
+                String col = all.get(selected[i]);
+                names.add(col);
+                integer[i] = List.of(intColumns).contains(col);
+            }
+
+            StringBuilder sql = new StringBuilder("MERGE INTO ").append(name).append(" (guid");
+            for (String col : names) sql.append(", ").append(col);
+            sql.append(", updated_at) KEY (guid) VALUES (?");
+            for (int i = 0; i < names.size(); i++) sql.append(", ?");
+            sql.append(", CURRENT_TIMESTAMP)");
+
+            this.statement = c.prepareStatement(sql.toString());
+            try {
+                this.delete = c.prepareStatement("DELETE FROM " + name + " WHERE guid = ?");
+            } catch (SQLException e) {
+                statement.close();
+                throw e;
+            }
+        }
+
+        void dropInnKey(String key) throws SQLException {
+            delete.setString(1, key);
+            delete.addBatch();
+        }
+
+        void add(String key, String[] cells) throws SQLException {
+            statement.setString(1, key);
+            for (int i = 0; i < columns.length; i++) {
+                String v = Cells.normalize(cells[columns[i]]);
+                int p = i + 2;
+                if (integer[i]) {
+                    Integer n = parseCount(v);
+                    if (n == null) statement.setNull(p, Types.INTEGER);
+                    else statement.setInt(p, n);
+                } else if (v.isEmpty()) {
+                    statement.setNull(p, Types.VARCHAR);
+                } else {
+                    statement.setString(p, v);
+                }
+            }
+            statement.addBatch();
+            pending++;
+            rows++;
+        }
+
+        void flush() throws SQLException {
+            if (pending == 0) return;
+            statement.executeBatch();
+            delete.executeBatch();
+            pending = 0;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try (PreparedStatement m = statement; PreparedStatement d = delete) {
+                // только закрыть
+            }
+        }
+
+        private static Integer parseCount(String v) {
+            if (v.isEmpty() || v.length() > 9) return null;
+            for (int i = 0; i < v.length(); i++) {
+                if (!Character.isDigit(v.charAt(i))) return null;
+            }
+            return Integer.parseInt(v);
+        }
+    }
+}
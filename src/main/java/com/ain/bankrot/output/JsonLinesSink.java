@@ -0,0 +1,113 @@
+package com.ain.bankrot.output;
+
+import com.ain.bankrot.excel.ColumnSelection;
+import com.ain.bankrot.model.legal.LegalEntityRow;
+import com.ain.bankrot.model.physical.PhysicalPersonRow;
+import com.ain.bankrot.store.Rows;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * JSON Lines: один файл на оба листа, объект на строку.
+ *
+ *   {"type":"legal","guid":"...","Полное наименование":"ООО ...","ИНН":"7701...",...}
+ *   {"type":"physical","guid":"...","ФИО":"...",...}
+ *
+ * guid — guid должника в bankrot (ключ для загрузки/upsert). Остальные ключи — заголовки выбранных
+ * колонок листа (как в Excel/CSV), значения — строки после Cells.normalize, «нет данных» → null.
+ * Имя файла на .gz → файл сжимается gzip.
+ *
+ * Строку пишет JsonGenerator Jackson (разделитель корневых значений — '\n') в буфер, буфер целиком
+ * уходит в LineChannel: ключи экранируются один раз (SerializedString), отдельного экранирования нет.
+ */
+public final class JsonLinesSink implements RowSink {
+
+    private static final ObjectMapper OM = new ObjectMapper();
+    private static final SerializedString LINE_SEPARATOR = new SerializedString("\n");
+
+    private final LineChannel out;
+    private final int[] legalColumns;
+    private final int[] physicalColumns;
+
+    // заголовки выбранных колонок — готовые ключи
+    private final SerializableString[] legalKeys;
+    private final SerializableString[] physicalKeys;
+
+    // генератор пишет строку в buf; после строки buf уходит в out и очищается
+    private final StringWriter buf = new StringWriter(2048);
+    private final JsonGenerator json;
+    private boolean any;
+
+    public JsonLinesSink(Path file, ColumnSelection columns) throws IOException {
+        this.legalColumns = columns.legalIndexes();
+        this.physicalColumns = columns.physicalIndexes();
+        this.legalKeys = keys(columns.legalHeaders());
+        this.physicalKeys = keys(columns.physicalHeaders());
+        this.json = OM.getFactory().createGenerator(buf).setRootValueSeparator(LINE_SEPARATOR);
+        this.out = LineChannel.open(file);
+    }
+
+    @Override
+    public void appendLegal(LegalEntityRow row) throws IOException {
+        writeRow("legal", row.guid, legalKeys, Rows.cells(row), legalColumns);
+    }
+
+    @Override
+    public void appendPhysical(PhysicalPersonRow row) throws IOException {
+        writeRow("physical", row.guid, physicalKeys, Rows.cells(row), physicalColumns);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (any) out.write("\n");   // разделитель стоит перед строкой — последнюю завершаем сами
+        out.commit();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            json.close();
+        } finally {
+            out.close();
+        }
+    }
+
+    // =========================================================
+    // internals
+    // =========================================================
+
+    private void writeRow(String type, String guid, SerializableString[] keys, String[] cells, int[] columns)
+            throws IOException {
+        json.writeStartObject();
+        json.writeStringField("type", type);
+        json.writeFieldName("guid");
+        if (guid == null || guid.isBlank()) json.writeNull();
+        else json.writeString(guid);
+        for (int i = 0; i < columns.length; i++) {
+            json.writeFieldName(keys[i]);
+            String v = Cells.normalize(cells[columns[i]]);
+            if (v.isEmpty()) json.writeNull();
+            else json.writeString(v);
+        }
+        json.writeEndObject();
+        json.flush();
+
+        StringBuffer line = buf.getBuffer();
+        out.write(line);
+        line.setLength(0);
+        any = true;
+    }
+
+    private static SerializableString[] keys(List<String> headers) {
+        SerializableString[] out = new SerializableString[headers.size()];
+        for (int i = 0; i < out.length; i++) out[i] = new SerializedString(headers.get(i));
+        return out;
+    }
+}
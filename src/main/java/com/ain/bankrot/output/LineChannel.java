@@ -0,0 +1,133 @@
+package com.ain.bankrot.output;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Текстовый файл построчно через FileChannel: UTF-8 кодируется прямо в большой direct-буфер (1 МБ),
+ * в канал уходят целые буферы. Имя на .gz → поток сжимается gzip.
+ *
+ * Пишется во временный файл рядом; commit — дописать и переименовать (ATOMIC_MOVE),
+ * close без commit — временный файл удаляется, а нативная память Deflater'а освобождается сразу
+ * (иначе она висела бы до финализации GZIPOutputStream).
+ */
+final class LineChannel implements Closeable {
+
+    private static final int BUFFER = 1 << 20;
+
+    private final Path target;
+    private final Path tmp;
+    private final FileChannel file;
+    private final Gzip gzip;
+    private final WritableByteChannel out;
+
+    private final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER);
+    private final CharsetEncoder utf8 = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private boolean closed;
+
+    private LineChannel(Path target) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+
+        this.target = target;
+        this.tmp = parent.resolve(target.getFileName().toString() + ".tmp");
+        this.file = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+
+        if (target.getFileName().toString().endsWith(".gz")) {
+            try {
+                this.gzip = new Gzip(Channels.newOutputStream(file));
+            } catch (IOException | RuntimeException e) {
+                file.close();
+                Files.deleteIfExists(tmp);
+                throw e;
+            }
+            this.out = Channels.newChannel(gzip);
+        } else {
+            this.gzip = null;
+            this.out = file;
+        }
+    }
+
+    /** GZIPOutputStream, у которого Deflater можно освободить без дописывания потока. */
+    private static final class Gzip extends GZIPOutputStream {
+        Gzip(OutputStream out) throws IOException {
+            super(out, 1 << 16);
+        }
+
+        void release() {
+            def.end();   // повторный end() безопасен
+        }
+    }
+
+    static LineChannel open(Path target) throws IOException {
+        return new LineChannel(target);
+    }
+
+    /** Дописывает текст (обычно целую строку вместе с '\n'). */
+    void write(CharSequence text) throws IOException {
+        CharBuffer in = CharBuffer.wrap(text);
+        utf8.reset();
+        while (true) {
+            CoderResult r = utf8.encode(in, buf, true);
+            if (r.isOverflow()) {
+                drain();
+                continue;
+            }
+            if (utf8.flush(buf).isOverflow()) {
+                drain();
+                continue;
+            }
+            return;
+        }
+    }
+
+    /** Всё записано: сбросить буферы, закрыть и опубликовать файл под своим именем. */
+    void commit() throws IOException {
+        drain();
+        if (gzip != null) gzip.close();   // дописывает трейлер gzip и закрывает канал файла
+        else file.force(false);
+        file.close();
+        closed = true;
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            if (gzip != null) gzip.release();   // файл всё равно удаляем — трейлер gzip не нужен
+        } finally {
+            try {
+                file.close();
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    private void drain() throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) out.write(buf);
+        buf.clear();
+    }
+}
@@ -0,0 +1,375 @@
+package com.ain.bankrot.output;
+
+import com.ain.bankrot.excel.ColumnSelection;
+import com.ain.bankrot.excel.ExcelExporter;
+import com.ain.bankrot.model.legal.LegalEntityRow;
+import com.ain.bankrot.model.physical.PhysicalPersonRow;
+import com.ain.bankrot.store.RowTable;
+import com.ain.bankrot.store.Rows;
+import com.ain.bankrot.util.Threads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Отдельная потоковая книга (SXSSF) на каждый регион: строки раскладываются по полю region,
+ * книги заполняются и сжимаются параллельно.
+ *
+ * У каждой книги свой последовательный поток записи — буфер строк, который разбирает общий пул
+ * из threads потоков (сколько ядер, столько книг пишется одновременно; регионов ~90, потоков на каждый не держим).
+ * Буфер — колоночные RowTable (регион, статусы, процедура, управляющий — int-коды словаря, ИНН/ОГРН — long),
+ * а не объекты строк; книга пишет ячейки прямо из таблицы (ExcelExporter.appendLegal(RowTable, row)).
+ * Вызывающий поток только добавляет строку в буфер; буферы ограничены MAX_PENDING строками на все книги,
+ * чтобы быстрый источник (например, --resume из журнала) не копил строки в памяти.
+ *
+ * Лист дошёл до maxRowsPerSheet → книга сохраняется и начинается следующая: Москва.xlsx, Москва_2.xlsx, ...
+ * Пустой лист в книгу не попадает (в регионе только юрлица → в книге один лист юрлиц).
+ * В finish дописываются открытые книги и index.csv (регион, файл, строк юрлиц, строк физлиц).
+ * Каждая книга сохраняется через temp → move; close без finish — недописанные книги выбрасываются
+ * (уже закрытые по лимиту остаются на диске).
+ */
+public final class RegionWorkbooksSink implements RowSink {
+    private static final Logger log = LoggerFactory.getLogger(RegionWorkbooksSink.class);
+
+    /** Предел строк листа xlsx (1 048 576) минус шапка. */
+    public static final int EXCEL_MAX_ROWS = 1_048_575;
+
+    static final String NO_REGION = "Без региона";
+
+    private static final int MAX_PENDING = 4096;
+    private static final int BUFFER_ROWS = 64;      // начальная ёмкость буфера региона (растёт по надобности)
+
+    private final Path dir;
+    private final ColumnSelection columns;
+    private final int rowWindow;
+    private final int maxRowsPerSheet;
+
+    private final ExecutorService pool;
+    private final Semaphore pending = new Semaphore(MAX_PENDING);
+    private final Map<String, Partition> partitions = new LinkedHashMap<>();   // только поток вызывающего
+
+    private volatile Throwable failure;
+
+    public RegionWorkbooksSink(Path dir, ColumnSelection columns, int rowWindow, int maxRowsPerSheet, int threads)
+            throws IOException {
+        this.dir = dir;
+        this.columns = columns;
+        this.rowWindow = rowWindow;
+        this.maxRowsPerSheet = Math.max(1, Math.min(maxRowsPerSheet, EXCEL_MAX_ROWS));
+        Files.createDirectories(dir);
+        this.pool = Executors.newFixedThreadPool(Math.max(1, threads), Threads.daemonFactory("xlsx-region"));
+    }
+
+    @Override
+    public void appendLegal(LegalEntityRow row) throws IOException {
+        partition(row.region).offer(row);
+    }
+
+    @Override
+    public void appendPhysical(PhysicalPersonRow row) throws IOException {
+        partition(row.region).offer(row);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        List<CompletableFuture<Void>> done = new ArrayList<>(partitions.size());
+        for (Partition p : partitions.values()) done.add(p.control(Control.FINISH));
+        awaitAll(done);
+        checkFailure();
+
+        writeIndex();
+        int files = 0;
+        for (Partition p : partitions.values()) files += p.files.size();
+        log.info("XLSX by region: {} regions, {} workbooks -> {}", partitions.size(), files, dir);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            List<CompletableFuture<Void>> closed = new ArrayList<>(partitions.size());
+            for (Partition p : partitions.values()) closed.add(p.control(Control.CLOSE));
+            awaitAll(closed);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // =========================================================
+    // internals
+    // =========================================================
+
+    private Partition partition(String region) throws IOException {
+        checkFailure();
+        String name = Cells.normalize(region);
+        if (name.isEmpty()) name = NO_REGION;
+        String stem = fileStem(name);
+        Partition p = partitions.get(stem.toLowerCase(Locale.ROOT));
+        if (p == null) {
+            p = new Partition(name, stem);
+            partitions.put(stem.toLowerCase(Locale.ROOT), p);
+        }
+        return p;
+    }
+
+    /** Имя региона → безопасное имя файла (буквы любых алфавитов, цифры, '-', остальное → '_'). */
+    static String fileStem(String region) {
+        StringBuilder sb = new StringBuilder(region.length());
+        for (int i = 0; i < region.length(); i++) {
+            char ch = region.charAt(i);
+            sb.append(Character.isLetterOrDigit(ch) || ch == '-' ? ch : '_');
+        }
+        String s = sb.toString().replaceAll("_+", "_");
+        if (s.length() > 100) s = s.substring(0, 100);
+        return s.isEmpty() || s.equals("_") ? "region" : s;
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable f = failure;
+        if (f == null) return;
+        if (f instanceof IOException io) throw new IOException("region workbook write failed: " + io.getMessage(), io);
+        throw new IOException("region workbook write failed: " + f, f);
+    }
+
+    private void awaitAll(List<CompletableFuture<Void>> futures) throws IOException {
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture<?>[]::new)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while writing region workbooks");
+        } catch (ExecutionException e) {
+            if (failure == null) failure = e.getCause();
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        try (LineChannel out = LineChannel.open(dir.resolve("index.csv"))) {
+            StringBuilder line = new StringBuilder(256);
+            out.write("region,file,legal_rows,physical_rows\n");
+            for (Partition p : partitions.values()) {
+                for (FileEntry f : p.files) {
+                    line.setLength(0);
+                    CsvSink.appendField(line, p.region);
+                    line.append(',');
+                    CsvSink.appendField(line, f.file);
+                    line.append(',').append(f.legalRows).append(',').append(f.physicalRows).append('\n');
+                    out.write(line);
+                }
+            }
+            out.commit();
+        }
+    }
+
+    private enum Control { FINISH, CLOSE }
+
+    private static final class FileEntry {
+        final String file;
+        final int legalRows;
+        final int physicalRows;
+
+        FileEntry(String file, int legalRows, int physicalRows) {
+            this.file = file;
+            this.legalRows = legalRows;
+            this.physicalRows = physicalRows;
+        }
+    }
+
+    /**
+     * Книги одного региона. Буферы пополняет поток вызывающего, разбирает пул — но всегда не больше
+     * одного потока сразу (scheduled), так что книга пишется последовательно. Разбор — пачкой: забрать
+     * наполненные буферы, отдать взамен пустые (обмен под монитором), записать строки прямо из таблиц.
+     * Внутри листа строки идут в порядке прихода; FINISH/CLOSE приходят после всех строк и выполняются после пачки.
+     */
+    private final class Partition implements Runnable {
+        final String region;
+        final String stem;
+
+        // под this: наполняет поток вызывающего
+        private RowTable legalIn = Rows.legalTable(BUFFER_ROWS);
+        private RowTable physicalIn = Rows.physicalTable(BUFFER_ROWS);
+        private Control control;
+        private CompletableFuture<Void> controlDone;
+        private boolean scheduled;
+
+        // только поток записи: разобранные (пустые) буферы ждут следующего обмена
+        private RowTable legalSpare = Rows.legalTable(BUFFER_ROWS);
+        private RowTable physicalSpare = Rows.physicalTable(BUFFER_ROWS);
+
+        // только поток записи (наружу — после FINISH/CLOSE через future)
+        private ExcelExporter excel;
+        private int part;
+        private int legalRows;
+        private int physicalRows;
+        final List<FileEntry> files = new ArrayList<>();
+
+        Partition(String region, String stem) {
+            this.region = region;
+            this.stem = stem;
+        }
+
+        void offer(LegalEntityRow row) throws IOException {
+            acquire();
+            synchronized (this) {
+                Rows.add(legalIn, row);
+            }
+            schedule();
+        }
+
+        void offer(PhysicalPersonRow row) throws IOException {
+            acquire();
+            synchronized (this) {
+                Rows.add(physicalIn, row);
+            }
+            schedule();
+        }
+
+        CompletableFuture<Void> control(Control c) {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            synchronized (this) {
+                control = c;
+                controlDone = done;
+            }
+            schedule();
+            return done;
+        }
+
+        private void acquire() throws InterruptedIOException {
+            try {
+                pending.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while queueing a row for " + region);
+            }
+        }
+
+        private void schedule() {
+            synchronized (this) {
+                if (scheduled) return;
+                scheduled = true;
+            }
+            pool.execute(this);
+        }
+
+        @Override
+        public void run() {
+            RowTable legal;
+            RowTable physical;
+            Control c;
+            CompletableFuture<Void> done;
+            synchronized (this) {
+                legal = legalIn;
+                physical = physicalIn;
+                legalIn = legalSpare;
+                physicalIn = physicalSpare;
+                c = control;
+                done = controlDone;
+                control = null;
+                controlDone = null;
+            }
+
+            int rows = legal.size() + physical.size();
+            try {
+                write(legal, physical);
+            } finally {
+                legal.clear();
+                physical.clear();
+                legalSpare = legal;
+                physicalSpare = physical;
+                pending.release(rows);
+            }
+            if (c != null) handle(c, done);
+
+            synchronized (this) {
+                if (legalIn.size() == 0 && physicalIn.size() == 0 && control == null) {
+                    scheduled = false;
+                    return;
+                }
+            }
+            // пока писали, пришли ещё строки — следующей задачей пула (остальные книги тоже должны продвигаться)
+            pool.execute(this);
+        }
+
+        private void write(RowTable legal, RowTable physical) {
+            if (failure != null) return;   // прогон уже упал — буферы не пишем
+            try {
+                for (int i = 0; i < legal.size(); i++) {
+                    if (excel == null) open();
+                    excel.appendLegal(legal, i);
+                    legalRows++;
+                    if (legalRows >= maxRowsPerSheet || physicalRows >= maxRowsPerSheet) save();
+                }
+                for (int i = 0; i < physical.size(); i++) {
+                    if (excel == null) open();
+                    excel.appendPhysical(physical, i);
+                    physicalRows++;
+                    if (legalRows >= maxRowsPerSheet || physicalRows >= maxRowsPerSheet) save();
+                }
+            } catch (Throwable e) {
+                fail(e);
+            }
+        }
+
+        private void handle(Control c, CompletableFuture<Void> done) {
+            try {
+                if (c == Control.FINISH) {
+                    if (failure == null) save();
+                } else {
+                    discard();
+                }
+                done.complete(null);
+            } catch (Throwable e) {
+                fail(e);
+                done.completeExceptionally(e);
+            }
+        }
+
+        private void open() {
+            part++;
+            excel = new ExcelExporter(rowWindow, columns, dir.resolve(fileName())).setSkipEmptySheets(true);
+        }
+
+        /** Дописывает текущую книгу (если есть) и закрывает её; следующая строка откроет новую. */
+        private void save() throws IOException {
+            if (excel == null) return;
+            try {
+                excel.finish();
+                files.add(new FileEntry(fileName(), legalRows, physicalRows));
+            } finally {
+                discard();
+            }
+        }
+
+        private void discard() throws IOException {
+            if (excel == null) return;
+            try {
+                excel.close();
+            } finally {
+                excel = null;
+                legalRows = 0;
+                physicalRows = 0;
+            }
+        }
+
+        private String fileName() {
+            return part == 1 ? stem + ".xlsx" : stem + "_" + part + ".xlsx";
+        }
+
+        private void fail(Throwable e) {
+            if (failure == null) failure = e;
+            log.warn("XLSX region {} failed: {}", region, e.toString());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.ain.bankrot.output;
+
+import com.ain.bankrot.model.legal.LegalEntityRow;
+import com.ain.bankrot.model.physical.PhysicalPersonRow;
+
+import java.io.IOException;
+
+/**
+ * Куда пишутся готовые строки: Excel (ExcelExporter), CSV, JSON Lines или несколько сразу (TeeSink).
+ *
+ * append* вызываются из одного потока (writer конвейера), в порядке списка.
+ * finish — прогон удался: результат дописывается и появляется под своим именем (temp → move).
+ * close без finish — прогон упал: временные файлы убираются, готовых файлов нет.
+ */
+public interface RowSink extends AutoCloseable {
+
+    void appendLegal(LegalEntityRow row) throws IOException;
+
+    void appendPhysical(PhysicalPersonRow row) throws IOException;
+
+    void finish() throws IOException;
+
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,56 @@
+package com.ain.bankrot.output;
+
+import com.ain.bankrot.model.legal.LegalEntityRow;
+import com.ain.bankrot.model.physical.PhysicalPersonRow;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Несколько выходов за один проход: каждая строка уходит во все sink'и по очереди.
+ * Ошибка записи в любой — ошибка прогона (как и раньше с одним Excel).
+ */
+public final class TeeSink implements RowSink {
+
+    private final List<RowSink> sinks;
+
+    private TeeSink(List<RowSink> sinks) {
+        this.sinks = List.copyOf(sinks);
+    }
+
+    /** Один sink — он сам, без обёртки. */
+    public static RowSink of(List<RowSink> sinks) {
+        if (sinks.isEmpty()) throw new IllegalArgumentException("TeeSink: no sinks");
+        return sinks.size() == 1 ? sinks.get(0) : new TeeSink(sinks);
+    }
+
+    @Override
+    public void appendLegal(LegalEntityRow row) throws IOException {
+        for (RowSink s : sinks) s.appendLegal(row);
+    }
+
+    @Override
+    public void appendPhysical(PhysicalPersonRow row) throws IOException {
+        for (RowSink s : sinks) s.appendPhysical(row);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        for (RowSink s : sinks) s.finish();
+    }
+
+    /** Закрывает все sink'и, даже если какой-то упал; первая ошибка — наружу, остальные — suppressed. */
+    @Override
+    public void close() throws IOException {
+        IOException first = null;
+        for (RowSink s : sinks) {
+            try {
+                s.close();
+            } catch (IOException e) {
+                if (first == null) first = e;
+                else first.addSuppressed(e);
+            }
+        }
+        if (first != null) throw first;
+    }
+}
@@ -11,8 +11,11 @@ public class CompanyMapper {
     private final ObjectMapper mapper = new ObjectMapper();
 
     public LegalEntityRow fromCompanyJson(String json, String sourceUrl) throws Exception {
-        JsonNode root = mapper.readTree(json);
+        return fromCompanyJson(mapper.readTree(json), sourceUrl);
+    }
 
+    /** Карточка уже разобрана (ApiClient.getJson) — без лишнего круга через String. */
+    public LegalEntityRow fromCompanyJson(JsonNode root, String sourceUrl) {
         LegalEntityRow row = new LegalEntityRow();
         row.sourceUrl = sourceUrl;
 
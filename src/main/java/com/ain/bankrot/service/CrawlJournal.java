@@ -0,0 +1,222 @@
+package com.ain.bankrot.service;
+
+import com.ain.bankrot.util.GuidSet;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал прогона (append-only), чтобы упавший прогон не начинать с нуля.
+ *
+ * Каждая запись — строка "crc32hex\tjson":
+ * - {"k":"PAGE","s":source,"o":offset,"n":count} — страница списка получена;
+ * - {"k":"ROW","s":source,"p":position,"r":{...}}  — строка готова и записана (в порядке списка).
+ *
+ * При --resume журнал дочитывается до первой битой/оборванной записи (хвост отрезается),
+ * строки заново отдаются в exporter, а список продолжается с позиции после последней готовой строки.
+ * guid'ы готовых строк (knownGuids) отдаются ListPager'у: если список за это время сдвинулся вниз,
+ * готовые должники снова попадают в окно чтения и должны отсекаться, а не выгружаться второй раз.
+ * После успешного сохранения Excel журнал удаляется.
+ */
+public class CrawlJournal implements Closeable {
+
+    private static final String PAGE = "PAGE";
+    private static final String ROW = "ROW";
+
+    private final Path file;
+    private final ObjectMapper om = new ObjectMapper();
+
+    private final FileOutputStream fos;
+    private final OutputStream out;
+
+    // что уже есть в журнале (по источникам)
+    private final Map<String, Integer> rowsBySource = new HashMap<>();
+    private final Map<String, Long> lastPositionBySource = new HashMap<>();
+    private final Map<String, GuidSet> guidsBySource = new HashMap<>();
+
+    private CrawlJournal(Path file, long validLength) throws IOException {
+        this.file = file;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            if (ch.size() > validLength) ch.truncate(validLength);
+        }
+        this.fos = new FileOutputStream(file.toFile(), true);
+        this.out = new BufferedOutputStream(fos, 1 << 16);
+    }
+
+    /**
+     * @param resume false → журнал начинается заново (старый стирается);
+     *               true  → читаем, что успели в прошлый раз, и дописываем в конец
+     */
+    public static CrawlJournal open(Path file, boolean resume) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+
+        if (!resume || !Files.exists(file)) {
+            Files.write(file, new byte[0]);
+            return new CrawlJournal(file, 0);
+        }
+
+        Map<String, Integer> rows = new HashMap<>();
+        Map<String, Long> lastPos = new HashMap<>();
+        Map<String, GuidSet> guids = new HashMap<>();
+        long valid = scan(file, new ObjectMapper(), n -> {
+            if (!ROW.equals(n.path("k").asText())) return;
+            String s = n.path("s").asText();
+            rows.merge(s, 1, Integer::sum);
+            lastPos.merge(s, n.path("p").asLong(), Math::max);
+            guids.computeIfAbsent(s, k -> new GuidSet(1024)).add(n.path("r").path("guid").asText(null));
+        });
+
+        CrawlJournal j = new CrawlJournal(file, valid);
+        j.rowsBySource.putAll(rows);
+        j.lastPositionBySource.putAll(lastPos);
+        j.guidsBySource.putAll(guids);
+        return j;
+    }
+
+    // =========================================================
+    // resume
+    // =========================================================
+
+    /** Сколько готовых строк источника уже в журнале. */
+    public int rowCount(String source) {
+        return rowsBySource.getOrDefault(source, 0);
+    }
+
+    /** С какой позиции списка продолжать источник (после последней готовой строки). */
+    public int resumeOffset(String source) {
+        Long p = lastPositionBySource.get(source);
+        return p == null ? 0 : (int) (p + 1);
+    }
+
+    /**
+     * guid'ы готовых строк источника (для ListPager: они уже выгружены и при продолжении отсекаются);
+     * null — строк нет. Множество передаётся читателю списка и дальше им же дополняется.
+     */
+    public GuidSet knownGuids(String source) {
+        return guidsBySource.get(source);
+    }
+
+    /** Отдаёт готовые строки источника из журнала в порядке записи (для восстановления exporter'а). */
+    public <R> void replay(String source, Class<R> type, CrawlPipeline.RowWriter<R> writer) throws Exception {
+        out.flush();
+        Exception[] failure = new Exception[1];
+        scan(file, om, n -> {
+            if (failure[0] != null) return;
+            if (!ROW.equals(n.path("k").asText()) || !source.equals(n.path("s").asText())) return;
+            try {
+                writer.write(om.treeToValue(n.path("r"), type));
+            } catch (Exception e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) throw failure[0];
+    }
+
+    // =========================================================
+    // append
+    // =========================================================
+
+    public synchronized void pageFetched(String source, int offset, int count) throws IOException {
+        ObjectNode n = om.createObjectNode();
+        n.put("k", PAGE);
+        n.put("s", source);
+        n.put("o", offset);
+        n.put("n", count);
+        append(n);
+        // страница — редкое событие: заодно сбрасываем на диск всё, что накопилось
+        fos.getChannel().force(false);
+    }
+
+    public synchronized void rowWritten(String source, long position, Object row) throws IOException {
+        ObjectNode n = om.createObjectNode();
+        n.put("k", ROW);
+        n.put("s", source);
+        n.put("p", position);
+        n.set("r", om.valueToTree(row));
+        append(n);
+    }
+
+    private void append(ObjectNode n) throws IOException {
+        byte[] json = om.writeValueAsBytes(n);
+        CRC32 crc = new CRC32();
+        crc.update(json);
+        out.write(String.format("%08x\t", crc.getValue()).getBytes(StandardCharsets.US_ASCII));
+        out.write(json);
+        out.write('\n');
+        // flush в ОС на каждую запись: падение процесса не теряет готовые строки
+        out.flush();
+    }
+
+    /** Прогон успешно сохранён — журнал больше не нужен. */
+    public void finish() throws IOException {
+        close();
+        Files.deleteIfExists(file);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    // =========================================================
+    // read
+    // =========================================================
+
+    /** Читает записи по порядку до первой битой; возвращает длину корректной части файла. */
+    private static long scan(Path file, ObjectMapper om, Consumer<JsonNode> onRecord) throws IOException {
+        long valid = 0;
+        long pos = 0;
+        ByteArrayOutputStream line = new ByteArrayOutputStream(4096);
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            int b;
+            while ((b = in.read()) >= 0) {
+                pos++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+
+                JsonNode n = parseRecord(line.toByteArray(), om);
+                line.reset();
+                if (n == null) break;
+
+                onRecord.accept(n);
+                valid = pos;
+            }
+        }
+        return valid;
+    }
+
+    private static JsonNode parseRecord(byte[] line, ObjectMapper om) {
+        if (line.length < 10 || line[8] != '\t') return null;
+        try {
+            long expected = Long.parseLong(new String(line, 0, 8, StandardCharsets.US_ASCII), 16);
+            CRC32 crc = new CRC32();
+            crc.update(line, 9, line.length - 9);
+            if (crc.getValue() != expected) return null;
+            return om.readTree(line, 9, line.length - 9);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
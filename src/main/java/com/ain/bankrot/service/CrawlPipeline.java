@@ -0,0 +1,290 @@
+package com.ain.bankrot.service;
+
+import com.ain.bankrot.api.ApiClient;
+import com.ain.bankrot.util.GuidSet;
+import com.ain.bankrot.util.Threads;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Конвейер выгрузки: страницы списка → обогащение строк (N воркеров) → один writer.
+ *
+ * Стадии связаны ограниченными очередями (backpressure): если writer или воркеры не успевают,
+ * загрузка страниц списка ждёт. Источники (юрлица, физлица) качаются одновременно и делят воркеров.
+ * Следующие страницы списка (setPagesInFlight) запрашиваются, пока обогащается текущая.
+ * Повторы guid'ов в списке (сдвиг живого списка, перекрытие страниц — setListOverlap) до воркеров не доходят.
+ *
+ * Порядок строк детерминирован: у каждого элемента списка есть порядковый номер,
+ * writer выдаёт строки строго по нему (reorder-буфер на источник, размер ограничен окном).
+ *
+ * С журналом (setJournal) полученные страницы и записанные строки фиксируются на диске,
+ * а источник можно начать не с нуля (startOffset) — см. CrawlJournal.
+ */
+public class CrawlPipeline {
+
+    /** Элемент списка → строка (обычно LegalRowBuilder/PersonRowBuilder.buildFromListItem). */
+    public interface RowBuilder<R> {
+        R build(JsonNode item) throws Exception;
+    }
+
+    /** Запись готовой строки. Всегда вызывается из одного потока и в порядке списка. */
+    public interface RowWriter<R> {
+        void write(R row) throws Exception;
+    }
+
+    /** Путь страницы списка, например FedresursEndpoints::listCompanies. */
+    public interface ListPath {
+        String page(int limit, int offset);
+    }
+
+    private final ApiClient bankrot;
+    private final int pageSize;
+    private final int workers;
+    private final int queueCapacity;
+
+    // сколько страниц списка одного источника запрашивается одновременно (см. ListPager)
+    private int pagesInFlight = 2;
+
+    // перекрытие соседних страниц списка (дрейф живого списка, см. ListPager); 0 — страницы встык
+    private int listOverlap = 0;
+
+    private final List<Source<?>> sources = new ArrayList<>();
+
+    private CrawlJournal journal;
+
+    /**
+     * @param queueCapacity ёмкость очередей между стадиями; от неё же считается окно reorder-буфера
+     */
+    public CrawlPipeline(ApiClient bankrot, int pageSize, int workers, int queueCapacity) {
+        this.bankrot = bankrot;
+        this.pageSize = pageSize;
+        this.workers = Math.max(1, workers);
+        this.queueCapacity = Math.max(1, queueCapacity);
+    }
+
+    public <R> CrawlPipeline addSource(String name, ListPath listPath, int need, RowBuilder<R> builder, RowWriter<R> writer) {
+        return addSource(name, listPath, 0, need, builder, writer);
+    }
+
+    /** startOffset — с какой позиции списка начинать (продолжение прерванного прогона). */
+    public <R> CrawlPipeline addSource(String name, ListPath listPath, int startOffset, int need,
+                                       RowBuilder<R> builder, RowWriter<R> writer) {
+        return addSource(name, listPath, startOffset, need, null, builder, writer);
+    }
+
+    /**
+     * Продолжение прерванного прогона: known — guid'ы уже готовых строк (CrawlJournal.knownGuids), они
+     * не обогащаются повторно, даже если список сдвинулся вниз и они снова попали в окно (см. ListPager).
+     */
+    public <R> CrawlPipeline addSource(String name, ListPath listPath, int startOffset, int need, GuidSet known,
+                                       RowBuilder<R> builder, RowWriter<R> writer) {
+        sources.add(new Source<>(name, listPath, startOffset, need, known, builder, writer,
+                queueCapacity + 2 * workers));
+        return this;
+    }
+
+    /**
+     * Сколько страниц списка держать в полёте на источник (после первой страницы, когда известен total).
+     * 2 — как раньше: текущая + следующая.
+     */
+    public CrawlPipeline setPagesInFlight(int pagesInFlight) {
+        this.pagesInFlight = Math.max(1, pagesInFlight);
+        return this;
+    }
+
+    /**
+     * На сколько элементов перекрываются соседние страницы списка. Повторы (перекрытие, сдвиг списка вниз)
+     * отсекаются по guid до обогащения; сдвиг вверх больше перекрытия ловит gap-check в конце чтения.
+     */
+    public CrawlPipeline setListOverlap(int listOverlap) {
+        this.listOverlap = Math.max(0, listOverlap);
+        return this;
+    }
+
+    /** Журнал прогона: страницы и готовые строки пишутся в него по ходу работы. */
+    public CrawlPipeline setJournal(CrawlJournal journal) {
+        this.journal = journal;
+        return this;
+    }
+
+    // =========================================================
+    // run
+    // =========================================================
+
+    /** Прогоняет все источники до конца. Вызывающий поток становится writer-стадией. */
+    public void run() throws Exception {
+        BlockingQueue<Task> work = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Done> done = new ArrayBlockingQueue<>(queueCapacity);
+
+        ExecutorService fetchers = Executors.newFixedThreadPool(sources.size(), Threads.daemonFactory("list"));
+        ExecutorService prefetch = Executors.newCachedThreadPool(Threads.daemonFactory("list-prefetch"));
+        ExecutorService pool = Executors.newFixedThreadPool(workers, Threads.daemonFactory("row"));
+
+        try {
+            for (Source<?> src : sources) {
+                fetchers.execute(() -> fetchLoop(src, work, prefetch));
+            }
+            for (int i = 0; i < workers; i++) {
+                pool.execute(() -> workLoop(work, done));
+            }
+            writeLoop(done);
+        } finally {
+            fetchers.shutdownNow();
+            prefetch.shutdownNow();
+            pool.shutdownNow();
+        }
+    }
+
+    // ---------------- stage 1: list pages ----------------
+
+    private void fetchLoop(Source<?> src, BlockingQueue<Task> work, ExecutorService prefetch) {
+        try {
+            long[] seq = {0};
+            ListPager pager = new ListPager(bankrot, pageSize, pagesInFlight, listOverlap, prefetch);
+
+            src.total = pager.run(src.name, src.listPath, src.startOffset, src.need, src.known, (pageOffset, fetched, items) -> {
+                if (journal != null) journal.pageFetched(src.name, pageOffset, fetched);
+
+                for (ListPager.Item item : items) {
+                    src.window.acquire();
+                    work.put(new Task(src, seq[0]++, item.position, item.node));
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            src.error = e;
+        }
+    }
+
+    // ---------------- stage 2: enrichment ----------------
+
+    private void workLoop(BlockingQueue<Task> work, BlockingQueue<Done> done) {
+        try {
+            while (true) {
+                Task t = work.take();
+                Object row = null;
+                Exception error = null;
+                try {
+                    row = t.source.builder.build(t.item);
+                } catch (Exception e) {
+                    error = e;
+                }
+                done.put(new Done(t.source, t.seq, t.position, row, error));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ---------------- stage 3: single writer ----------------
+
+    private void writeLoop(BlockingQueue<Done> done) throws Exception {
+        while (!allWritten()) {
+            Done d = done.poll(200, TimeUnit.MILLISECONDS);
+            if (d == null) continue;
+
+            if (d.error != null) throw d.error;
+
+            d.source.pending.put(d.seq, d);
+            d.source.drain(journal);
+        }
+    }
+
+    private boolean allWritten() throws Exception {
+        for (Source<?> src : sources) {
+            if (src.error != null) throw src.error;
+            long total = src.total;
+            if (total < 0 || src.nextSeq < total) return false;
+        }
+        return true;
+    }
+
+    // =========================================================
+    // internals
+    // =========================================================
+
+    private static final class Source<R> {
+        final String name;
+        final ListPath listPath;
+        final int startOffset;
+        final int need;
+        final GuidSet known;           // null — начинаем без известных guid'ов
+        final RowBuilder<R> builder;
+        final RowWriter<R> writer;
+
+        // сколько строк может быть «в полёте» (очередь + воркеры + reorder-буфер)
+        final Semaphore window;
+
+        // reorder-буфер: трогает только writer
+        final Map<Long, Done> pending = new HashMap<>();
+        long nextSeq = 0;
+
+        volatile long total = -1;      // известно, когда список дочитан
+        volatile Exception error;
+
+        Source(String name, ListPath listPath, int startOffset, int need, GuidSet known,
+               RowBuilder<R> builder, RowWriter<R> writer, int window) {
+            this.name = name;
+            this.listPath = listPath;
+            this.startOffset = startOffset;
+            this.need = need;
+            this.known = known;
+            this.builder = builder;
+            this.writer = writer;
+            this.window = new Semaphore(window);
+        }
+
+        @SuppressWarnings("unchecked")
+        void drain(CrawlJournal journal) throws Exception {
+            Done d;
+            while ((d = pending.remove(nextSeq)) != null) {
+                writer.write((R) d.row);
+                if (journal != null) journal.rowWritten(name, d.position, d.row);
+                nextSeq++;
+                window.release();
+            }
+        }
+    }
+
+    private static final class Task {
+        final Source<?> source;
+        final long seq;
+        final long position;   // позиция в списке (offset страницы + индекс)
+        final JsonNode item;
+
+        Task(Source<?> source, long seq, long position, JsonNode item) {
+            this.source = source;
+            this.seq = seq;
+            this.position = position;
+            this.item = item;
+        }
+    }
+
+    private static final class Done {
+        final Source<?> source;
+        final long seq;
+        final long position;
+        final Object row;
+        final Exception error;
+
+        Done(Source<?> source, long seq, long position, Object row, Exception error) {
+            this.source = source;
+            this.seq = seq;
+            this.position = position;
+            this.row = row;
+            this.error = error;
+        }
+    }
+
+}
@@ -0,0 +1,261 @@
+package com.ain.bankrot.service;
+
+import com.ain.bankrot.model.legal.LegalEntityRow;
+import com.ain.bankrot.model.physical.PhysicalPersonRow;
+import com.ain.bankrot.store.RowTable;
+import com.ain.bankrot.store.Rows;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Дельта-режим: между прогонами храним на каждый guid отпечаток элемента списка
+ * (64-битный хэш lastLegalCase + региона/имени) и готовую строку.
+ *
+ * Если в новом прогоне отпечаток тот же — строка переносится из прошлого прогона без единого запроса,
+ * иначе (новый должник / изменилось дело) — строится builder'ом как обычно.
+ *
+ * Файл: gzip JSON Lines, по строке на должника: {"t":"L"|"P","g":guid,"f":fingerprint,"r":{...}}.
+ * Сохраняются только должники, встреченные в текущем прогоне.
+ *
+ * Строки обоих прогонов живут в памяти всё время работы (на полном реестре — сотни тысяч),
+ * поэтому держим их не деревьями JSON, а в колоночных RowTable (словари на повторяющиеся колонки).
+ */
+public class DeltaStore {
+    private static final Logger log = LoggerFactory.getLogger(DeltaStore.class);
+
+    private static final String LEGAL = "L";
+    private static final String PERSON = "P";
+
+    private final Path file;
+    private final ObjectMapper om = new ObjectMapper();
+
+    // прошлый прогон (только чтение)
+    private final Map<String, Stored> prevLegal = new HashMap<>();
+    private final Map<String, Stored> prevPersons = new HashMap<>();
+    private final RowTable prevLegalRows = Rows.legalTable(1024);
+    private final RowTable prevPersonRows = Rows.physicalTable(1024);
+
+    // текущий прогон (пишут воркеры конвейера); перенесённые строки остаются в таблицах прошлого прогона
+    private final Map<String, Stored> nextLegal = new ConcurrentHashMap<>();
+    private final Map<String, Stored> nextPersons = new ConcurrentHashMap<>();
+    private final RowTable nextLegalRows = Rows.legalTable(1024);
+    private final RowTable nextPersonRows = Rows.physicalTable(1024);
+
+    private final AtomicInteger reused = new AtomicInteger();
+    private final AtomicInteger built = new AtomicInteger();
+
+    private static final class Stored {
+        final long fingerprint;
+        final RowTable table;
+        final int row;
+
+        Stored(long fingerprint, RowTable table, int row) {
+            this.fingerprint = fingerprint;
+            this.table = table;
+            this.row = row;
+        }
+    }
+
+    /** Строка ↔ RowTable для одного типа строк. */
+    private interface Codec<R> {
+        int add(RowTable table, R row);
+        R read(RowTable table, int row);
+    }
+
+    private static final Codec<LegalEntityRow> LEGAL_CODEC = new Codec<>() {
+        public int add(RowTable table, LegalEntityRow row) { return Rows.add(table, row); }
+        public LegalEntityRow read(RowTable table, int row) { return Rows.legal(table, row); }
+    };
+
+    private static final Codec<PhysicalPersonRow> PERSON_CODEC = new Codec<>() {
+        public int add(RowTable table, PhysicalPersonRow row) { return Rows.add(table, row); }
+        public PhysicalPersonRow read(RowTable table, int row) { return Rows.physical(table, row); }
+    };
+
+    private DeltaStore(Path file) {
+        this.file = file;
+    }
+
+    /** Загружает состояние прошлого прогона (нет файла → пустое состояние, всё строится заново). */
+    public static DeltaStore load(Path file) throws IOException {
+        DeltaStore d = new DeltaStore(file);
+        if (!Files.exists(file)) return d;
+
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.isBlank()) continue;
+                JsonNode n = d.om.readTree(line);
+                long fp = n.path("f").asLong();
+                String guid = n.path("g").asText("");
+                if (guid.isBlank()) continue;
+                if (LEGAL.equals(n.path("t").asText())) {
+                    LegalEntityRow row = d.om.treeToValue(n.path("r"), LegalEntityRow.class);
+                    if (row.guid.isBlank()) row.guid = guid;   // состояние до появления поля guid
+                    d.prevLegal.put(guid, new Stored(fp, d.prevLegalRows, Rows.add(d.prevLegalRows, row)));
+                } else if (PERSON.equals(n.path("t").asText())) {
+                    PhysicalPersonRow row = d.om.treeToValue(n.path("r"), PhysicalPersonRow.class);
+                    if (row.guid.isBlank()) row.guid = guid;
+                    d.prevPersons.put(guid, new Stored(fp, d.prevPersonRows, Rows.add(d.prevPersonRows, row)));
+                }
+            }
+        } catch (IOException e) {
+            // битый/оборванный файл → просто полный прогон
+            log.warn("DELTA state unreadable ({}) -> full crawl", e.getMessage());
+            d.prevLegal.clear();
+            d.prevPersons.clear();
+        }
+        return d;
+    }
+
+    public LegalEntityRow legal(JsonNode item, CrawlPipeline.RowBuilder<LegalEntityRow> builder) throws Exception {
+        return reuseOrBuild(item, builder, LEGAL_CODEC, prevLegal, nextLegal, nextLegalRows,
+                row -> !row.inn.isBlank() || !row.ogrn.isBlank());
+    }
+
+    public PhysicalPersonRow person(JsonNode item, CrawlPipeline.RowBuilder<PhysicalPersonRow> builder) throws Exception {
+        return reuseOrBuild(item, builder, PERSON_CODEC, prevPersons, nextPersons, nextPersonRows,
+                row -> !row.inn.isBlank() || !row.snils.isBlank() || !row.birthDate.isBlank());
+    }
+
+    /**
+     * Строка, взятая из журнала при --resume (в прерванном прогоне она уже прошла через legal()/person(),
+     * но next-состояние того прогона не сохранилось). Элемента списка у неё нет, поэтому отпечаток берём
+     * из прошлого прогона: если дело не менялось, строка и есть перенесённая; если менялось — в следующий
+     * раз отпечаток не совпадёт и строка честно пересоберётся. Должника, которого в прошлом прогоне не было,
+     * не запоминаем — он просто соберётся заново.
+     */
+    public void resumedLegal(LegalEntityRow row) {
+        resumed(row.guid, row, LEGAL_CODEC, prevLegal, nextLegal, nextLegalRows,
+                !row.inn.isBlank() || !row.ogrn.isBlank());
+    }
+
+    public void resumedPerson(PhysicalPersonRow row) {
+        resumed(row.guid, row, PERSON_CODEC, prevPersons, nextPersons, nextPersonRows,
+                !row.inn.isBlank() || !row.snils.isBlank() || !row.birthDate.isBlank());
+    }
+
+    private <R> void resumed(String guid, R row, Codec<R> codec, Map<String, Stored> prev,
+                             Map<String, Stored> next, RowTable nextRows, boolean complete) {
+        if (guid == null || guid.isBlank() || !complete) return;
+        Stored old = prev.get(guid);
+        if (old != null) next.put(guid, new Stored(old.fingerprint, nextRows, codec.add(nextRows, row)));
+    }
+
+    /**
+     * @param complete строка «настоящая» (карточка реально пришла) — только такие переносим дальше,
+     *                 иначе строка, собранная во время блока, жила бы в дельте вечно
+     */
+    private <R> R reuseOrBuild(JsonNode item, CrawlPipeline.RowBuilder<R> builder, Codec<R> codec,
+                               Map<String, Stored> prev, Map<String, Stored> next, RowTable nextRows,
+                               Predicate<R> complete) throws Exception {
+        String guid = item.path("guid").asText("");
+        if (guid.isBlank()) return builder.build(item);
+
+        long fp = fingerprint(item);
+
+        Stored old = prev.get(guid);
+        if (old != null && old.fingerprint == fp) {
+            next.put(guid, old);
+            reused.incrementAndGet();
+            return codec.read(old.table, old.row);
+        }
+
+        R row = builder.build(item);
+        built.incrementAndGet();
+        if (complete.test(row)) next.put(guid, new Stored(fp, nextRows, codec.add(nextRows, row)));
+        return row;
+    }
+
+    /** Сохраняет состояние текущего прогона (temp → move). */
+    public void save() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = parent.resolve(file.getFileName().toString() + ".tmp");
+
+        try (BufferedWriter w = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(tmp), 1 << 16), StandardCharsets.UTF_8), 1 << 16)) {
+            writeAll(w, LEGAL, nextLegal, LEGAL_CODEC);
+            writeAll(w, PERSON, nextPersons, PERSON_CODEC);
+        }
+
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private <R> void writeAll(BufferedWriter w, String type, Map<String, Stored> rows, Codec<R> codec) throws IOException {
+        for (Map.Entry<String, Stored> e : rows.entrySet()) {
+            Stored s = e.getValue();
+            ObjectNode n = om.createObjectNode();
+            n.put("t", type);
+            n.put("g", e.getKey());
+            n.put("f", s.fingerprint);
+            n.set("r", om.valueToTree(codec.read(s.table, s.row)));
+            w.write(om.writeValueAsString(n));
+            w.newLine();
+        }
+    }
+
+    public int reusedCount() {
+        return reused.get();
+    }
+
+    public int builtCount() {
+        return built.get();
+    }
+
+    // =========================================================
+    // fingerprint
+    // =========================================================
+
+    /**
+     * 64-битный FNV-1a по полям списка, от которых зависит строка:
+     * lastLegalCase целиком (номер, статус, процедура, управляющий), регион, имя/ИНН из списка.
+     */
+    static long fingerprint(JsonNode item) {
+        long h = 0xcbf29ce484222325L;
+        h = fnv(h, item.path("lastLegalCase").toString());
+        h = fnv(h, item.path("region").toString());
+        h = fnv(h, item.path("name").asText(""));
+        h = fnv(h, item.path("fullName").asText(""));
+        h = fnv(h, item.path("fio").asText(""));
+        h = fnv(h, item.path("inn").asText(""));
+        h = fnv(h, item.path("ogrn").asText(""));
+        h = fnv(h, item.path("isActiveLegalCase").asText(""));
+        return h;
+    }
+
+    private static long fnv(long h, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            h ^= (c & 0xff);
+            h *= 0x100000001b3L;
+            h ^= (c >>> 8);
+            h *= 0x100000001b3L;
+        }
+        // разделитель полей, чтобы "ab"+"c" != "a"+"bc"
+        h ^= 0x1f;
+        h *= 0x100000001b3L;
+        return h;
+    }
+}
@@ -0,0 +1,151 @@
+package com.ain.bankrot.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Deep-поиск по ключу где угодно внутри JSON за один обход документа.
+ *
+ * Раньше findDeep обходил всё дерево заново на каждый ключ каждой цепочки fallback'ов.
+ * Здесь при первом запросе строится индекс «ключ → первое непустое значение», дальше — только lookup.
+ *
+ * Результаты те же, что у прежнего рекурсивного findByKey:
+ * - обход в прямом порядке: у объекта сначала его собственные поля, потом вложенные узлы;
+ * - значение-объект раскрывается в name, затем в fallbackField
+ *   ("description" у builder'ов, "value" у PersonMapper — как было в соответствующих копиях findByKey).
+ */
+final class JsonKeyIndex {
+
+    static final String DESCRIPTION = "description";
+    static final String VALUE = "value";
+
+    private final JsonNode root;
+    private final String fallbackField;
+
+    // строится лениво: документ без deep-поиска не обходится вообще
+    private Map<String, String> texts;
+
+    JsonKeyIndex(JsonNode root, String fallbackField) {
+        this.root = root;
+        this.fallbackField = fallbackField;
+    }
+
+    /** Первое непустое значение по первому найденному ключу (как findDeep): обрезанное, или "". */
+    String find(String... keys) {
+        if (texts == null) texts = buildTexts();
+        for (String k : keys) {
+            String v = texts.get(k);
+            if (v != null) return v.trim();
+        }
+        return "";
+    }
+
+    /**
+     * Как findDeepBoolean: первый (в порядке обхода) объект, где хоть один из ключей приводится к boolean;
+     * внутри одного объекта — ключ, стоящий раньше в списке. Нет → null.
+     * Здесь индекс не строится: цепочек всего две и обход обычно обрывается на первых узлах
+     * (полный индекс по бенчмарку выходил в разы медленнее).
+     */
+    Boolean findBoolean(String... keys) {
+        if (isAbsent(root)) return null;
+        return findBoolean(root, keys);
+    }
+
+    /** firstNonBlank, который вычисляет варианты по очереди и останавливается на первом непустом. */
+    @SafeVarargs
+    static String firstNonBlank(Supplier<String>... xs) {
+        for (Supplier<String> s : xs) {
+            String x = s.get();
+            if (x != null && !x.isBlank()) return x.trim();
+        }
+        return "";
+    }
+
+    // =========================================================
+    // build
+    // =========================================================
+
+    private Map<String, String> buildTexts() {
+        Map<String, String> out = new HashMap<>();
+        if (isAbsent(root)) return out;
+        collectTexts(root, out);
+        return out;
+    }
+
+    private void collectTexts(JsonNode node, Map<String, String> out) {
+        if (node.isObject()) {
+            // сначала все поля самого объекта (они «ближе» любого вложенного совпадения)
+            Iterator<Map.Entry<String, JsonNode>> it = node.fields();
+            while (it.hasNext()) {
+                Map.Entry<String, JsonNode> e = it.next();
+                if (out.containsKey(e.getKey())) continue;
+                String v = resolve(e.getValue());
+                if (v != null) out.put(e.getKey(), v);
+            }
+            for (JsonNode child : node) collectTexts(child, out);
+        } else if (node.isArray()) {
+            for (JsonNode child : node) collectTexts(child, out);
+        }
+    }
+
+    /** Значение ключа, как его видел findByKey: текст, иначе name, иначе fallbackField; пусто → null. */
+    private String resolve(JsonNode direct) {
+        if (direct == null || direct.isNull()) return null;
+
+        String s = direct.asText("");
+        if (s != null && !s.isBlank()) return s;
+
+        String name = direct.path("name").asText("");
+        if (!name.isBlank()) return name;
+
+        String fallback = direct.path(fallbackField).asText("");
+        if (!fallback.isBlank()) return fallback;
+
+        return null;
+    }
+
+    private static Boolean findBoolean(JsonNode node, String[] keys) {
+        if (node.isObject()) {
+            for (String k : keys) {
+                Boolean b = toBoolean(node.get(k));
+                if (b != null) return b;
+            }
+            for (JsonNode child : node) {
+                Boolean got = findBoolean(child, keys);
+                if (got != null) return got;
+            }
+        } else if (node.isArray()) {
+            for (JsonNode child : node) {
+                Boolean got = findBoolean(child, keys);
+                if (got != null) return got;
+            }
+        }
+        return null;
+    }
+
+    private static Boolean toBoolean(JsonNode v) {
+        if (v == null || v.isNull()) return null;
+        if (v.isBoolean()) return v.asBoolean();
+        if (v.isInt() || v.isLong()) {
+            int n = v.asInt();
+            if (n == 0) return false;
+            if (n == 1) return true;
+        }
+        if (v.isTextual()) {
+            String t = v.asText("").trim().toLowerCase();
+            if (t.equals("true")) return true;
+            if (t.equals("false")) return false;
+            if (t.equals("1")) return true;
+            if (t.equals("0")) return false;
+        }
+        return null;
+    }
+
+    private static boolean isAbsent(JsonNode n) {
+        return n == null || n.isNull() || n.isMissingNode();
+    }
+}
@@ -2,28 +2,109 @@ package com.ain.bankrot.service;
 
 import com.ain.bankrot.api.ApiClient;
 import com.ain.bankrot.api.FedresursEndpoints;
+import com.ain.bankrot.excel.ColumnSelection;
+import com.ain.bankrot.metrics.Metrics;
+import com.ain.bankrot.metrics.RowBuildEvent;
 import com.ain.bankrot.model.legal.LegalEntityRow;
 import com.ain.bankrot.util.Dates;
+import com.ain.bankrot.util.GuidCountMap;
 import com.ain.bankrot.util.RegionExtractor;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 
 public class LegalRowBuilder {
 
     private final ApiClient fed;
-    private final ObjectMapper om = new ObjectMapper();
     private final CompanyMapper companyMapper = new CompanyMapper();
+    private final SubRequests sub;
+
+    // какие под-запросы нужны под выбранные колонки (см. ColumnSelection)
+    private final boolean needCard;
+    private final boolean regionSelected;
+    private final boolean needPublications;
+    private final boolean needTrades;
+    private final boolean caseStatusSelected;
+    private final boolean managerInnSelected;
+    private final boolean appointmentDateSelected;
+
+    // торги всех банкротов из TradesSweep (null — считаем по одному запросу на должника)
+    private GuidCountMap tradeCounts;
 
     public LegalRowBuilder(ApiClient fed) {
+        this(fed, null);
+    }
+
+    /**
+     * pool != null → карточка, публикации, торги, bankruptcy и ieb запрашиваются одновременно,
+     * строка стоит примерно как самый медленный из запросов.
+     * Лимит параллельных запросов на хост задаётся в самом ApiClient.
+     */
+    public LegalRowBuilder(ApiClient fed, ExecutorService pool) {
+        this(fed, pool, ColumnSelection.all());
+    }
+
+    /**
+     * columns — какие колонки нужны: запросы, которые не заполняют ни одной выбранной колонки, не делаются
+     * (карточка — реквизиты компании и дата завершения дела, ieb — ИНН управляющего и дата назначения и т.д.).
+     * Невыбранные поля строки остаются пустыми.
+     */
+    public LegalRowBuilder(ApiClient fed, ExecutorService pool, ColumnSelection columns) {
         this.fed = fed;
+        this.sub = new SubRequests(pool);
+
+        this.needCard = columns.anyLegal("Полное наименование", "ИНН", "ОГРН", "КПП", "Уставный капитал",
+                "Дата регистрации", "Адрес", "ОПФ (ОКОПФ)", "ОКВЭД", "Статус организации", "Дата завершения дела");
+        this.regionSelected = columns.legal("Регион");
+        this.needPublications = columns.legal("Кол-во публикаций");
+        this.needTrades = columns.legal("Кол-во торгов");
+        this.caseStatusSelected = columns.legal("Статус дела");
+        this.managerInnSelected = columns.legal("Арбитражный управляющий (ИНН)");
+        this.appointmentDateSelected = columns.legal("Дата назначения управляющего");
     }
 
+    /**
+     * Кол-во торгов брать из готовой карты (TradesSweep) вместо запроса на каждого должника.
+     * Вызывать до запуска конвейера; null — как раньше.
+     */
+    public LegalRowBuilder setTradeCounts(GuidCountMap tradeCounts) {
+        this.tradeCounts = tradeCounts;
+        return this;
+    }
+
+    /**
+     * true → под-запросы идут неблокирующим ApiClient.getJsonAsync (потоки pool не ждут сеть),
+     * false → getJson в pool, как раньше. Вызывать до запуска конвейера.
+     */
+    public LegalRowBuilder setAsyncFetch(boolean async) {
+        sub.setAsync(async);
+        return this;
+    }
+
+    /** Строка целиком; время сборки и её стадий — в Metrics (legal.*) и событием JFR RowBuild. */
     public LegalEntityRow buildFromListItem(JsonNode itemFromBankrotList) throws Exception {
+        RowBuildEvent ev = new RowBuildEvent();
+        ev.begin();
+        try {
+            return Metrics.time("legal.row", () -> build(itemFromBankrotList, ev));
+        } finally {
+            ev.end();
+            if (ev.shouldCommit()) {
+                ev.guid = itemFromBankrotList.path("guid").asText("");
+                ev.entityType = "LEGAL";
+                ev.commit();
+            }
+        }
+    }
+
+    private LegalEntityRow build(JsonNode itemFromBankrotList, RowBuildEvent ev) throws Exception {
         String bankruptGuid = itemFromBankrotList.path("guid").asText(""); // это bankruptGuid для biddings
         LegalEntityRow row = new LegalEntityRow();
         if (bankruptGuid.isBlank()) return row;
+        row.guid = bankruptGuid;
 
         // -----------------------------
         // 1) ДАННЫЕ ИЗ СПИСКА (bankrot.*) — lastLegalCase
@@ -45,11 +126,12 @@ public class LegalRowBuilder {
                 looksLikeProcedure(statusDesc) ? statusDesc : ""
         );
 
-        row.caseStatus = firstNonBlank(
+        String listStatus = firstNonBlank(
                 statusFromBooleans(itemFromBankrotList),
                 statusFromBooleans(last)
         );
-        if (row.caseStatus.isBlank()) row.caseStatus = "Активно";
+        // список статуса не дал → "Активно", пока (если колонка выбрана) не уточнит bankruptcy
+        row.caseStatus = listStatus.isBlank() ? "Активно" : listStatus;
 
         row.arbitrationManagerName = firstNonBlank(
                 last.path("arbitrManagerFio").asText(""),
@@ -90,44 +172,67 @@ public class LegalRowBuilder {
                 bankruptGuid
         );
 
+        // ✅ запрос делаем, только если он заполнит выбранную колонку, которую не дал список
+        boolean card = needCard || (regionSelected && row.region.isBlank());
+        // guid не в формате GUID в карте не посчитан: его торги спрашиваем отдельно, а не пишем 0
+        boolean trades = needTrades && (tradeCounts == null || !tradeCounts.countable(bankruptGuid));
+        boolean bankruptcy = caseStatusSelected && listStatus.isBlank();
+        boolean ieb = (managerInnSelected && row.arbitrationManagerInn.isBlank())
+                || (appointmentDateSelected && isBlank(row.managerAppointmentDate));
+
+        // ✅ все под-запросы независимы друг от друга → запускаем сразу (в pool или по очереди)
         String companyPath = FedresursEndpoints.company(companyGuid);
-        String companyJson = fed.get(companyPath, refererFed());
-        LegalEntityRow base = companyMapper.fromCompanyJson(companyJson, "https://fedresurs.ru" + companyPath);
+        CompletableFuture<JsonNode> companyF = card ? sub.getJson("legal.card", fed, companyPath, refererFed(), false) : null;
+        CompletableFuture<JsonNode> publicationsF = needPublications ? sub.getJson("legal.publications", fed, FedresursEndpoints.companyPublications(companyGuid, 1, 0), refererFed(), true) : SKIPPED;
+        CompletableFuture<JsonNode> tradesF = trades ? sub.getJson("legal.trades", fed, FedresursEndpoints.biddingsByBankruptGuid(bankruptGuid, 1, 0), refererFed(), true) : SKIPPED;
+        CompletableFuture<JsonNode> bankruptcyF = bankruptcy ? sub.getJson("legal.bankruptcy", fed, FedresursEndpoints.companyBankruptcy(companyGuid), refererFed(), true) : SKIPPED;
+        CompletableFuture<JsonNode> iebF = ieb ? sub.getJson("legal.ieb", fed, FedresursEndpoints.companyIeb(companyGuid), refererFed(), true) : SKIPPED;
+        ev.subCalls = count(card, needPublications, trades, bankruptcy, ieb);
 
-        mergeLegal(row, base);
+        if (card) {
+            JsonNode company = SubRequests.await(companyF);
+            LegalEntityRow base = Metrics.time("legal.map", () -> companyMapper.fromCompanyJson(company, "https://fedresurs.ru" + companyPath));
 
-        if (row.region.isBlank()) row.region = RegionExtractor.extract(row.address);
+            mergeLegal(row, base);
 
-        // ✅ CaseEndDate = companies.status.date (жёстко и только так)
-        row.caseEndDate = extractCaseEndDateFromCompany(companyJson);
+            if (row.region.isBlank()) row.region = RegionExtractor.extract(row.address);
+
+            // ✅ CaseEndDate = companies.status.date (жёстко и только так)
+            row.caseEndDate = extractCaseEndDateFromCompany(company);
+        } else {
+            row.sourceUrl = "https://fedresurs.ru" + companyPath;
+        }
 
         // -----------------------------
         // 3) PublicationsCount
         // -----------------------------
-        row.publicationsCount = readCountSafe(FedresursEndpoints.companyPublications(companyGuid, 1, 0));
+        row.publicationsCount = readCountSafe(SubRequests.await(publicationsF));
 
         // -----------------------------
-        // 4) TradesCount — /backend/biddings?bankruptGuid=...
+        // 4) TradesCount — /backend/biddings?bankruptGuid=... (или из карты TradesSweep)
         // -----------------------------
-        row.tradesCount = readCountSafe(FedresursEndpoints.biddingsByBankruptGuid(bankruptGuid, 1, 0));
+        if (needTrades) {
+            row.tradesCount = trades
+                    ? readCountSafe(SubRequests.await(tradesF))
+                    : String.valueOf(tradeCounts.get(bankruptGuid));
+        }
 
         // -----------------------------
         // 5) BANKRUPTCY DETAILS
         // ❌ CaseEndDate оттуда больше НЕ трогаем (только статус дела при желании)
         // -----------------------------
-        fillFromBankruptcy(row, companyGuid);
+        if (bankruptcy) fillFromBankruptcy(row, SubRequests.await(bankruptcyF));
 
         // -----------------------------
         // 6) IEB → INN управляющего + дата (если есть в проекте)
         // -----------------------------
-        fillFromIeb(row, companyGuid);
+        fillFromIeb(row, SubRequests.await(iebF));
 
         return row;
     }
 
-    private String extractCaseEndDateFromCompany(String companyJson) {
+    private String extractCaseEndDateFromCompany(JsonNode croot) {
         try {
-            JsonNode croot = om.readTree(companyJson);
             String iso = croot.path("status").path("date").asText("");
             String ddmmyyyy = Dates.toDdMmYyyyFromIsoDateTime(iso);
             return (ddmmyyyy == null || ddmmyyyy.isBlank()) ? "н/д" : ddmmyyyy;
@@ -136,32 +241,27 @@ public class LegalRowBuilder {
         }
     }
 
-    private void fillFromBankruptcy(LegalEntityRow row, String companyGuid) {
+    private void fillFromBankruptcy(LegalEntityRow row, JsonNode broot) {
         try {
-            String bjson = fed.get(FedresursEndpoints.companyBankruptcy(companyGuid), refererFed());
-            JsonNode broot = om.readTree(bjson);
-
-            // ✅ CaseStatus можно добить отсюда (если пустой)
-            if (row.caseStatus == null || row.caseStatus.isBlank()) {
-                String s = statusFromBooleans(broot);
-                if (!s.isBlank()) row.caseStatus = s;
-            }
+            // ✅ CaseStatus добиваем отсюда (зовётся, только если список статуса не дал — там "Активно" по умолчанию)
+            String s = statusFromBooleans(broot);
+            if (!s.isBlank()) row.caseStatus = s;
 
             // ❌ CaseEndDate здесь больше НЕ меняем
         } catch (Exception ignore) {}
     }
 
-    private void fillFromIeb(LegalEntityRow row, String companyGuid) {
+    private void fillFromIeb(LegalEntityRow row, JsonNode ir) {
         try {
-            String ij = fed.get(FedresursEndpoints.companyIeb(companyGuid), refererFed());
-            JsonNode ir = om.readTree(ij);
-
             JsonNode pd0 = null;
             JsonNode pd = ir.path("pageData");
             if (pd.isArray() && pd.size() > 0) pd0 = pd.get(0);
 
+            // один обход ответа на все deep-ключи ниже
+            JsonKeyIndex deep = new JsonKeyIndex(ir, JsonKeyIndex.DESCRIPTION);
+
             String inn = firstNonBlank(
-                    findDeep(ir, "arbitrationManagerInn", "arbitrationManagerINN", "arbitrManagerInn", "managerInn"),
+                    deep.find("arbitrationManagerInn", "arbitrationManagerINN", "arbitrManagerInn", "managerInn"),
                     ir.path("arbitrationManager").path("inn").asText(""),
                     ir.path("manager").path("inn").asText(""),
                     ir.path("inn").asText(""),
@@ -174,8 +274,8 @@ public class LegalRowBuilder {
             }
 
             String appIso = firstNonBlank(
-                    findDeep(ir, "managerAppointmentDate", "appointmentDate", "arbitrManagerDate", "arbitrManagerSince"),
-                    findDeep(ir, "egrulDateCreate", "dateCreate", "dateCreated"),
+                    deep.find("managerAppointmentDate", "appointmentDate", "arbitrManagerDate", "arbitrManagerSince"),
+                    deep.find("egrulDateCreate", "dateCreate", "dateCreated"),
                     ir.path("date").asText(""),
                     pd0 != null ? pd0.path("managerAppointmentDate").asText("") : "",
                     pd0 != null ? pd0.path("appointmentDate").asText("") : "",
@@ -194,11 +294,21 @@ public class LegalRowBuilder {
 
     // ---------------- helpers ----------------
 
-    private String readCountSafe(String path) {
-        try {
-            String j = fed.get(path, refererFed());
-            JsonNode root = om.readTree(j);
+    // под-запрос не нужен под выбранные колонки: fill-блоки получают пустой ответ
+    private static final CompletableFuture<JsonNode> SKIPPED = CompletableFuture.completedFuture(MissingNode.getInstance());
+
+    private static int count(boolean... xs) {
+        int n = 0;
+        for (boolean x : xs) if (x) n++;
+        return n;
+    }
 
+    private static boolean isBlank(String s) {
+        return s == null || s.isBlank();
+    }
+
+    private String readCountSafe(JsonNode root) {
+        try {
             int found = root.path("found").asInt(-1);
             if (found >= 0) return String.valueOf(found);
 
@@ -268,56 +378,18 @@ public class LegalRowBuilder {
         target.sourceUrl = base.sourceUrl;
     }
 
-    private static String findDeep(JsonNode root, String... keys) {
-        if (root == null || root.isNull() || root.isMissingNode()) return "";
-        for (String k : keys) {
-            String v = findByKey(root, k);
-            if (v != null && !v.isBlank()) return v.trim();
-        }
-        return "";
-    }
-
-    private static String findByKey(JsonNode node, String key) {
-        if (node == null || node.isNull() || node.isMissingNode()) return null;
-
-        if (node.isObject()) {
-            JsonNode direct = node.get(key);
-            if (direct != null && !direct.isNull()) {
-                String s = direct.asText("");
-                if (s != null && !s.isBlank()) return s;
-
-                String name = direct.path("name").asText("");
-                if (!name.isBlank()) return name;
-
-                String desc = direct.path("description").asText("");
-                if (!desc.isBlank()) return desc;
-            }
-
-            var it = node.fields();
-            while (it.hasNext()) {
-                var e = it.next();
-                String got = findByKey(e.getValue(), key);
-                if (got != null && !got.isBlank()) return got;
-            }
-        } else if (node.isArray()) {
-            for (JsonNode x : node) {
-                String got = findByKey(x, key);
-                if (got != null && !got.isBlank()) return got;
-            }
-        }
-        return null;
-    }
-
     private static String statusFromBooleans(JsonNode node) {
         if (node == null || node.isNull() || node.isMissingNode()) return "";
 
-        Boolean active = findDeepBoolean(node,
+        JsonKeyIndex deep = new JsonKeyIndex(node, JsonKeyIndex.DESCRIPTION);
+
+        Boolean active = deep.findBoolean(
                 "isActiveLegalCase", "activeLegalCase",
                 "isActiveCase", "activeCase",
                 "isActive", "active"
         );
 
-        Boolean finished = findDeepBoolean(node,
+        Boolean finished = deep.findBoolean(
                 "isFinished", "finished",
                 "isEnded", "ended",
                 "isClosed", "closed",
@@ -332,44 +404,6 @@ public class LegalRowBuilder {
         return "";
     }
 
-    private static Boolean findDeepBoolean(JsonNode node, String... keys) {
-        if (node == null || node.isNull() || node.isMissingNode()) return null;
-
-        if (node.isObject()) {
-            for (String k : keys) {
-                JsonNode v = node.get(k);
-                if (v != null && !v.isNull()) {
-                    if (v.isBoolean()) return v.asBoolean();
-                    if (v.isInt() || v.isLong()) {
-                        int n = v.asInt();
-                        if (n == 0) return false;
-                        if (n == 1) return true;
-                    }
-                    if (v.isTextual()) {
-                        String t = v.asText("").trim().toLowerCase();
-                        if (t.equals("true")) return true;
-                        if (t.equals("false")) return false;
-                        if (t.equals("1")) return true;
-                        if (t.equals("0")) return false;
-                    }
-                }
-            }
-            var it = node.fields();
-            while (it.hasNext()) {
-                var e = it.next();
-                Boolean got = findDeepBoolean(e.getValue(), keys);
-                if (got != null) return got;
-            }
-        } else if (node.isArray()) {
-            for (JsonNode x : node) {
-                Boolean got = findDeepBoolean(x, keys);
-                if (got != null) return got;
-            }
-        }
-
-        return null;
-    }
-
     private static boolean looksLikeProcedure(String s) {
         if (s == null) return false;
         String x = s.trim().toLowerCase();
@@ -0,0 +1,276 @@
+package com.ain.bankrot.service;
+
+import com.ain.bankrot.api.ApiClient;
+import com.ain.bankrot.util.GuidSet;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Чтение списка bankrot (listCompanies / listPersons) с несколькими страницами в полёте.
+ *
+ * Первая страница читается одна: из неё берётся total. Дальше впереди текущей страницы держится
+ * до pagesInFlight запросов (ровно столько, сколько ещё нужно до need). Темп всё равно задаёт
+ * RateLimiter хоста внутри ApiClient — параллельность лишь убирает ожидание «страница за страницей»,
+ * когда задержка ответа больше интервала лимитера.
+ *
+ * Список живой и за время прогона «едет»: новые банкроты сдвигают элементы вниз (дубли на стыке
+ * страниц), закрытые дела — вверх (элементы проскакивают мимо стыка). Поэтому:
+ * - соседние страницы перекрываются на overlap элементов (шаг offset'а — pageSize - overlap);
+ * - guid'ы уже отданных элементов помнит GuidSet, повторы отсекаются до обогащения;
+ * - стык, где ни один элемент перекрытия раньше не встречался, подозрителен (сдвиг вверх больше
+ *   перекрытия) — после основного прохода такие места перечитываются (gap-check) и отдаются то,
+ *   чего ещё не было.
+ *
+ * Стык проверяется только по уже известным guid'ам: у первой страницы предыдущей нет, и без подсказки
+ * её стык не проверить. Продолжение прерванного прогона (startOffset > 0) поэтому передаёт known — guid'ы
+ * уже готовых строк (CrawlJournal.knownGuids): чтение начинается на overlap элементов раньше startOffset,
+ * готовые элементы отсекаются как повторы при любом сдвиге вниз, а первый стык проверяется как обычный.
+ *
+ * Потребителю страницы отдаются строго по порядку offset'ов, как только готова голова окна:
+ * reorder-буфер конвейера рассчитан на порядок списка.
+ * total не пришёл → как раньше: одна страница впереди, конец — по короткой/пустой странице.
+ */
+final class ListPager {
+    private static final Logger log = LoggerFactory.getLogger(ListPager.class);
+
+    /** Получатель страниц (вызывается из потока run, по порядку offset'ов). */
+    interface PageSink {
+        /**
+         * @param fetched сколько элементов пришло на странице
+         * @param items   новые (ещё не отданные) элементы страницы
+         */
+        void page(int offset, int fetched, List<Item> items) throws Exception;
+    }
+
+    /** Элемент списка и его позиция в списке на момент чтения страницы. */
+    static final class Item {
+        final long position;
+        final JsonNode node;
+
+        Item(long position, JsonNode node) {
+            this.position = position;
+            this.node = node;
+        }
+    }
+
+    private static final int HEAD = 350;
+
+    private final ApiClient bankrot;
+    private final int pageSize;
+    private final int pagesInFlight;
+    private final int overlap;
+    private final ExecutorService prefetch;
+
+    /** @param overlap на сколько элементов перекрываются соседние страницы (0 — без перекрытия и gap-check) */
+    ListPager(ApiClient bankrot, int pageSize, int pagesInFlight, int overlap, ExecutorService prefetch) {
+        this.bankrot = bankrot;
+        this.pageSize = pageSize;
+        this.pagesInFlight = Math.max(1, pagesInFlight);
+        this.overlap = Math.max(0, Math.min(overlap, pageSize / 2));
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * Читает список с startOffset, пока не наберётся need новых элементов (или список не кончится).
+     * Последняя страница обрезается до need.
+     *
+     * @return сколько элементов отдано
+     */
+    long run(String name, CrawlPipeline.ListPath listPath, int startOffset, int need, PageSink sink) throws Exception {
+        return run(name, listPath, startOffset, need, null, sink);
+    }
+
+    /**
+     * Как run, но guid'ы из known считаются уже отданными (known дополняется по ходу чтения).
+     * Непустой known → чтение начинается с startOffset - overlap, и первый стык тоже проверяется;
+     * gap-check тогда может перечитать и страницу до startOffset.
+     */
+    long run(String name, CrawlPipeline.ListPath listPath, int startOffset, int need, GuidSet known,
+             PageSink sink) throws Exception {
+        if (need <= 0) return 0;
+
+        boolean seeded = known != null && known.size() > 0;
+        GuidSet seen = known != null ? known : new GuidSet(Math.min(need, 1 << 20));
+        if (seeded) startOffset = Math.max(0, startOffset - overlap);
+        int floor = seeded ? 0 : startOffset;             // ниже floor gap-check не перечитывает
+        List<Integer> suspicious = new ArrayList<>();   // offset'ы страниц, перед которыми мог быть пропуск
+
+        int stride = pageSize - overlap;
+        long delivered = 0;
+        long total = -1;                              // последний известный total (список может расти/сжиматься)
+        long nextOffset = startOffset;
+        int inFlight = 1;                             // до первого total — только одна страница
+        int duplicates = 0;
+
+        ArrayDeque<Pending> ahead = new ArrayDeque<>();
+        try {
+            boolean first = true;
+            while (true) {
+                if (ahead.isEmpty()) {
+                    if (total >= 0 && nextOffset >= total) break;
+                    ahead.add(fetch(name, listPath, (int) nextOffset));
+                    nextOffset += stride;
+                }
+
+                Pending head = ahead.poll();
+                Page page = SubRequests.await(head.page);
+                if (page.total >= 0) total = page.total;
+
+                if (first && page.total >= 0) {
+                    inFlight = pagesInFlight;
+                    long end = Math.min((long) startOffset + need, page.total);
+                    long pages = Math.max(0, (end - startOffset - overlap + stride - 1) / stride);
+                    log.info("LIST {} total={} -> ~{} pages from offset {}, {} in flight, overlap {}",
+                            name, page.total, pages, startOffset, inFlight, overlap);
+                }
+
+                if (page.items.isEmpty()) break;
+
+                // ✅ стык страниц: ни одного знакомого guid в перекрытии → список сдвинулся вверх сильнее overlap
+                // (у первой страницы стык есть только при продолжении — с guid'ами прошлого прогона)
+                boolean boundary = !first || (seeded && startOffset > 0);
+                if (boundary && overlap > 0 && page.items.size() >= overlap && !anySeen(page.items, overlap, seen)) {
+                    suspicious.add(head.offset);
+                }
+                first = false;
+
+                List<Item> fresh = fresh(page.items, head.offset, seen);
+                duplicates += page.items.size() - fresh.size();
+                if (delivered + fresh.size() > need) fresh = fresh.subList(0, (int) (need - delivered));
+
+                boolean last = page.items.size() < pageSize || delivered + fresh.size() >= need;
+
+                // ✅ следующие страницы грузятся, пока потребитель разбирает эту (ровно столько, сколько ещё нужно)
+                if (!last) {
+                    long expected = delivered + fresh.size() + (long) ahead.size() * stride;
+                    while (ahead.size() < inFlight && (total < 0 || nextOffset < total) && expected < need) {
+                        ahead.add(fetch(name, listPath, (int) nextOffset));
+                        nextOffset += stride;
+                        expected += stride;
+                    }
+                }
+
+                sink.page(head.offset, page.items.size(), fresh);
+                delivered += fresh.size();
+
+                if (last) break;
+            }
+        } finally {
+            // досрочный выход (need набран, ошибка, прерывание) — лишние страницы не ждём
+            for (Pending p : ahead) p.page.cancel(true);
+        }
+
+        if (duplicates > 0) log.info("LIST {} skipped {} duplicates (list drift / page overlap)", name, duplicates);
+
+        if (!suspicious.isEmpty() && delivered < need) {
+            delivered += gapCheck(name, listPath, floor, need - delivered, suspicious, seen, sink);
+        }
+        return delivered;
+    }
+
+    /**
+     * Gap-check: перечитывает по странице перед каждым подозрительным стыком (туда уехали пропущенные
+     * элементы) и отдаёт то, чего ещё не было. Страницы грузятся параллельно, отдаются по порядку.
+     */
+    private long gapCheck(String name, CrawlPipeline.ListPath listPath, int floor, long need,
+                          List<Integer> suspicious, GuidSet seen, PageSink sink) throws Exception {
+        List<Pending> reread = new ArrayList<>(suspicious.size());
+        for (int boundary : suspicious) {
+            reread.add(fetch(name, listPath, Math.max(floor, boundary - pageSize)));
+        }
+
+        long delivered = 0;
+        try {
+            for (Pending p : reread) {
+                if (delivered >= need) break;
+                Page page = SubRequests.await(p.page);
+                List<Item> fresh = fresh(page.items, p.offset, seen);
+                if (delivered + fresh.size() > need) fresh = fresh.subList(0, (int) (need - delivered));
+                sink.page(p.offset, page.items.size(), fresh);
+                delivered += fresh.size();
+            }
+        } finally {
+            for (Pending p : reread) p.page.cancel(true);
+        }
+
+        log.info("LIST {} gap-check: {} suspicious page boundaries re-read, {} missed items recovered",
+                name, suspicious.size(), delivered);
+        return delivered;
+    }
+
+    /** Элементы страницы, которых ещё не было; их guid'ы запоминаются. */
+    private static List<Item> fresh(List<JsonNode> items, int offset, GuidSet seen) {
+        List<Item> out = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            JsonNode item = items.get(i);
+            if (seen.add(item.path("guid").asText(null))) out.add(new Item(offset + i, item));
+        }
+        return out;
+    }
+
+    private static boolean anySeen(List<JsonNode> items, int n, GuidSet seen) {
+        for (int i = 0; i < n; i++) {
+            if (seen.contains(items.get(i).path("guid").asText(null))) return true;
+        }
+        return false;
+    }
+
+    // =========================================================
+    // page
+    // =========================================================
+
+    private static final class Page {
+        final int total;
+        final List<JsonNode> items;
+
+        Page(int total, List<JsonNode> items) {
+            this.total = total;
+            this.items = items;
+        }
+    }
+
+    private static final class Pending {
+        final int offset;
+        final CompletableFuture<Page> page;
+
+        Pending(int offset, CompletableFuture<Page> page) {
+            this.offset = offset;
+            this.page = page;
+        }
+    }
+
+    /** Элементы pageData одной страницы: читаются из ответа потоком, без дерева всей страницы. */
+    private Pending fetch(String name, CrawlPipeline.ListPath listPath, int offset) {
+        return new Pending(offset, CompletableFuture.supplyAsync(() -> {
+            try {
+                String path = listPath.page(pageSize, offset);
+                List<JsonNode> items = new ArrayList<>(pageSize);
+                ApiClient.ListPage page = bankrot.getListPage(path, Map.of(), items::add);
+
+                log.info("LIST {} {} -> items={} total={}", name, path, page.items, page.total);
+                // toString() первой записи — сериализация дерева: только если DEBUG реально включён
+                if (!items.isEmpty() && log.isDebugEnabled()) {
+                    log.debug("LIST {} first={}", name, head(items.get(0).toString()));
+                }
+
+                return new Page(page.total, items);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, prefetch));
+    }
+
+    private static String head(String s) {
+        if (s == null) return "null";
+        return s.substring(0, Math.min(HEAD, s.length()));
+    }
+}
@@ -11,52 +11,59 @@ public class PersonMapper {
     private final ObjectMapper om = new ObjectMapper();
 
     public PhysicalPersonRow fromPersonJson(String personJson, String sourceUrl) throws Exception {
-        JsonNode p = om.readTree(personJson);
+        return fromPersonJson(om.readTree(personJson), sourceUrl);
+    }
 
+    /** Карточка уже разобрана (ApiClient.getJson) — без лишнего круга через String. */
+    public PhysicalPersonRow fromPersonJson(JsonNode p, String sourceUrl) {
         PhysicalPersonRow row = new PhysicalPersonRow();
         row.sourceUrl = sourceUrl;
 
+        // deep-поиск по карточке: один обход на все ключи (строится при первом обращении)
+        JsonKeyIndex deep = new JsonKeyIndex(p, JsonKeyIndex.VALUE);
+
         // --- ФИО (УЛУЧШЕННЫЙ разбор) ---
-        row.fullName = buildFullName(p);
+        row.fullName = buildFullName(p, deep);
 
         // --- идентификаторы ---
-        row.inn = firstNonBlank(
-                p.path("inn").asText(""),
-                findDeep(p, "inn")
+        // ✅ варианты вычисляются по очереди: deep нужен, только если прямого поля нет
+        row.inn = JsonKeyIndex.firstNonBlank(
+                () -> p.path("inn").asText(""),
+                () -> deep.find("inn")
         );
 
-        row.snils = firstNonBlank(
-                p.path("snils").asText(""),
-                findDeep(p, "snils")
+        row.snils = JsonKeyIndex.firstNonBlank(
+                () -> p.path("snils").asText(""),
+                () -> deep.find("snils")
         );
 
         // --- дата и место рождения ---
         row.birthDate = Dates.toDdMmYyyyFromIsoDateTime(
-                firstNonBlank(
-                        p.path("birthdateBankruptcy").asText(""),
-                        p.path("birthDate").asText(""),
-                        findDeep(p, "birthdateBankruptcy", "birthDate", "birthdate", "dateOfBirth")
+                JsonKeyIndex.firstNonBlank(
+                        () -> p.path("birthdateBankruptcy").asText(""),
+                        () -> p.path("birthDate").asText(""),
+                        () -> deep.find("birthdateBankruptcy", "birthDate", "birthdate", "dateOfBirth")
                 )
         );
 
-        row.birthPlace = firstNonBlank(
-                p.path("birthplaceBankruptcy").asText(""),
-                p.path("birthPlace").asText(""),
-                findDeep(p, "birthplaceBankruptcy", "birthPlace", "birthplace", "placeOfBirth")
+        row.birthPlace = JsonKeyIndex.firstNonBlank(
+                () -> p.path("birthplaceBankruptcy").asText(""),
+                () -> p.path("birthPlace").asText(""),
+                () -> deep.find("birthplaceBankruptcy", "birthPlace", "birthplace", "placeOfBirth")
         );
 
         // --- адрес проживания ---
-        row.residenceAddress = firstNonBlank(
-                p.path("address").asText(""),
-                p.path("residenceAddress").asText(""),
-                findDeep(p, "residenceAddress", "address", "fullAddress", "value")
+        row.residenceAddress = JsonKeyIndex.firstNonBlank(
+                () -> p.path("address").asText(""),
+                () -> p.path("residenceAddress").asText(""),
+                () -> deep.find("residenceAddress", "address", "fullAddress", "value")
         );
 
         // --- регион из адреса ---
         row.region = RegionExtractor.extract(row.residenceAddress);
 
         // --- "предыдущее ФИО" по ТЗ = ПРЕДЫДУЩАЯ ФАМИЛИЯ ---
-        row.previousFullName = extractPreviousSurname(p);
+        row.previousFullName = extractPreviousSurname(p, deep);
 
         // защита: если предыдущая фамилия = текущая фамилия, очищаем
         String currentSurname = extractSurnameFromFio(row.fullName);
@@ -72,13 +79,11 @@ public class PersonMapper {
     // ================= helpers =================
 
     /** Собирает ФИО из всех возможных вариантов (включая deep-поиск) */
-    private static String buildFullName(JsonNode p) {
+    private static String buildFullName(JsonNode p, JsonKeyIndex deep) {
 
         // 0) deep-поиск готовой строки (часто лежит вложенно)
-        String deep = firstNonBlank(
-                findDeep(p, "fullName", "fio", "name", "personName", "debtorName")
-        );
-        if (!deep.isBlank()) return normalizeSpaces(deep);
+        String deepName = deep.find("fullName", "fio", "name", "personName", "debtorName");
+        if (!deepName.isBlank()) return normalizeSpaces(deepName);
 
         // 1) прямые поля
         String direct = firstNonBlank(
@@ -97,9 +102,9 @@ public class PersonMapper {
         if (!combined.isBlank()) return combined;
 
         // 3) раздельные поля, но вложенные где-то глубже
-        String last2 = findDeep(p, "lastName", "surname");
-        String first2 = findDeep(p, "firstName", "givenName");
-        String middle2 = findDeep(p, "middleName", "patronymic");
+        String last2 = deep.find("lastName", "surname");
+        String first2 = deep.find("firstName", "givenName");
+        String middle2 = deep.find("middleName", "patronymic");
 
         return normalizeSpaces((last2 + " " + first2 + " " + middle2));
     }
@@ -110,7 +115,7 @@ public class PersonMapper {
      * ВАЖНО: в твоём реальном JSON `nameHistories` может быть МАССИВОМ СТРОК:
      *   "nameHistories": ["Скрипкина Оксана Васильевна"]
      */
-    private static String extractPreviousSurname(JsonNode p) {
+    private static String extractPreviousSurname(JsonNode p, JsonKeyIndex deep) {
 
         JsonNode histories = p.path("nameHistories");
         if (histories.isArray()) {
@@ -150,16 +155,14 @@ public class PersonMapper {
         }
 
         // deep-fallback: ключи именно для фамилии
-        String deepLast = firstNonBlank(
-                findDeep(p, "previousLastName", "oldLastName", "surnamePrevious", "lastNamePrevious"),
-                findDeep(p, "previousSurname", "oldSurname")
+        String deepLast = JsonKeyIndex.firstNonBlank(
+                () -> deep.find("previousLastName", "oldLastName", "surnamePrevious", "lastNamePrevious"),
+                () -> deep.find("previousSurname", "oldSurname")
         );
         if (!deepLast.isBlank()) return normalizeSpaces(deepLast);
 
         // deep: если дали "предыдущее ФИО" строкой — берём фамилию как первое слово
-        String deepFio = firstNonBlank(
-                findDeep(p, "previousFullName", "previousName", "oldName", "fioPrevious", "fullNamePrevious")
-        );
+        String deepFio = deep.find("previousFullName", "previousName", "oldName", "fioPrevious", "fullNamePrevious");
         return extractSurnameFromFio(deepFio);
     }
 
@@ -180,46 +183,4 @@ public class PersonMapper {
         for (String x : xs) if (x != null && !x.isBlank()) return x.trim();
         return "";
     }
-
-    // ===== deep-find: ищем ключ где угодно внутри JSON =====
-    private static String findDeep(JsonNode root, String... keys) {
-        if (root == null || root.isNull() || root.isMissingNode()) return "";
-        for (String k : keys) {
-            String v = findByKey(root, k);
-            if (v != null && !v.isBlank()) return v.trim();
-        }
-        return "";
-    }
-
-    private static String findByKey(JsonNode node, String key) {
-        if (node == null || node.isNull() || node.isMissingNode()) return null;
-
-        if (node.isObject()) {
-            JsonNode direct = node.get(key);
-            if (direct != null && !direct.isNull()) {
-                String s = direct.asText("");
-                if (s != null && !s.isBlank()) return s;
-
-                // если это объект с полями name/value
-                String name = direct.path("name").asText("");
-                if (!name.isBlank()) return name;
-
-                String value = direct.path("value").asText("");
-                if (!value.isBlank()) return value;
-            }
-
-            var it = node.fields();
-            while (it.hasNext()) {
-                var e = it.next();
-                String got = findByKey(e.getValue(), key);
-                if (got != null && !got.isBlank()) return got;
-            }
-        } else if (node.isArray()) {
-            for (JsonNode x : node) {
-                String got = findByKey(x, key);
-                if (got != null && !got.isBlank()) return got;
-            }
-        }
-        return null;
-    }
-}
\ No newline at end of file
+}
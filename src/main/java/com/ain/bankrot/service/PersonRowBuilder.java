@@ -2,22 +2,63 @@ package com.ain.bankrot.service;
 
 import com.ain.bankrot.api.ApiClient;
 import com.ain.bankrot.api.FedresursEndpoints;
+import com.ain.bankrot.excel.ColumnSelection;
+import com.ain.bankrot.metrics.Metrics;
+import com.ain.bankrot.metrics.RowBuildEvent;
 import com.ain.bankrot.model.physical.PhysicalPersonRow;
 import com.ain.bankrot.util.Dates;
 import com.ain.bankrot.util.RegionExtractor;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 
 public class PersonRowBuilder {
 
     private final ApiClient fed;
-    private final ObjectMapper om = new ObjectMapper();
     private final PersonMapper personMapper = new PersonMapper();
+    private final SubRequests sub;
+
+    // какие под-запросы нужны под выбранные колонки (см. ColumnSelection)
+    private final boolean needCard;
+    private final boolean regionSelected;
+    private final boolean previousNameSelected;
+    private final boolean needEntrepreneurs;
 
     public PersonRowBuilder(ApiClient fed) {
+        this(fed, null);
+    }
+
+    /**
+     * pool != null → карточка и individual-entrepreneurs запрашиваются одновременно.
+     * general-info зависит от карточки (нужен только если нет прежней фамилии), поэтому идёт после неё.
+     */
+    public PersonRowBuilder(ApiClient fed, ExecutorService pool) {
+        this(fed, pool, ColumnSelection.all());
+    }
+
+    /**
+     * columns — какие колонки нужны: без ИП-колонок нет запроса individual-entrepreneurs,
+     * без персональных данных — карточки, без прежнего ФИО — general-info. Невыбранные поля остаются пустыми.
+     */
+    public PersonRowBuilder(ApiClient fed, ExecutorService pool, ColumnSelection columns) {
         this.fed = fed;
+        this.sub = new SubRequests(pool);
+
+        this.previousNameSelected = columns.physical("Предыдущее ФИО");
+        this.needCard = previousNameSelected || columns.anyPhysical("ФИО", "ИНН", "СНИЛС",
+                "Дата рождения", "Место рождения", "Адрес проживания");
+        this.regionSelected = columns.physical("Регион");
+        this.needEntrepreneurs = columns.anyPhysical("ОГРНИП", "Статус ИП", "ОКВЭД",
+                "Дата регистрации ИП", "Дата прекращения ИП");
+    }
+
+    /** То же, что LegalRowBuilder.setAsyncFetch: карточка и individual-entrepreneurs без потоков pool. */
+    public PersonRowBuilder setAsyncFetch(boolean async) {
+        sub.setAsync(async);
+        return this;
     }
 
     /**
@@ -25,9 +66,25 @@ public class PersonRowBuilder {
      * где есть guid и lastLegalCase.
      */
     public PhysicalPersonRow buildFromListItem(JsonNode itemFromBankrotList) throws Exception {
+        RowBuildEvent ev = new RowBuildEvent();
+        ev.begin();
+        try {
+            return Metrics.time("person.row", () -> build(itemFromBankrotList, ev));
+        } finally {
+            ev.end();
+            if (ev.shouldCommit()) {
+                ev.guid = itemFromBankrotList.path("guid").asText("");
+                ev.entityType = "PERSON";
+                ev.commit();
+            }
+        }
+    }
+
+    private PhysicalPersonRow build(JsonNode itemFromBankrotList, RowBuildEvent ev) throws Exception {
         String guid = itemFromBankrotList.path("guid").asText("");
         PhysicalPersonRow row = new PhysicalPersonRow();
         if (guid.isBlank()) return row;
+        row.guid = guid;
 
         // -----------------------------
         // 1) Деловые поля из списка (lastLegalCase)
@@ -78,9 +135,27 @@ public class PersonRowBuilder {
         // -----------------------------
         // 2) Карточка физлица (fedresurs.ru/backend/persons/{guid})
         // -----------------------------
+        // ✅ запрос делаем, только если он заполнит выбранную колонку (регион — если его не дал список)
         String personPath = FedresursEndpoints.person(guid);
-        String personJson = fed.get(personPath, refererFed());
-        PhysicalPersonRow base = personMapper.fromPersonJson(personJson, "https://fedresurs.ru" + personPath);
+        boolean card = needCard || (regionSelected && row.region.isBlank());
+        if (!card) {
+            row.sourceUrl = "https://fedresurs.ru" + personPath;
+            if (needEntrepreneurs) {
+                ev.subCalls = 1;
+                fillFromIndividualEntrepreneurs(row, Metrics.time("person.entrepreneurs",
+                        () -> getSafe(FedresursEndpoints.personIndividualEntrepreneurs(guid, 1, 0))));
+            }
+            return row;
+        }
+
+        CompletableFuture<JsonNode> personF = sub.getJson("person.card", fed, personPath, refererFed(), false);
+        CompletableFuture<JsonNode> entrepreneursF = needEntrepreneurs
+                ? sub.getJson("person.entrepreneurs", fed, FedresursEndpoints.personIndividualEntrepreneurs(guid, 1, 0), refererFed(), true)
+                : null;
+        ev.subCalls = needEntrepreneurs ? 2 : 1;
+
+        JsonNode person = SubRequests.await(personF);
+        PhysicalPersonRow base = Metrics.time("person.map", () -> personMapper.fromPersonJson(person, "https://fedresurs.ru" + personPath));
 
         // ✅ важно: НЕ ЗАТИРАТЬ пустыми значениями
         mergePhysical(row, base);
@@ -104,20 +179,22 @@ public class PersonRowBuilder {
         // -----------------------------
         // 3) ИП-блок: OGRNIP / статус / ОКВЭД / даты
         // -----------------------------
-        fillFromIndividualEntrepreneurs(row, guid);
+        if (entrepreneursF != null) fillFromIndividualEntrepreneurs(row, SubRequests.await(entrepreneursF));
 
         // -----------------------------
         // 4) PreviousFullName fallback: /general-info (если пусто)
         //     По ТЗ мы храним ФАМИЛИЮ, значит превращаем строку -> фамилию
         // -----------------------------
-        if (row.previousFullName == null || row.previousFullName.isBlank()) {
+        if (previousNameSelected && (row.previousFullName == null || row.previousFullName.isBlank())) {
             try {
-                String gj = fed.get(FedresursEndpoints.personGeneralInfo(guid), refererFed());
-                JsonNode gr = om.readTree(gj);
+                ev.subCalls++;
+                JsonNode gr = Metrics.time("person.general-info",
+                        () -> fed.getJson(FedresursEndpoints.personGeneralInfo(guid), refererFed()));
 
+                JsonKeyIndex deep = new JsonKeyIndex(gr, JsonKeyIndex.DESCRIPTION);
                 String prevFio = firstNonBlank(
-                        findDeep(gr, "previousFullName", "previousName", "oldName"),
-                        findDeep(gr, "fioPrevious", "fullNamePrevious")
+                        deep.find("previousFullName", "previousName", "oldName"),
+                        deep.find("fioPrevious", "fullNamePrevious")
                 );
 
                 prevFio = prevFio == null ? "" : prevFio.trim();
@@ -136,11 +213,8 @@ public class PersonRowBuilder {
     // =========================================================
     // entrepreneur block (individual-entrepreneurs)
     // =========================================================
-    private void fillFromIndividualEntrepreneurs(PhysicalPersonRow row, String guid) {
+    private void fillFromIndividualEntrepreneurs(PhysicalPersonRow row, JsonNode er) {
         try {
-            String ej = fed.get(FedresursEndpoints.personIndividualEntrepreneurs(guid, 1, 0), refererFed());
-            JsonNode er = om.readTree(ej);
-
             JsonNode pd = er.path("pageData");
             if (!pd.isArray() || pd.size() == 0) return;
 
@@ -230,6 +304,15 @@ public class PersonRowBuilder {
         if (base.sourceUrl != null && !base.sourceUrl.isBlank()) target.sourceUrl = base.sourceUrl;
     }
 
+    /** GET, который не роняет строку: любая ошибка → MissingNode (fill-блоки сами молча пропускают пустое). */
+    private JsonNode getSafe(String path) {
+        try {
+            return fed.getJson(path, refererFed());
+        } catch (Exception e) {
+            return MissingNode.getInstance();
+        }
+    }
+
     private static Map<String, String> refererFed() {
         return Map.of("Referer", "https://fedresurs.ru/");
     }
@@ -248,49 +331,6 @@ public class PersonRowBuilder {
         return code + " — " + name;
     }
 
-    // =========================================================
-    // deep-find
-    // =========================================================
-    private static String findDeep(JsonNode root, String... keys) {
-        if (root == null || root.isNull() || root.isMissingNode()) return "";
-        for (String k : keys) {
-            String v = findByKey(root, k);
-            if (v != null && !v.isBlank()) return v.trim();
-        }
-        return "";
-    }
-
-    private static String findByKey(JsonNode node, String key) {
-        if (node == null || node.isNull() || node.isMissingNode()) return null;
-
-        if (node.isObject()) {
-            JsonNode direct = node.get(key);
-            if (direct != null && !direct.isNull()) {
-                String s = direct.asText("");
-                if (s != null && !s.isBlank()) return s;
-
-                String name = direct.path("name").asText("");
-                if (!name.isBlank()) return name;
-
-                String desc = direct.path("description").asText("");
-                if (!desc.isBlank()) return desc;
-            }
-
-            var it = node.fields();
-            while (it.hasNext()) {
-                var e = it.next();
-                String got = findByKey(e.getValue(), key);
-                if (got != null && !got.isBlank()) return got;
-            }
-        } else if (node.isArray()) {
-            for (JsonNode x : node) {
-                String got = findByKey(x, key);
-                if (got != null && !got.isBlank()) return got;
-            }
-        }
-        return null;
-    }
-
     private static boolean looksLikeProcedure(String s) {
         if (s == null) return false;
         String x = s.trim().toLowerCase();
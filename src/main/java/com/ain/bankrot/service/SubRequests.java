@@ -0,0 +1,91 @@
+package com.ain.bankrot.service;
+
+import com.ain.bankrot.api.ApiClient;
+import com.ain.bankrot.metrics.Metrics;
+import com.ain.bankrot.metrics.StageStats;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Запуск независимых под-запросов одного должника (карточка, счётчики, ieb ...).
+ * pool == null → всё выполняется сразу в вызывающем потоке, как раньше (последовательно).
+ * async → GET-запросы идут через ApiClient.getJsonAsync: ни поток пула, ни вызывающий поток
+ * не заняты ожиданием ответа, лимитера и backoff (pool для них не нужен).
+ */
+final class SubRequests {
+
+    private final ExecutorService pool;
+    private volatile boolean async;
+
+    SubRequests(ExecutorService pool) {
+        this.pool = pool;
+    }
+
+    void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    /**
+     * GET JSON под-запроса с замером в стадию stage.
+     * @param safe true → любая ошибка даёт MissingNode (строка не падает), false → ошибка уходит в await()
+     */
+    CompletableFuture<JsonNode> getJson(String stage, ApiClient client, String path, Map<String, String> headers,
+                                        boolean safe) {
+        if (!async) {
+            return submit(stage, () -> {
+                if (!safe) return client.getJson(path, headers);
+                try {
+                    return client.getJson(path, headers);
+                } catch (Exception e) {
+                    return MissingNode.getInstance();
+                }
+            });
+        }
+
+        // время от отправки до ответа (в очереди пула тут ничего не ждёт)
+        StageStats st = Metrics.stage(stage);
+        long t0 = System.nanoTime();
+        CompletableFuture<JsonNode> f = client.getJsonAsync(path, headers)
+                .whenComplete((v, e) -> st.record(System.nanoTime() - t0, e == null));
+        return safe ? f.exceptionally(e -> MissingNode.getInstance()) : f;
+    }
+
+    /** submit с замером: время самого запроса (без ожидания в очереди пула) → стадия stage в Metrics. */
+    <T> CompletableFuture<T> submit(String stage, Callable<T> call) {
+        return submit(() -> Metrics.time(stage, call));
+    }
+
+    <T> CompletableFuture<T> submit(Callable<T> call) {
+        if (pool == null) {
+            try {
+                return CompletableFuture.completedFuture(call.call());
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, pool);
+    }
+
+    /** join() с разворачиванием исходного исключения (чтобы builder падал так же, как при прямом вызове). */
+    static <T> T await(CompletableFuture<T> f) throws Exception {
+        try {
+            return f.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception ex) throw ex;
+            throw e;
+        }
+    }
+}
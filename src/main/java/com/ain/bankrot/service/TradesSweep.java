@@ -0,0 +1,127 @@
+package com.ain.bankrot.service;
+
+import com.ain.bankrot.api.ApiClient;
+import com.ain.bankrot.api.FedresursEndpoints;
+import com.ain.bankrot.metrics.Metrics;
+import com.ain.bankrot.util.GuidCountMap;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Кол-во торгов для всех банкротов разом: один проход по листингу /backend/biddings большими страницами,
+ * торги считаются по bankruptGuid в GuidCountMap. LegalRowBuilder (setTradeCounts) берёт число оттуда
+ * вместо отдельного запроса biddings?bankruptGuid=...&limit=1 на каждого должника.
+ *
+ * Выгодно на полных выгрузках реестра: тысячи мелких запросов под лимитером → сотни крупных.
+ * Листинг живой, поэтому число может разойтись с поштучным запросом на торги, появившиеся за время прохода.
+ */
+public final class TradesSweep {
+    private static final Logger log = LoggerFactory.getLogger(TradesSweep.class);
+
+    private TradesSweep() {}
+
+    /**
+     * Страницы после первой (когда известен total) грузятся через pool (null — по очереди);
+     * параллельность на хост всё равно ограничивает сам ApiClient.
+     *
+     * @return bankruptGuid → число торгов; null — листинг дочитать не удалось (блок, нет total, короткая страница):
+     *         торги считаются по одному, как раньше
+     */
+    public static GuidCountMap run(ApiClient fed, int pageSize, ExecutorService pool) {
+        try {
+            return Metrics.time("legal.trades-sweep", () -> sweep(fed, pageSize, new SubRequests(pool)));
+        } catch (Exception e) {
+            log.warn("TRADES sweep failed, falling back to per-debtor requests: {}", e.toString());
+            return null;
+        }
+    }
+
+    private static GuidCountMap sweep(ApiClient fed, int pageSize, SubRequests sub) throws Exception {
+        long started = System.nanoTime();
+
+        List<String> firstGuids = new ArrayList<>(pageSize);
+        ApiClient.ListPage first = fed.getListPage(FedresursEndpoints.biddings(pageSize, 0), refererFed(),
+                item -> firstGuids.add(bankruptGuid(item)));
+        // без total (блок / ошибка / исчерпанные повторы) не знаем, где конец листинга — счёт был бы неполным
+        checkPage(first, 0, pageSize);
+
+        GuidCountMap counts = new GuidCountMap(Math.max(first.total, pageSize));
+        int[] unattributed = {0};
+        merge(counts, firstGuids, unattributed);
+
+        // остальные страницы сразу, в порядке offset'ов
+        long pages = 1;
+        List<CompletableFuture<List<String>>> rest = new ArrayList<>();
+        for (int offset = pageSize; offset < first.total; offset += pageSize) {
+            String path = FedresursEndpoints.biddings(pageSize, offset);
+            int at = offset;
+            rest.add(sub.submit("legal.trades-page", () -> pageGuids(fed, path, at, pageSize)));
+        }
+        try {
+            for (CompletableFuture<List<String>> f : rest) {
+                merge(counts, SubRequests.await(f), unattributed);
+                pages++;
+            }
+        } finally {
+            for (CompletableFuture<List<String>> f : rest) f.cancel(true);
+        }
+
+        log.info("TRADES sweep: {} biddings of {} bankrupts in {} pages, {} without bankruptGuid, {} ms",
+                counts.total(), counts.size(), pages, unattributed[0], (System.nanoTime() - started) / 1_000_000);
+        return counts;
+    }
+
+    private static List<String> pageGuids(ApiClient fed, String path, int offset, int pageSize) throws Exception {
+        List<String> guids = new ArrayList<>(pageSize);
+        checkPage(fed.getListPage(path, refererFed(), item -> guids.add(bankruptGuid(item))), offset, pageSize);
+        return guids;
+    }
+
+    /**
+     * Страница пришла целиком: есть total, и элементов столько, сколько должно быть до конца листинга
+     * (по total этой же страницы — листинг живой и мог укоротиться). Иначе страница заблокирована/оборвана,
+     * и весь проход считается неудачным: лучше поштучные запросы, чем заниженные счётчики.
+     */
+    private static void checkPage(ApiClient.ListPage page, int offset, int pageSize) throws IOException {
+        if (page.total < 0) {
+            throw new IOException("biddings page at offset " + offset + " came without total (blocked?)");
+        }
+        int expected = (int) Math.min(pageSize, Math.max(0L, (long) page.total - offset));
+        if (page.items < expected) {
+            throw new IOException("biddings page at offset " + offset + " is short: "
+                    + page.items + " of " + expected + " items");
+        }
+    }
+
+    private static void merge(GuidCountMap counts, List<String> guids, int[] unattributed) {
+        for (String g : guids) {
+            if (!counts.increment(g)) unattributed[0]++;
+        }
+    }
+
+    private static String bankruptGuid(JsonNode bidding) {
+        return firstNonBlank(
+                bidding.path("bankruptGuid").asText(""),
+                bidding.path("bankrupt").path("guid").asText(""),
+                bidding.path("debtor").path("guid").asText(""),
+                bidding.path("debtorGuid").asText("")
+        );
+    }
+
+    private static Map<String, String> refererFed() {
+        return Map.of("Referer", "https://fedresurs.ru/");
+    }
+
+    private static String firstNonBlank(String... xs) {
+        for (String x : xs) if (x != null && !x.isBlank()) return x.trim();
+        return "";
+    }
+}
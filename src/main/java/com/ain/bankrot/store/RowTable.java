@@ -0,0 +1,257 @@
+package com.ain.bankrot.store;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Колоночное хранилище строк выгрузки: вместо объекта-строки с String на каждую ячейку —
+ * массив на колонку. Способ хранения задаётся видом колонки:
+ * - TEXT   — String[] (почти уникальные значения: наименование, адрес, номер дела);
+ * - DIGITS — long: строка из цифр до 17 знаков вместе с длиной (ИНН, ОГРН, КПП — ведущие нули сохраняются);
+ * - DICT   — int-коды + словарь колонки (регион, статусы, процедура, ОКВЭД, управляющий — повторяются тысячи раз);
+ * - COUNT  — int (счётчики публикаций/торгов);
+ * - DATE   — int yyyymmdd из "dd.MM.yyyy".
+ *
+ * Пустая строка и "н/д" (так builder'ы пишут «нет данных» — например, дата завершения дела почти у всех)
+ * в DIGITS/COUNT/DATE — отдельные коды рядом с null. Остальное, что не ложится в вид колонки (например "1a"),
+ * хранится как есть в редком overflow, так что get возвращает ровно то, что было добавлено (null тоже).
+ *
+ * Потокобезопасно (add/get под монитором таблицы): пишут воркеры конвейера, читают writer и экспорт.
+ */
+public final class RowTable {
+
+    public enum Kind { TEXT, DIGITS, DICT, COUNT, DATE }
+
+    static final String NOT_AVAILABLE = "н/д";
+
+    private static final int NULL = Integer.MIN_VALUE;
+    private static final int OVERFLOW = Integer.MIN_VALUE + 1;
+    private static final int NA = Integer.MIN_VALUE + 2;      // "н/д"
+    private static final int EMPTY = Integer.MIN_VALUE + 3;   // ""
+
+    // DIGITS: (значение << 5) | длина; значение < 10^17 < 2^57, так что упакованное всегда >= 0,
+    // а отрицательные свободны под null/overflow/"н/д"/"" ("0" упаковывается в 1, "00" — в 2)
+    private static final long NULL_DIGITS = -1;
+    private static final long OVERFLOW_DIGITS = -2;
+    private static final long NA_DIGITS = -3;
+    private static final long EMPTY_DIGITS = -4;
+    private static final int MAX_DIGITS = 17;
+
+    private final Kind[] kinds;
+    private final String[][] text;
+    private final int[][] codes;
+    private final long[][] numbers;
+    private final StringDictionary[] dictionaries;
+    private final Map<Long, String> overflow = new HashMap<>();
+
+    private int size;
+    private int capacity;
+
+    public RowTable(List<Kind> kinds, int initialCapacity) {
+        this.kinds = kinds.toArray(new Kind[0]);
+        this.capacity = Math.max(16, initialCapacity);
+        this.text = new String[this.kinds.length][];
+        this.codes = new int[this.kinds.length][];
+        this.numbers = new long[this.kinds.length][];
+        this.dictionaries = new StringDictionary[this.kinds.length];
+
+        for (int c = 0; c < this.kinds.length; c++) {
+            if (this.kinds[c] == Kind.TEXT) {
+                text[c] = new String[capacity];
+            } else if (this.kinds[c] == Kind.DIGITS) {
+                numbers[c] = new long[capacity];
+            } else {
+                codes[c] = new int[capacity];
+                if (this.kinds[c] == Kind.DICT) dictionaries[c] = new StringDictionary();
+            }
+        }
+    }
+
+    /** Добавляет строку (cells — по колонке на элемент, в порядке kinds). @return номер строки */
+    public synchronized int add(String... cells) {
+        if (cells.length != kinds.length) {
+            throw new IllegalArgumentException("Expected " + kinds.length + " cells, got " + cells.length);
+        }
+        if (size == capacity) grow();
+
+        int row = size;
+        for (int c = 0; c < kinds.length; c++) {
+            String v = cells[c];
+            switch (kinds[c]) {
+                case TEXT -> text[c][row] = v;
+                case DIGITS -> numbers[c][row] = encodeDigits(row, c, v);
+                case DICT -> codes[c][row] = v == null ? NULL : dictionaries[c].code(v);
+                case COUNT -> codes[c][row] = encode(row, c, v, false);
+                case DATE -> codes[c][row] = encode(row, c, v, true);
+            }
+        }
+        size++;
+        return row;
+    }
+
+    public synchronized String get(int row, int col) {
+        if (row < 0 || row >= size) throw new IndexOutOfBoundsException("row " + row + " of " + size);
+        if (kinds[col] == Kind.TEXT) return text[col][row];
+        if (kinds[col] == Kind.DIGITS) return decodeDigits(row, col, numbers[col][row]);
+
+        int code = codes[col][row];
+        if (code == NULL) return null;
+        if (code == EMPTY) return "";
+        if (code == NA) return NOT_AVAILABLE;
+        if (code == OVERFLOW) return overflow.get(key(row, col));
+        return switch (kinds[col]) {
+            case DICT -> dictionaries[col].value(code);
+            case COUNT -> String.valueOf(code);
+            default -> unpackDate(code);
+        };
+    }
+
+    /** Вся строка (по ячейке на колонку). */
+    public synchronized String[] row(int row) {
+        String[] out = new String[kinds.length];
+        for (int c = 0; c < kinds.length; c++) out[c] = get(row, c);
+        return out;
+    }
+
+    /**
+     * Очищает таблицу для повторного заполнения (буфер строк, который разбирается целиком):
+     * ёмкость и словари остаются, так что повторяющиеся значения не кодируются заново.
+     */
+    public synchronized void clear() {
+        for (int c = 0; c < kinds.length; c++) {
+            if (text[c] != null) Arrays.fill(text[c], 0, size, null);
+        }
+        overflow.clear();
+        size = 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int columns() {
+        return kinds.length;
+    }
+
+    /** Сколько ячеек ушло в overflow (значения, не легшие в вид своей колонки). */
+    synchronized int overflowSize() {
+        return overflow.size();
+    }
+
+    /** Сколько разных значений в DICT-колонке (для остальных — 0). */
+    public synchronized int distinct(int col) {
+        return dictionaries[col] == null ? 0 : dictionaries[col].size();
+    }
+
+    // =========================================================
+    // encoding
+    // =========================================================
+
+    private int encode(int row, int col, String v, boolean date) {
+        if (v == null) return NULL;
+        if (v.isEmpty()) return EMPTY;
+        if (v.equals(NOT_AVAILABLE)) return NA;
+        int packed = date ? packDate(v) : parseCount(v);
+        if (packed != OVERFLOW) return packed;
+        overflow.put(key(row, col), v);
+        return OVERFLOW;
+    }
+
+    private long encodeDigits(int row, int col, String v) {
+        if (v == null) return NULL_DIGITS;
+        if (v.isEmpty()) return EMPTY_DIGITS;
+        if (v.equals(NOT_AVAILABLE)) return NA_DIGITS;
+        int n = v.length();
+        if (n > MAX_DIGITS) return overflowDigits(row, col, v);
+        long x = 0;
+        for (int i = 0; i < n; i++) {
+            char ch = v.charAt(i);
+            if (ch < '0' || ch > '9') return overflowDigits(row, col, v);
+            x = x * 10 + (ch - '0');
+        }
+        return (x << 5) | n;
+    }
+
+    private long overflowDigits(int row, int col, String v) {
+        overflow.put(key(row, col), v);
+        return OVERFLOW_DIGITS;
+    }
+
+    private String decodeDigits(int row, int col, long packed) {
+        if (packed == NULL_DIGITS) return null;
+        if (packed == EMPTY_DIGITS) return "";
+        if (packed == NA_DIGITS) return NOT_AVAILABLE;
+        if (packed == OVERFLOW_DIGITS) return overflow.get(key(row, col));
+        char[] out = new char[(int) (packed & 31)];
+        long x = packed >>> 5;
+        for (int i = out.length - 1; i >= 0; i--) {
+            out[i] = (char) ('0' + x % 10);
+            x /= 10;
+        }
+        return new String(out);
+    }
+
+    private static long key(int row, int col) {
+        return ((long) row << 8) | col;
+    }
+
+    /** Неотрицательное целое без ведущих нулей (иначе обратно получилась бы другая строка). */
+    private static int parseCount(String v) {
+        int n = v.length();
+        if (n == 0 || n > 9 || (n > 1 && v.charAt(0) == '0')) return OVERFLOW;
+        int x = 0;
+        for (int i = 0; i < n; i++) {
+            char ch = v.charAt(i);
+            if (ch < '0' || ch > '9') return OVERFLOW;
+            x = x * 10 + (ch - '0');
+        }
+        return x;
+    }
+
+    /** "dd.MM.yyyy" → yyyymmdd; другой формат → OVERFLOW. */
+    private static int packDate(String v) {
+        if (v.length() != 10 || v.charAt(2) != '.' || v.charAt(5) != '.') return OVERFLOW;
+        int dd = digits(v, 0, 2), mm = digits(v, 3, 5), yyyy = digits(v, 6, 10);
+        if (dd < 0 || mm < 0 || yyyy < 0) return OVERFLOW;
+        return yyyy * 10000 + mm * 100 + dd;
+    }
+
+    private static String unpackDate(int packed) {
+        int yyyy = packed / 10000, mm = packed / 100 % 100, dd = packed % 100;
+        char[] out = new char[10];
+        put(out, 0, dd, 2);
+        out[2] = '.';
+        put(out, 3, mm, 2);
+        out[5] = '.';
+        put(out, 6, yyyy, 4);
+        return new String(out);
+    }
+
+    private static int digits(String v, int from, int to) {
+        int x = 0;
+        for (int i = from; i < to; i++) {
+            char ch = v.charAt(i);
+            if (ch < '0' || ch > '9') return -1;
+            x = x * 10 + (ch - '0');
+        }
+        return x;
+    }
+
+    private static void put(char[] out, int at, int value, int width) {
+        for (int i = at + width - 1; i >= at; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private void grow() {
+        capacity *= 2;
+        for (int c = 0; c < kinds.length; c++) {
+            if (text[c] != null) text[c] = Arrays.copyOf(text[c], capacity);
+            if (codes[c] != null) codes[c] = Arrays.copyOf(codes[c], capacity);
+            if (numbers[c] != null) numbers[c] = Arrays.copyOf(numbers[c], capacity);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.ain.bankrot.store;
+
+import com.ain.bankrot.model.legal.LegalEntityRow;
+import com.ain.bankrot.model.physical.PhysicalPersonRow;
+
+import java.util.List;
+
+import static com.ain.bankrot.store.RowTable.Kind.COUNT;
+import static com.ain.bankrot.store.RowTable.Kind.DATE;
+import static com.ain.bankrot.store.RowTable.Kind.DICT;
+import static com.ain.bankrot.store.RowTable.Kind.DIGITS;
+import static com.ain.bankrot.store.RowTable.Kind.TEXT;
+
+/**
+ * Строки выгрузки ↔ RowTable. Колонки — в порядке Sheets.LEGAL_HEADERS / PHYSICAL_HEADERS,
+ * так что номер колонки таблицы = номер колонки листа; последняя колонка (LEGAL_GUID / PHYSICAL_GUID) — guid строки.
+ */
+public final class Rows {
+    private Rows() {}
+
+    public static final List<RowTable.Kind> LEGAL_KINDS = List.of(
+            TEXT,   // Полное наименование
+            DIGITS, // ИНН
+            DIGITS, // ОГРН
+            DIGITS, // КПП
+            DICT,   // Уставный капитал
+            DATE,   // Дата регистрации
+            TEXT,   // Адрес
+            DICT,   // Регион
+            DICT,   // ОПФ (ОКОПФ)
+            DICT,   // ОКВЭД
+            DICT,   // Статус организации
+            DICT,   // Процедура
+            TEXT,   // Номер дела
+            DICT,   // Статус дела
+            DATE,   // Дата завершения дела
+            DICT,   // Арбитражный управляющий (ФИО)
+            DIGITS, // Арбитражный управляющий (ИНН)
+            DATE,   // Дата назначения управляющего
+            COUNT,  // Кол-во публикаций
+            COUNT,  // Кол-во торгов
+            TEXT,   // Источник (URL)
+            TEXT    // guid
+    );
+
+    public static final List<RowTable.Kind> PHYSICAL_KINDS = List.of(
+            TEXT,   // ФИО
+            DICT,   // Предыдущее ФИО (фамилия)
+            DIGITS, // ИНН
+            TEXT,   // СНИЛС
+            DATE,   // Дата рождения
+            DICT,   // Место рождения
+            TEXT,   // Адрес проживания
+            DICT,   // Регион
+            DIGITS, // ОГРНИП
+            DICT,   // Статус ИП
+            DICT,   // ОКВЭД
+            DATE,   // Дата регистрации ИП
+            DATE,   // Дата прекращения ИП
+            DICT,   // Статус банкротства
+            DICT,   // Процедура
+            TEXT,   // Номер дела
+            DICT,   // Арбитражный управляющий (ФИО)
+            TEXT,   // Источник (URL)
+            TEXT    // guid
+    );
+
+    /** Номер колонки guid (после колонок листа). */
+    public static final int LEGAL_GUID = LEGAL_KINDS.size() - 1;
+    public static final int PHYSICAL_GUID = PHYSICAL_KINDS.size() - 1;
+
+    public static RowTable legalTable(int initialCapacity) {
+        return new RowTable(LEGAL_KINDS, initialCapacity);
+    }
+
+    public static RowTable physicalTable(int initialCapacity) {
+        return new RowTable(PHYSICAL_KINDS, initialCapacity);
+    }
+
+    // =========================================================
+    // legal
+    // =========================================================
+
+    public static int add(RowTable table, LegalEntityRow x) {
+        return table.add(cells(x));
+    }
+
+    /** Значения строки в порядке колонок листа, последним — guid (как есть, без нормализации). */
+    public static String[] cells(LegalEntityRow x) {
+        return new String[]{
+                x.fullName, x.inn, x.ogrn, x.kpp, x.authorizedCapital, x.registrationDate, x.address,
+                x.region, x.legalForm, x.okved, x.status, x.procedureType, x.caseNumber, x.caseStatus,
+                x.caseEndDate, x.arbitrationManagerName, x.arbitrationManagerInn, x.managerAppointmentDate,
+                x.publicationsCount, x.tradesCount, x.sourceUrl, x.guid};
+    }
+
+    public static LegalEntityRow legal(RowTable table, int row) {
+        String[] c = table.row(row);
+        LegalEntityRow x = new LegalEntityRow();
+        int i = 0;
+        x.fullName = c[i++];
+        x.inn = c[i++];
+        x.ogrn = c[i++];
+        x.kpp = c[i++];
+        x.authorizedCapital = c[i++];
+        x.registrationDate = c[i++];
+        x.address = c[i++];
+        x.region = c[i++];
+        x.legalForm = c[i++];
+        x.okved = c[i++];
+        x.status = c[i++];
+        x.procedureType = c[i++];
+        x.caseNumber = c[i++];
+        x.caseStatus = c[i++];
+        x.caseEndDate = c[i++];
+        x.arbitrationManagerName = c[i++];
+        x.arbitrationManagerInn = c[i++];
+        x.managerAppointmentDate = c[i++];
+        x.publicationsCount = c[i++];
+        x.tradesCount = c[i++];
+        x.sourceUrl = c[i++];
+        x.guid = c[i];
+        return x;
+    }
+
+    // =========================================================
+    // physical
+    // =========================================================
+
+    public static int add(RowTable table, PhysicalPersonRow x) {
+        return table.add(cells(x));
+    }
+
+    /** Значения строки в порядке колонок листа, последним — guid (как есть, без нормализации). */
+    public static String[] cells(PhysicalPersonRow x) {
+        return new String[]{
+                x.fullName, x.previousFullName, x.inn, x.snils, x.birthDate, x.birthPlace, x.residenceAddress,
+                x.region, x.entrepreneurOgrnip, x.entrepreneurStatus, x.okved, x.registrationDate,
+                x.terminationDate, x.bankruptcyStatus, x.procedureType, x.caseNumber,
+                x.arbitrationManagerName, x.sourceUrl, x.guid};
+    }
+
+    public static PhysicalPersonRow physical(RowTable table, int row) {
+        String[] c = table.row(row);
+        PhysicalPersonRow x = new PhysicalPersonRow();
+        int i = 0;
+        x.fullName = c[i++];
+        x.previousFullName = c[i++];
+        x.inn = c[i++];
+        x.snils = c[i++];
+        x.birthDate = c[i++];
+        x.birthPlace = c[i++];
+        x.residenceAddress = c[i++];
+        x.region = c[i++];
+        x.entrepreneurOgrnip = c[i++];
+        x.entrepreneurStatus = c[i++];
+        x.okved = c[i++];
+        x.registrationDate = c[i++];
+        x.terminationDate = c[i++];
+        x.bankruptcyStatus = c[i++];
+        x.procedureType = c[i++];
+        x.caseNumber = c[i++];
+        x.arbitrationManagerName = c[i++];
+        x.sourceUrl = c[i++];
+        x.guid = c[i];
+        return x;
+    }
+}
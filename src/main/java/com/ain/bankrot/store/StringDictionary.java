@@ -0,0 +1,30 @@
+package com.ain.bankrot.store;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Словарь колонки: строка ↔ код (0, 1, 2 ... в порядке первого появления). */
+final class StringDictionary {
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    int code(String value) {
+        Integer c = codes.get(value);
+        if (c != null) return c;
+        int next = values.size();
+        codes.put(value, next);
+        values.add(value);
+        return next;
+    }
+
+    String value(int code) {
+        return values.get(code);
+    }
+
+    int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,112 @@
+package com.ain.bankrot.util;
+
+/**
+ * Счётчики по GUID без объектов на элемент: ключ — два long (как в GuidSet), значение — int,
+ * открытая адресация с линейным пробированием. На сотни тысяч банкротов — единицы МБ.
+ *
+ * Запись (increment) — из одного потока; после заполнения get можно звать из любых потоков,
+ * если карта передана им через happens-before (например, до старта пула).
+ */
+public final class GuidCountMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    // пары (hi, lo) подряд: keys[2*i], keys[2*i+1]; пара (0, 0) — пустая ячейка
+    private long[] keys;
+    private int[] counts;
+    private int mask;
+    private int size;
+    private long total;
+    private int zeroCount;     // нулевой GUID — отдельно, т.к. (0, 0) занят под «пусто»
+
+    public GuidCountMap(int expected) {
+        int cap = MIN_CAPACITY;
+        while (cap * 2L < expected * 3L) cap <<= 1;   // загрузка не больше 2/3
+        keys = new long[cap * 2];
+        counts = new int[cap];
+        mask = cap - 1;
+    }
+
+    /** +1 к счётчику guid; строка не GUID → false (ничего не считается). */
+    public boolean increment(CharSequence guid) {
+        if (!Guids.valid(guid)) return false;
+        add(Guids.hi(guid), Guids.lo(guid), 1);
+        return true;
+    }
+
+    /** Счётчик guid; не встречался (или не GUID) → 0. */
+    public int get(CharSequence guid) {
+        if (!Guids.valid(guid)) return 0;
+        long hi = Guids.hi(guid), lo = Guids.lo(guid);
+        if (hi == 0 && lo == 0) return zeroCount;
+        int i = slot(hi, lo, keys, mask);
+        return keys[2 * i] == hi && keys[2 * i + 1] == lo ? counts[i] : 0;
+    }
+
+    /** Может ли guid вообще быть в карте; нет (строка не GUID) → его счётчик неизвестен, а не 0. */
+    public boolean countable(CharSequence guid) {
+        return Guids.valid(guid);
+    }
+
+    /** Сколько разных guid. */
+    public int size() {
+        return size;
+    }
+
+    /** Сумма всех счётчиков. */
+    public long total() {
+        return total;
+    }
+
+    // =========================================================
+    // internals
+    // =========================================================
+
+    private void add(long hi, long lo, int delta) {
+        total += delta;
+        if (hi == 0 && lo == 0) {
+            if (zeroCount == 0) size++;
+            zeroCount += delta;
+            return;
+        }
+
+        int i = slot(hi, lo, keys, mask);
+        if (keys[2 * i] == hi && keys[2 * i + 1] == lo) {
+            counts[i] += delta;
+            return;
+        }
+
+        keys[2 * i] = hi;
+        keys[2 * i + 1] = lo;
+        counts[i] = delta;
+        size++;
+        if (size * 3L > (mask + 1) * 2L) grow();
+    }
+
+    /** Ячейка пары (hi, lo) или первая пустая ячейка на её пути. */
+    private static int slot(long hi, long lo, long[] keys, int mask) {
+        int i = Guids.mix(hi, lo) & mask;
+        while (true) {
+            long h = keys[2 * i], l = keys[2 * i + 1];
+            if ((h == 0 && l == 0) || (h == hi && l == lo)) return i;
+            i = (i + 1) & mask;
+        }
+    }
+
+    private void grow() {
+        int newMask = (mask + 1) * 2 - 1;
+        long[] nextKeys = new long[(newMask + 1) * 2];
+        int[] nextCounts = new int[newMask + 1];
+        for (int i = 0; i <= mask; i++) {
+            long h = keys[2 * i], l = keys[2 * i + 1];
+            if (h == 0 && l == 0) continue;
+            int j = slot(h, l, nextKeys, newMask);
+            nextKeys[2 * j] = h;
+            nextKeys[2 * j + 1] = l;
+            nextCounts[j] = counts[i];
+        }
+        keys = nextKeys;
+        counts = nextCounts;
+        mask = newMask;
+    }
+}
@@ -0,0 +1,97 @@
+package com.ain.bankrot.util;
+
+/**
+ * Множество GUID'ов без объектов на элемент: GUID хранится как два long (старшие и младшие 64 бита)
+ * в одной открытой хэш-таблице с линейным пробированием. На 100 тыс. guid'ов — около 4 МБ
+ * вместо ~15 МБ у HashSet&lt;String&gt;, и ни одной строки/UUID на добавление.
+ *
+ * Не потокобезопасно: рассчитано на один поток (например, чтение одного списка).
+ */
+public final class GuidSet {
+
+    private static final int MIN_CAPACITY = 16;
+
+    // пары (hi, lo) подряд: slots[2*i], slots[2*i+1]; пара (0, 0) — пустая ячейка
+    private long[] slots;
+    private int mask;
+    private int size;
+    private boolean hasZero;   // нулевой GUID хранится отдельно, т.к. (0, 0) занят под «пусто»
+
+    public GuidSet(int expected) {
+        int cap = MIN_CAPACITY;
+        while (cap * 2L < expected * 3L) cap <<= 1;   // загрузка не больше 2/3
+        slots = new long[cap * 2];
+        mask = cap - 1;
+    }
+
+    /**
+     * Добавляет guid вида xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx (дефисы необязательны, регистр любой).
+     *
+     * @return true — guid новый (или строка вообще не GUID: такие не отсекаем); false — уже был
+     */
+    public boolean add(CharSequence guid) {
+        return !Guids.valid(guid) || add(Guids.hi(guid), Guids.lo(guid));
+    }
+
+    /** @return false и для строки, которая не GUID */
+    public boolean contains(CharSequence guid) {
+        return Guids.valid(guid) && contains(Guids.hi(guid), Guids.lo(guid));
+    }
+
+    /** @return true — пары ещё не было */
+    public boolean add(long hi, long lo) {
+        if (hi == 0 && lo == 0) {
+            if (hasZero) return false;
+            hasZero = true;
+            size++;
+            return true;
+        }
+
+        int i = slot(hi, lo, slots, mask);
+        if (slots[2 * i] == hi && slots[2 * i + 1] == lo) return false;
+
+        slots[2 * i] = hi;
+        slots[2 * i + 1] = lo;
+        size++;
+        if (size * 3L > (mask + 1) * 2L) grow();
+        return true;
+    }
+
+    public boolean contains(long hi, long lo) {
+        if (hi == 0 && lo == 0) return hasZero;
+        int i = slot(hi, lo, slots, mask);
+        return slots[2 * i] == hi && slots[2 * i + 1] == lo;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // =========================================================
+    // internals
+    // =========================================================
+
+    /** Ячейка пары (hi, lo) или первая пустая ячейка на её пути. */
+    private static int slot(long hi, long lo, long[] slots, int mask) {
+        int i = Guids.mix(hi, lo) & mask;
+        while (true) {
+            long h = slots[2 * i], l = slots[2 * i + 1];
+            if ((h == 0 && l == 0) || (h == hi && l == lo)) return i;
+            i = (i + 1) & mask;
+        }
+    }
+
+    private void grow() {
+        int newMask = (mask + 1) * 2 - 1;
+        long[] next = new long[(newMask + 1) * 2];
+        for (int i = 0; i <= mask; i++) {
+            long h = slots[2 * i], l = slots[2 * i + 1];
+            if (h == 0 && l == 0) continue;
+            int j = slot(h, l, next, newMask);
+            next[2 * j] = h;
+            next[2 * j + 1] = l;
+        }
+        slots = next;
+        mask = newMask;
+    }
+}
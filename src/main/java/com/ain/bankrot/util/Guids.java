@@ -0,0 +1,53 @@
+package com.ain.bankrot.util;
+
+/**
+ * GUID-строка → два long без UUID/строк: 32 hex-цифры, дефисы пропускаются, регистр любой.
+ * Без состояния — можно звать из любых потоков.
+ */
+final class Guids {
+    private Guids() {}
+
+    /** Ровно 32 hex-цифры (не считая дефисов). */
+    static boolean valid(CharSequence guid) {
+        if (guid == null) return false;
+        int digits = 0;
+        for (int i = 0; i < guid.length(); i++) {
+            char c = guid.charAt(i);
+            if (c == '-') continue;
+            if (Character.digit(c, 16) < 0 || ++digits > 32) return false;
+        }
+        return digits == 32;
+    }
+
+    /** Старшие 64 бита (первые 16 цифр); guid должен быть valid. */
+    static long hi(CharSequence guid) {
+        return bits(guid, 0);
+    }
+
+    /** Младшие 64 бита (последние 16 цифр); guid должен быть valid. */
+    static long lo(CharSequence guid) {
+        return bits(guid, 16);
+    }
+
+    private static long bits(CharSequence guid, int from) {
+        long v = 0;
+        int digit = 0;
+        for (int i = 0; i < guid.length() && digit < from + 16; i++) {
+            char c = guid.charAt(i);
+            if (c == '-') continue;
+            if (digit++ >= from) v = (v << 4) | Character.digit(c, 16);
+        }
+        return v;
+    }
+
+    // финализатор MurmurHash3: у GUID v4 часть битов фиксирована, без перемешивания они бьют в одни ячейки
+    static int mix(long hi, long lo) {
+        long h = hi * 31 + lo;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
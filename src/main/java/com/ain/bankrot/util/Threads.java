@@ -0,0 +1,18 @@
+package com.ain.bankrot.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class Threads {
+    private Threads() {}
+
+    /** Фабрика daemon-потоков с читаемыми именами: prefix-1, prefix-2, ... */
+    public static ThreadFactory daemonFactory(String prefix) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,62 @@
+package com.ain.bankrot.api;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    @Test
+    void successGrowsRateAdditivelyUpToMax() {
+        RateLimiter l = new RateLimiter("test", 5.0, 0.2, 6.0);
+        l.onSuccess();
+        assertEquals(5.0 + 0.1 / 5.0, l.currentRate(), 1e-9);
+
+        for (int i = 0; i < 10_000; i++) l.onSuccess();
+        assertEquals(6.0, l.currentRate(), 1e-9);
+    }
+
+    @Test
+    void throttleHalvesRateOncePerPause() {
+        RateLimiter l = new RateLimiter("test", 8.0, 0.2, 20.0);
+
+        long pause = l.onThrottled(-1);
+        assertEquals(4.0, l.currentRate(), 1e-9);
+        assertTrue(pause > 0);
+
+        // та же волна 429 от параллельных запросов — скорость не режется повторно
+        l.onThrottled(-1);
+        l.onThrottled(-1);
+        assertEquals(4.0, l.currentRate(), 1e-9);
+    }
+
+    @Test
+    void rateNeverDropsBelowMin() {
+        RateLimiter l = new RateLimiter("test", 1.0, 0.5, 20.0);
+        l.onThrottled(0);   // Retry-After: 0 → пауза сразу кончается, следующий блок снова режет
+        l.onThrottled(0);
+        l.onThrottled(0);
+        assertEquals(0.5, l.currentRate(), 1e-9);
+    }
+
+    @Test
+    void pauseBlocksTokensAndRetryAfterWins() {
+        RateLimiter l = new RateLimiter("test", 5.0, 0.2, 20.0);
+        assertEquals(0, l.tryAcquire());   // стартовый токен
+
+        long pauseMs = l.onThrottled(3_000);
+        assertTrue(pauseMs > 2_900 && pauseMs <= 3_000, "pause " + pauseMs);
+        long waitNanos = l.tryAcquire();
+        assertTrue(waitNanos > 2_000_000_000L, "wait " + waitNanos);
+    }
+
+    @Test
+    void emptyBucketWaitsAboutOneTokenInterval() {
+        RateLimiter l = new RateLimiter("test", 2.0, 0.2, 20.0);
+        assertEquals(0, l.tryAcquire());
+        long waitNanos = l.tryAcquire();
+        // токен копится 1/rate = 500 мс
+        assertTrue(waitNanos > 400_000_000L && waitNanos <= 500_000_000L, "wait " + waitNanos);
+    }
+}
@@ -0,0 +1,94 @@
+package com.ain.bankrot.api;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseCacheTest {
+
+    private static final String BASE = "https://fedresurs.ru";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripAndReopen() throws Exception {
+        String path = FedresursEndpoints.company("g1");
+        try (ResponseCache c = ResponseCache.open(dir, 1 << 20)) {
+            c.put(BASE + path, path, "{\"a\":1}", false);
+            assertEquals("{\"a\":1}", c.get(BASE + path));
+            assertEquals(1, c.hits());
+        }
+        try (ResponseCache c = ResponseCache.open(dir, 1 << 20)) {
+            assertEquals("{\"a\":1}", c.get(BASE + path));
+        }
+    }
+
+    @Test
+    void listsAreNotCached() throws Exception {
+        String list = FedresursEndpoints.listCompanies(15, 0);
+        try (ResponseCache c = ResponseCache.open(dir, 1 << 20)) {
+            assertFalse(c.caches(list));
+            assertTrue(c.caches(FedresursEndpoints.company("g1")));
+            c.put(BASE + list, list, "{}", false);
+            assertNull(c.get(BASE + list));
+        }
+    }
+
+    @Test
+    void expiredEntryIsAMiss() throws Exception {
+        String path = FedresursEndpoints.company("g1");
+        Map<FedresursEndpoints.Family, Duration> ttls = Map.of(FedresursEndpoints.Family.COMPANY, Duration.ofMillis(1));
+        try (ResponseCache c = new ResponseCache(dir, 1 << 20, ttls, Duration.ofMillis(1))) {
+            c.put(BASE + path, path, "x", false);
+            Thread.sleep(5);
+            assertNull(c.get(BASE + path));
+            assertEquals(1, c.misses());
+        }
+    }
+
+    @Test
+    void concurrentPutsAndGetsSeeOwnValues() throws Exception {
+        int threads = 8;
+        int perThread = 300;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (ResponseCache c = ResponseCache.open(dir, 64L << 20)) {
+            List<Future<?>> fs = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int id = t;
+                fs.add(pool.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        String path = FedresursEndpoints.company("t" + id + "-" + i);
+                        String body = "{\"v\":\"" + "x".repeat(i % 50) + id + "-" + i + "\"}";
+                        c.put(BASE + path, path, body, false);
+                        assertEquals(body, c.get(BASE + path));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : fs) f.get();
+            assertEquals((long) threads * perThread, c.hits());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // после close всё читается из снимка индекса
+        try (ResponseCache c = ResponseCache.open(dir, 64L << 20)) {
+            String path = FedresursEndpoints.company("t3-7");
+            assertEquals("{\"v\":\"xxxxxxx3-7\"}", c.get(BASE + path));
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.ain.bankrot.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    @Test
+    void memoizesOnlyAcceptedResults() throws Exception {
+        SingleFlight<String> f = new SingleFlight<>(1 << 20, String::length, v -> v.startsWith("ok"));
+        AtomicInteger loads = new AtomicInteger();
+
+        f.call("a", () -> "ok-" + loads.incrementAndGet());
+        f.call("a", () -> "ok-" + loads.incrementAndGet());
+        f.call("b", () -> "blocked-" + loads.incrementAndGet());
+        f.call("b", () -> "blocked-" + loads.incrementAndGet());
+
+        assertEquals(3, loads.get());
+        assertEquals(1, f.memoHits());
+    }
+
+    @Test
+    void memoIsBoundedByBytes() throws Exception {
+        SingleFlight<String> f = new SingleFlight<>(100, String::length, v -> true);
+        for (int i = 0; i < 10; i++) {
+            String v = String.valueOf((char) ('a' + i)).repeat(30);
+            f.call("k" + i, () -> v);
+        }
+        assertTrue(f.memoBytes() <= 100, "memo holds " + f.memoBytes() + " bytes");
+
+        // самые свежие остались, старые вытеснены
+        AtomicInteger loads = new AtomicInteger();
+        f.call("k9", () -> "x" + loads.incrementAndGet());
+        f.call("k0", () -> "x" + loads.incrementAndGet());
+        assertEquals(1, loads.get());
+
+        // больше всего бюджета — не запоминается вовсе
+        f.call("huge", () -> "z".repeat(500));
+        assertTrue(f.memoBytes() <= 100);
+    }
+
+    @Test
+    void joinerRetriesWhenLeaderIsInterrupted() throws Exception {
+        SingleFlight<String> f = new SingleFlight<>(1 << 20, String::length, v -> true);
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = pool.submit(() -> f.call("k", () -> {
+                loads.incrementAndGet();
+                leaderStarted.countDown();
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("stopped");
+                }
+                return "leader";
+            }));
+            assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+
+            Future<String> joiner = pool.submit(() -> f.call("k", () -> {
+                loads.incrementAndGet();
+                return "joiner";
+            }));
+            // даём присоединиться к идущему вызову
+            while (f.joined() == 0) Thread.sleep(1);
+
+            leader.cancel(true);
+            assertEquals("joiner", joiner.get(5, TimeUnit.SECONDS));
+            assertEquals(2, loads.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void joinerSharesLeaderFailure() throws Exception {
+        SingleFlight<String> f = new SingleFlight<>(1 << 20, String::length, v -> true);
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = pool.submit(() -> f.call("k", () -> {
+                leaderStarted.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                throw new IOException("boom");
+            }));
+            assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+
+            Future<String> joiner = pool.submit(() -> f.call("k", () -> "unused"));
+            while (f.joined() == 0) Thread.sleep(1);
+            release.countDown();
+
+            Exception e = assertThrows(Exception.class, () -> joiner.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof IOException);
+            assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void apiClientLeaderInterruptedDuringBackoffLetsJoinerRetry() throws Exception {
+        // первый ответ — 503 с Retry-After 30 с: лидер засыпает в backoff и там его прерывают
+        AtomicInteger requests = new AtomicInteger();
+        CountDownLatch firstServed = new CountDownLatch(1);
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/x", ex -> {
+            boolean first = requests.incrementAndGet() == 1;
+            byte[] body = (first ? "busy" : "{\"ok\":true}").getBytes(StandardCharsets.UTF_8);
+            if (first) ex.getResponseHeaders().add("Retry-After", "30");
+            ex.sendResponseHeaders(first ? 503 : 200, body.length);
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(body);
+            }
+            if (first) firstServed.countDown();
+        });
+        server.start();
+        ExecutorService pool = Executors.newFixedThreadPool(1);
+        try {
+            ApiClient client = new ApiClient("http://127.0.0.1:" + server.getAddress().getPort(), Map.of());
+
+            AtomicReference<Throwable> leaderError = new AtomicReference<>();
+            AtomicBoolean leaderStillInterrupted = new AtomicBoolean();
+            Thread leader = new Thread(() -> {
+                try {
+                    client.getJson("/x");
+                } catch (Throwable e) {
+                    leaderError.set(e);
+                    leaderStillInterrupted.set(Thread.currentThread().isInterrupted());
+                }
+            });
+            leader.setDaemon(true);
+            leader.start();
+            assertTrue(firstServed.await(5, TimeUnit.SECONDS));
+
+            Future<JsonNode> joiner = pool.submit(() -> client.getJson("/x"));
+            while (client.dedupJoined() == 0) Thread.sleep(1);
+
+            leader.interrupt();
+            leader.join(5_000);
+
+            assertInstanceOf(InterruptedIOException.class, leaderError.get());
+            assertTrue(leaderStillInterrupted.get(), "interrupt flag must survive the backoff sleep");
+            assertTrue(joiner.get(5, TimeUnit.SECONDS).path("ok").asBoolean());
+            assertEquals(2, requests.get());   // лидер больше не повторял, повтор сделал присоединившийся
+        } finally {
+            pool.shutdownNow();
+            server.stop(0);
+        }
+    }
+}
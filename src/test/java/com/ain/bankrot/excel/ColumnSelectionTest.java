@@ -0,0 +1,58 @@
+package com.ain.bankrot.excel;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnSelectionTest {
+
+    @Test
+    void blankSpecSelectsEverything() {
+        ColumnSelection c = ColumnSelection.parse(null, "  ");
+        assertTrue(c.isAll());
+        assertEquals(Sheets.LEGAL_HEADERS, c.legalHeaders());
+        assertEquals(Sheets.PHYSICAL_HEADERS, c.physicalHeaders());
+        assertEquals("all", c.toString());
+    }
+
+    @Test
+    void headersAndNumbersMixKeepSheetOrder() {
+        // порядок в спецификации не важен — колонки идут в порядке листа
+        ColumnSelection c = ColumnSelection.parse(" номер дела , 2,инн ,ОГРН", "ФИО");
+
+        assertEquals(List.of("ИНН", "ОГРН", "Номер дела"), c.legalHeaders());
+        assertArrayEquals(new int[]{1, 2, 12}, c.legalIndexes());
+        assertEquals(List.of("ФИО"), c.physicalHeaders());
+        assertFalse(c.isAll());
+
+        assertTrue(c.legal("ИНН"));
+        assertFalse(c.legal("КПП"));
+        assertTrue(c.anyLegal("КПП", "ОГРН"));
+        assertFalse(c.anyPhysical("СНИЛС", "ИНН"));
+    }
+
+    @Test
+    void layoutMapsSheetColumnsToFileColumns() {
+        ColumnSelection c = ColumnSelection.parse("1,3", "2");
+        int[] legal = c.legalLayout();
+        assertEquals(0, legal[0]);
+        assertEquals(-1, legal[1]);
+        assertEquals(1, legal[2]);
+        assertEquals(-1, legal[3]);
+        assertEquals(0, c.physicalLayout()[1]);
+    }
+
+    @Test
+    void unknownColumnsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ColumnSelection.parse("ИНН,Нет такой", null));
+        assertThrows(IllegalArgumentException.class, () -> ColumnSelection.parse("0", null));
+        assertThrows(IllegalArgumentException.class, () -> ColumnSelection.parse(null, "99"));
+        assertThrows(IllegalArgumentException.class, () -> ColumnSelection.all().legal("Нет такой"));
+    }
+}
@@ -0,0 +1,34 @@
+package com.ain.bankrot.output;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CsvSinkTest {
+
+    private static String field(String v) {
+        StringBuilder sb = new StringBuilder();
+        CsvSink.appendField(sb, v);
+        return sb.toString();
+    }
+
+    @Test
+    void plainValuesAreNotQuoted() {
+        assertEquals("", field(""));
+        assertEquals("7707083893", field("7707083893"));
+        assertEquals("ООО «Ромашка»; г. Москва", field("ООО «Ромашка»; г. Москва"));
+    }
+
+    @Test
+    void separatorsAndLineBreaksAreQuoted() {
+        assertEquals("\"Москва, ул. Ленина\"", field("Москва, ул. Ленина"));
+        assertEquals("\"строка1\nстрока2\"", field("строка1\nстрока2"));
+        assertEquals("\"a\rb\"", field("a\rb"));
+    }
+
+    @Test
+    void quotesAreDoubled() {
+        assertEquals("\"ООО \"\"Ромашка\"\"\"", field("ООО \"Ромашка\""));
+        assertEquals("\"\"\"\"", field("\""));
+    }
+}
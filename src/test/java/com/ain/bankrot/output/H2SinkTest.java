@@ -0,0 +1,82 @@
+package com.ain.bankrot.output;
+
+import com.ain.bankrot.excel.ColumnSelection;
+import com.ain.bankrot.model.legal.LegalEntityRow;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class H2SinkTest {
+
+    @TempDir
+    Path dir;
+
+    private static LegalEntityRow legal(String guid, String inn, String name) {
+        LegalEntityRow r = new LegalEntityRow();
+        r.guid = guid;
+        r.inn = inn;
+        r.fullName = name;
+        return r;
+    }
+
+    private List<String> keys(Path db) throws Exception {
+        List<String> out = new ArrayList<>();
+        try (Connection c = DriverManager.getConnection("jdbc:h2:file:" + db.toAbsolutePath());
+             Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT guid, full_name FROM legal_debtor ORDER BY guid")) {
+            while (rs.next()) out.add(rs.getString(1) + "=" + rs.getString(2));
+        }
+        return out;
+    }
+
+    @Test
+    void rerunUpdatesInPlace() throws Exception {
+        Path db = dir.resolve("debtors");
+        for (String name : new String[]{"ООО Старое", "ООО Новое"}) {
+            try (H2Sink sink = new H2Sink(db, ColumnSelection.parse(null, null), 2, 2)) {
+                sink.appendLegal(legal("g-1", "7707083893", name));
+                sink.appendLegal(legal("", "", "без ключа"));   // пропускается
+                sink.finish();
+            }
+        }
+        assertEquals(List.of("g-1=ООО Новое"), keys(db));
+    }
+
+    @Test
+    void guidRowReplacesInnFallbackRow() throws Exception {
+        Path db = dir.resolve("debtors");
+        try (H2Sink sink = new H2Sink(db, ColumnSelection.parse(null, null), 10, 10)) {
+            sink.appendLegal(legal("", "7707083893", "по ИНН"));
+            sink.appendLegal(legal("", "5001000000", "другой"));
+            sink.finish();
+        }
+        assertEquals(List.of("inn:5001000000=другой", "inn:7707083893=по ИНН"), keys(db));
+
+        // guid пришёл: в том же батче и через прогон — запасная строка уходит
+        try (H2Sink sink = new H2Sink(db, ColumnSelection.parse(null, null), 10, 10)) {
+            sink.appendLegal(legal("", "3000000000", "временно"));
+            sink.appendLegal(legal("g-3", "3000000000", "с guid"));
+            sink.appendLegal(legal("g-7", "7707083893", "с guid"));
+            sink.finish();
+        }
+        assertEquals(List.of("g-3=с guid", "g-7=с guid", "inn:5001000000=другой"), keys(db));
+    }
+
+    @Test
+    void closeWithoutFinishRollsBack() throws Exception {
+        Path db = dir.resolve("debtors");
+        try (H2Sink sink = new H2Sink(db, ColumnSelection.parse(null, null), 10, 10)) {
+            sink.appendLegal(legal("g-1", "7707083893", "не дописано"));
+        }
+        assertEquals(List.of(), keys(db));
+    }
+}
@@ -0,0 +1,92 @@
+package com.ain.bankrot.output;
+
+import com.ain.bankrot.excel.ColumnSelection;
+import com.ain.bankrot.model.legal.LegalEntityRow;
+import com.ain.bankrot.model.physical.PhysicalPersonRow;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonLinesSinkTest {
+
+    private static final ObjectMapper OM = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    private static LegalEntityRow legal(String guid, String name, String inn) {
+        LegalEntityRow r = new LegalEntityRow();
+        r.guid = guid;
+        r.fullName = name;
+        r.inn = inn;
+        return r;
+    }
+
+    @Test
+    void writesOneObjectPerLine() throws Exception {
+        Path file = dir.resolve("rows.jsonl");
+        PhysicalPersonRow p = new PhysicalPersonRow();
+        p.guid = "g-2";
+        p.fullName = "Иванов Иван Иванович";
+
+        try (JsonLinesSink sink = new JsonLinesSink(file, ColumnSelection.parse("Полное наименование,ИНН", "ФИО"))) {
+            sink.appendLegal(legal("g-1", "ООО \"Ромашка\"", "7707083893"));
+            sink.appendPhysical(p);
+            sink.appendLegal(legal(" ", "н/д", ""));
+            sink.finish();
+        }
+
+        String text = Files.readString(file);
+        assertTrue(text.endsWith("}\n"));
+        List<String> lines = text.lines().toList();
+        assertEquals(List.of(
+                "{\"type\":\"legal\",\"guid\":\"g-1\",\"Полное наименование\":\"ООО \\\"Ромашка\\\"\",\"ИНН\":\"7707083893\"}",
+                "{\"type\":\"physical\",\"guid\":\"g-2\",\"ФИО\":\"Иванов Иван Иванович\"}",
+                "{\"type\":\"legal\",\"guid\":null,\"Полное наименование\":null,\"ИНН\":null}"), lines);
+    }
+
+    @Test
+    void valuesWithControlCharsRoundTrip() throws Exception {
+        Path file = dir.resolve("rows.jsonl.gz");
+        String tricky = "a\"b\\c\nd\re\tf\u0001g\u007f Ё 😀 ,:{}[]";
+
+        try (JsonLinesSink sink = new JsonLinesSink(file, ColumnSelection.all())) {
+            sink.appendLegal(legal("g-1", tricky, "7707083893"));
+            sink.finish();
+        }
+
+        String text;
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        List<String> lines = text.lines().toList();
+        assertEquals(1, lines.size());
+        assertFalse(lines.get(0).contains("\u0001"), "control chars must be escaped");
+
+        JsonNode n = OM.readTree(lines.get(0));
+        assertEquals("legal", n.path("type").asText());
+        assertEquals(tricky.trim(), n.path("Полное наименование").asText());
+        assertTrue(n.path("КПП").isNull());
+    }
+
+    @Test
+    void emptyFileHasNoLines() throws Exception {
+        Path file = dir.resolve("rows.jsonl");
+        try (JsonLinesSink sink = new JsonLinesSink(file, ColumnSelection.all())) {
+            sink.finish();
+        }
+        assertEquals("", Files.readString(file));
+    }
+}
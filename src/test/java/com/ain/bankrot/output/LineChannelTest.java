@@ -0,0 +1,63 @@
+package com.ain.bankrot.output;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class LineChannelTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void commitPublishesFileUnderItsName() throws Exception {
+        Path target = dir.resolve("out.csv");
+        try (LineChannel ch = LineChannel.open(target)) {
+            ch.write("ИНН,ОГРН\n");
+            ch.write("7707083893,1027700132195\n");
+            ch.commit();
+        }
+        assertEquals("ИНН,ОГРН\n7707083893,1027700132195\n", Files.readString(target));
+        assertFalse(Files.exists(dir.resolve("out.csv.tmp")));
+    }
+
+    @Test
+    void gzipRoundTripAcrossBufferBoundary() throws Exception {
+        Path target = dir.resolve("out.jsonl.gz");
+        StringBuilder expected = new StringBuilder();
+        try (LineChannel ch = LineChannel.open(target)) {
+            // больше буфера (1 МБ), и многобайтные символы попадают на границу
+            for (int i = 0; i < 60_000; i++) {
+                String line = "{\"n\":" + i + ",\"ФИО\":\"Иванов Иван Иванович\"}\n";
+                ch.write(line);
+                expected.append(line);
+            }
+            ch.commit();
+        }
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(target))) {
+            assertEquals(expected.toString(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void closeWithoutCommitLeavesNothing() throws Exception {
+        for (String name : new String[]{"out.csv", "out.csv.gz"}) {
+            Path target = dir.resolve(name);
+            LineChannel ch = LineChannel.open(target);
+            ch.write("частично записанная строка\n");
+            ch.close();
+            ch.close();   // повторный close — без ошибок
+
+            assertFalse(Files.exists(target), name);
+            assertFalse(Files.exists(dir.resolve(name + ".tmp")), name);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.ain.bankrot.output;
+
+import com.ain.bankrot.excel.ColumnSelection;
+import com.ain.bankrot.excel.Sheets;
+import com.ain.bankrot.model.legal.LegalEntityRow;
+import com.ain.bankrot.model.physical.PhysicalPersonRow;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class RegionWorkbooksSinkTest {
+
+    @TempDir
+    Path dir;
+
+    private static LegalEntityRow legal(String region, String inn) {
+        LegalEntityRow r = new LegalEntityRow();
+        r.region = region;
+        r.inn = inn;
+        return r;
+    }
+
+    private static PhysicalPersonRow person(String region, String inn) {
+        PhysicalPersonRow r = new PhysicalPersonRow();
+        r.region = region;
+        r.inn = inn;
+        return r;
+    }
+
+    /** Листы книги: "имя=строк данных". */
+    private static List<String> sheets(Path file) throws Exception {
+        List<String> out = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(file); XSSFWorkbook wb = new XSSFWorkbook(in)) {
+            for (Sheet s : wb) out.add(s.getSheetName() + "=" + s.getLastRowNum());
+        }
+        return out;
+    }
+
+    // имена регионов латиницей: в песочницах с POSIX-локалью JVM не создаёт файлы с кириллицей в имени
+    @Test
+    void rollsOverAtSheetLimitAndIndexesEveryWorkbook() throws Exception {
+        try (RegionWorkbooksSink sink = new RegionWorkbooksSink(dir, ColumnSelection.all(), 10, 3, 2)) {
+            for (int i = 0; i < 7; i++) sink.appendLegal(legal("Moscow City", "77" + i));
+            sink.appendPhysical(person("Tver Oblast", "69"));
+            sink.appendLegal(legal("Tver Oblast", "69"));
+            sink.appendPhysical(person("Perm Krai", "59"));
+            sink.finish();
+        }
+
+        assertEquals(List.of(
+                "region,file,legal_rows,physical_rows",
+                "Moscow City,Moscow_City.xlsx,3,0",
+                "Moscow City,Moscow_City_2.xlsx,3,0",
+                "Moscow City,Moscow_City_3.xlsx,1,0",
+                "Tver Oblast,Tver_Oblast.xlsx,1,1",
+                "Perm Krai,Perm_Krai.xlsx,0,1"), Files.readAllLines(dir.resolve("index.csv")));
+
+        // пустой лист в книгу не попадает
+        assertEquals(List.of(Sheets.LEGAL + "=3"), sheets(dir.resolve("Moscow_City.xlsx")));
+        assertEquals(List.of(Sheets.LEGAL + "=1"), sheets(dir.resolve("Moscow_City_3.xlsx")));
+        assertEquals(List.of(Sheets.LEGAL + "=1", Sheets.PHYSICAL + "=1"), sheets(dir.resolve("Tver_Oblast.xlsx")));
+        assertEquals(List.of(Sheets.PHYSICAL + "=1"), sheets(dir.resolve("Perm_Krai.xlsx")));
+    }
+
+    @Test
+    void closeWithoutFinishKeepsOnlyFullWorkbooks() throws Exception {
+        try (RegionWorkbooksSink sink = new RegionWorkbooksSink(dir, ColumnSelection.all(), 10, 2, 1)) {
+            for (int i = 0; i < 3; i++) sink.appendLegal(legal("Moscow", "77" + i));
+        }
+        assertEquals(List.of(Sheets.LEGAL + "=2"), sheets(dir.resolve("Moscow.xlsx")));
+        assertFalse(Files.exists(dir.resolve("Moscow_2.xlsx")));
+        assertFalse(Files.exists(dir.resolve("index.csv")));
+    }
+}
@@ -0,0 +1,108 @@
+package com.ain.bankrot.service;
+
+import com.ain.bankrot.model.legal.LegalEntityRow;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DeltaStoreTest {
+
+    private final ObjectMapper om = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    private JsonNode item(String guid, String caseNumber) {
+        return om.createObjectNode()
+                .put("guid", guid)
+                .put("name", "ООО " + guid)
+                .set("lastLegalCase", om.createObjectNode().put("number", caseNumber));
+    }
+
+    private static LegalEntityRow row(String guid) {
+        LegalEntityRow r = new LegalEntityRow();
+        r.guid = guid;
+        r.fullName = "ООО " + guid;
+        r.inn = "77" + guid;
+        return r;
+    }
+
+    @Test
+    void unchangedDebtorIsReused() throws Exception {
+        Path file = dir.resolve("delta.jsonl.gz");
+        AtomicInteger builds = new AtomicInteger();
+        CrawlPipeline.RowBuilder<LegalEntityRow> builder = it -> {
+            builds.incrementAndGet();
+            return row(it.path("guid").asText());
+        };
+
+        DeltaStore first = DeltaStore.load(file);
+        first.legal(item("a", "А40-1/2024"), builder);
+        first.save();
+
+        DeltaStore second = DeltaStore.load(file);
+        LegalEntityRow reused = second.legal(item("a", "А40-1/2024"), builder);
+        second.legal(item("a2", "А40-2/2024"), builder);
+
+        assertEquals(2, builds.get());
+        assertEquals("77a", reused.inn);
+        assertEquals(1, second.reusedCount());
+    }
+
+    @Test
+    void rowsReplayedOnResumeSurviveSave() throws Exception {
+        Path file = dir.resolve("delta.jsonl.gz");
+        AtomicInteger builds = new AtomicInteger();
+        CrawlPipeline.RowBuilder<LegalEntityRow> builder = it -> {
+            builds.incrementAndGet();
+            return row(it.path("guid").asText());
+        };
+
+        DeltaStore first = DeltaStore.load(file);
+        first.legal(item("a", "А40-1/2024"), builder);
+        first.legal(item("b", "А40-2/2024"), builder);
+        first.save();
+
+        // прерванный прогон: "a" ушёл в журнал, после --resume он приходит только через replay
+        DeltaStore resumed = DeltaStore.load(file);
+        resumed.resumedLegal(row("a"));
+        resumed.legal(item("b", "А40-2/2024"), builder);
+        resumed.save();
+
+        builds.set(0);
+        DeltaStore next = DeltaStore.load(file);
+        next.legal(item("a", "А40-1/2024"), builder);
+        next.legal(item("b", "А40-2/2024"), builder);
+        assertEquals(0, builds.get());
+        assertEquals(2, next.reusedCount());
+    }
+
+    @Test
+    void replayedRowWithChangedCaseIsRebuiltNextTime() throws Exception {
+        Path file = dir.resolve("delta.jsonl.gz");
+        AtomicInteger builds = new AtomicInteger();
+        CrawlPipeline.RowBuilder<LegalEntityRow> builder = it -> {
+            builds.incrementAndGet();
+            return row(it.path("guid").asText());
+        };
+
+        DeltaStore first = DeltaStore.load(file);
+        first.legal(item("a", "А40-1/2024"), builder);
+        first.save();
+
+        DeltaStore resumed = DeltaStore.load(file);
+        resumed.resumedLegal(row("a"));
+        resumed.save();
+
+        builds.set(0);
+        DeltaStore next = DeltaStore.load(file);
+        next.legal(item("a", "А40-9/2025"), builder);
+        assertEquals(1, builds.get());
+    }
+}
@@ -0,0 +1,173 @@
+package com.ain.bankrot.service;
+
+import com.ain.bankrot.api.ApiClient;
+import com.ain.bankrot.api.FedresursEndpoints;
+import com.ain.bankrot.util.GuidSet;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** ListPager против живого списка на локальном HttpServer: перекрытие, дедуп и gap-check. */
+class ListPagerTest {
+
+    private static final int PAGE = 10;
+    private static final int OVERLAP = 3;
+
+    private HttpServer server;
+    private ExecutorService prefetch;
+
+    // текущее содержимое списка; drift вызывается после ответа на первую страницу
+    private final List<String> list = new CopyOnWriteArrayList<>();
+    private volatile Consumer<List<String>> drift = l -> {};
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @BeforeEach
+    void start() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/backend/cmpbankrupts", ex -> {
+            Map<String, String> q = query(ex.getRequestURI().getRawQuery());
+            int limit = Integer.parseInt(q.get("limit"));
+            int offset = Integer.parseInt(q.get("offset"));
+
+            List<String> snapshot = new ArrayList<>(list);
+            StringBuilder json = new StringBuilder("{\"total\":").append(snapshot.size()).append(",\"pageData\":[");
+            for (int i = offset; i < Math.min(snapshot.size(), offset + limit); i++) {
+                if (i > offset) json.append(',');
+                json.append("{\"guid\":\"").append(snapshot.get(i)).append("\"}");
+            }
+            json.append("]}");
+
+            byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().add("Content-Type", "application/json");
+            ex.sendResponseHeaders(200, body.length);
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(body);
+            }
+            if (requests.incrementAndGet() == 1) drift.accept(list);
+        });
+        server.start();
+        prefetch = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+        prefetch.shutdownNow();
+    }
+
+    @Test
+    void overlappingPagesAreDeduplicated() throws Exception {
+        List<String> original = guids(30);
+        list.addAll(original);
+
+        List<String> got = run(30);
+
+        assertEquals(original, got);
+    }
+
+    @Test
+    void newItemsOnTopDoNotProduceDuplicates() throws Exception {
+        List<String> original = guids(30);
+        list.addAll(original);
+        drift = l -> l.addAll(0, guids(2));   // список съехал вниз на 2 — дубли на стыке
+
+        List<String> got = run(30);
+
+        assertEquals(30, got.size());
+        assertEquals(30, new HashSet<>(got).size());
+        assertEquals(new HashSet<>(original), new HashSet<>(got));
+    }
+
+    @Test
+    void gapCheckRecoversItemsThatSlidPastABoundary() throws Exception {
+        List<String> original = guids(30);
+        list.addAll(original);
+        // закрылись 5 дел сверху: список съехал вверх сильнее перекрытия, 10-й и 11-й проскочили стык
+        drift = l -> l.subList(0, 5).clear();
+
+        List<String> got = run(30);
+
+        assertEquals(30, got.size());
+        assertEquals(new HashSet<>(original), new HashSet<>(got));
+    }
+
+    @Test
+    void resumeSkipsJournaledItemsAfterListDriftedDown() throws Exception {
+        List<String> original = guids(30);
+        list.addAll(original);
+        // прошлый прогон успел 13 строк (позиции 0..12), пока его не было — сверху добавились 5 банкротов
+        list.addAll(0, guids(5));
+
+        List<String> got = run(13, 17, known(original.subList(0, 13)));
+
+        assertEquals(original.subList(13, 30), got);
+    }
+
+    @Test
+    void resumeChecksFirstBoundaryAfterListDriftedUp() throws Exception {
+        List<String> original = guids(30);
+        list.addAll(original);
+        // прошлый прогон успел 13 строк; потом закрылись 6 дел сверху — 13..15 уехали выше позиции продолжения
+        list.subList(0, 6).clear();
+
+        List<String> got = run(13, 17, known(original.subList(0, 13)));
+
+        assertEquals(17, got.size());
+        assertEquals(new HashSet<>(original.subList(13, 30)), new HashSet<>(got));
+    }
+
+    private List<String> run(int need) throws Exception {
+        return run(0, need, null);
+    }
+
+    private List<String> run(int startOffset, int need, GuidSet known) throws Exception {
+        ApiClient client = new ApiClient("http://127.0.0.1:" + server.getAddress().getPort(), Map.of());
+        ListPager pager = new ListPager(client, PAGE, 4, OVERLAP, prefetch);
+        List<String> got = new ArrayList<>();
+        long delivered = pager.run("TEST", FedresursEndpoints::listCompanies, startOffset, need, known, (offset, fetched, items) -> {
+            for (ListPager.Item it : items) got.add(it.node.path("guid").asText());
+        });
+        assertEquals(got.size(), delivered);
+        return got;
+    }
+
+    private static GuidSet known(List<String> guids) {
+        GuidSet set = new GuidSet(guids.size());
+        for (String g : guids) set.add(g);
+        return set;
+    }
+
+    private static List<String> guids(int n) {
+        List<String> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) out.add(UUID.randomUUID().toString());
+        return out;
+    }
+
+    private static Map<String, String> query(String raw) {
+        Map<String, String> q = new HashMap<>();
+        for (String kv : raw.split("&")) {
+            int eq = kv.indexOf('=');
+            if (eq > 0) q.put(kv.substring(0, eq), kv.substring(eq + 1));
+        }
+        return q;
+    }
+}
@@ -0,0 +1,123 @@
+package com.ain.bankrot.service;
+
+import com.ain.bankrot.api.ApiClient;
+import com.ain.bankrot.util.GuidCountMap;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/** TradesSweep против листинга biddings на локальном HttpServer. */
+class TradesSweepTest {
+
+    private static final int PAGE = 10;
+
+    private HttpServer server;
+    private ExecutorService pool;
+
+    private final List<String> biddings = new ArrayList<>();   // bankruptGuid каждой записи листинга
+    private volatile boolean sendTotal = true;
+    private volatile int shortAtOffset = -1;                    // страница, которая приходит обрезанной
+
+    @BeforeEach
+    void start() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/backend/biddings", ex -> {
+            Map<String, String> q = new HashMap<>();
+            for (String kv : ex.getRequestURI().getRawQuery().split("&")) {
+                int eq = kv.indexOf('=');
+                if (eq > 0) q.put(kv.substring(0, eq), kv.substring(eq + 1));
+            }
+            int limit = Integer.parseInt(q.get("limit"));
+            int offset = Integer.parseInt(q.get("offset"));
+            int end = Math.min(biddings.size(), offset + limit);
+            if (offset == shortAtOffset) end = Math.max(offset, end - 3);
+
+            StringBuilder json = new StringBuilder("{");
+            if (sendTotal) json.append("\"total\":").append(biddings.size()).append(',');
+            json.append("\"pageData\":[");
+            for (int i = offset; i < end; i++) {
+                if (i > offset) json.append(',');
+                json.append("{\"guid\":\"").append(UUID.randomUUID())
+                        .append("\",\"bankrupt\":{\"guid\":\"").append(biddings.get(i)).append("\"}}");
+            }
+            json.append("]}");
+
+            byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+            ex.sendResponseHeaders(200, body.length);
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        pool = Executors.newFixedThreadPool(4);
+
+        // 3 банкрота: 12, 8 и 5 торгов, вперемешку; плюс торги без банкрота
+        String a = UUID.randomUUID().toString(), b = UUID.randomUUID().toString(), c = UUID.randomUUID().toString();
+        for (int i = 0; i < 12; i++) biddings.add(a);
+        for (int i = 0; i < 8; i++) biddings.add(b);
+        for (int i = 0; i < 5; i++) biddings.add(c);
+        biddings.add("");
+        Collections.shuffle(biddings, new Random(1));
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+        pool.shutdownNow();
+    }
+
+    private ApiClient client() {
+        return new ApiClient("http://127.0.0.1:" + server.getAddress().getPort(), Map.of());
+    }
+
+    @Test
+    void countsEveryBiddingOfTheListing() {
+        GuidCountMap counts = TradesSweep.run(client(), PAGE, pool);
+
+        assertNotNull(counts);
+        assertEquals(3, counts.size());
+        assertEquals(25, counts.total());
+        Map<String, Integer> expected = new HashMap<>();
+        for (String g : biddings) if (!g.isEmpty()) expected.merge(g, 1, Integer::sum);
+        for (Map.Entry<String, Integer> e : expected.entrySet()) {
+            assertEquals(e.getValue().intValue(), counts.get(e.getKey()));
+        }
+    }
+
+    @Test
+    void missingTotalFailsTheSweep() {
+        sendTotal = false;
+        assertNull(TradesSweep.run(client(), PAGE, pool));
+    }
+
+    @Test
+    void shortPageBeforeTheEndFailsTheSweep() {
+        shortAtOffset = PAGE;
+        assertNull(TradesSweep.run(client(), PAGE, pool));
+    }
+
+    @Test
+    void shortLastPageIsFine() {
+        // 26 записей, страницы по 10: последняя — 6, это не обрыв
+        assertNotNull(TradesSweep.run(client(), PAGE, pool));
+    }
+}
@@ -0,0 +1,137 @@
+package com.ain.bankrot.store;
+
+import com.ain.bankrot.model.legal.LegalEntityRow;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.ain.bankrot.store.RowTable.Kind.COUNT;
+import static com.ain.bankrot.store.RowTable.Kind.DATE;
+import static com.ain.bankrot.store.RowTable.Kind.DICT;
+import static com.ain.bankrot.store.RowTable.Kind.DIGITS;
+import static com.ain.bankrot.store.RowTable.Kind.TEXT;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RowTableTest {
+
+    @Test
+    void digitsRoundTrip() {
+        RowTable t = new RowTable(List.of(DIGITS), 4);
+        List<String> values = Arrays.asList(
+                "0", "00", "000", "1", "01", null, "", " 1", "1a", "н/д",
+                "7707083893", "0000000000",
+                "12345678901234567",      // 17 цифр — ещё в long
+                "99999999999999999",
+                "123456789012345678",     // 18 — уже overflow
+                "-5");
+        for (String v : values) t.add(v);
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(values.get(i), t.get(i, 0), "row " + i);
+        }
+    }
+
+    @Test
+    void countAndDateRoundTrip() {
+        RowTable t = new RowTable(List.of(COUNT, DATE), 4);
+        String[][] rows = {
+                {"0", "01.01.2024"},
+                {"00", "1.1.2024"},
+                {"123456789", "31.12.1999"},
+                {"1234567890", "00.00.0000"},
+                {"", ""},
+                {null, null},
+                {"н/д", "2024-01-01"},
+        };
+        for (String[] r : rows) t.add(r);
+        for (int i = 0; i < rows.length; i++) assertArrayEquals(rows[i], t.row(i), "row " + i);
+    }
+
+    @Test
+    void dictionaryAndTextRoundTrip() {
+        RowTable t = new RowTable(List.of(DICT, TEXT), 1);
+        String[] regions = {"Москва", "Татарстан", "Москва", null, "", "Москва"};
+        for (int i = 0; i < regions.length; i++) t.add(regions[i], "text " + i);
+        for (int i = 0; i < regions.length; i++) {
+            assertEquals(regions[i], t.get(i, 0));
+            assertEquals("text " + i, t.get(i, 1));
+        }
+        assertEquals(3, t.distinct(0));   // "Москва", "Татарстан", ""
+        assertEquals(regions.length, t.size());
+    }
+
+    @Test
+    void legalRowRoundTripsThroughRows() {
+        LegalEntityRow r = new LegalEntityRow();
+        r.guid = "0f8fad5b-d9cb-469f-a165-70867728950e";
+        r.fullName = "ООО \"Ромашка\"";
+        r.inn = "0274062111";
+        r.ogrn = "1020202552920";
+        r.kpp = "";
+        r.registrationDate = "05.06.2002";
+        r.publicationsCount = "0";
+        r.tradesCount = "";
+        r.region = "Республика Башкортостан";
+
+        RowTable t = Rows.legalTable(1);
+        int row = Rows.add(t, r);
+        LegalEntityRow back = Rows.legal(t, row);
+
+        assertArrayEquals(Rows.cells(r), Rows.cells(back));
+        assertEquals(r.guid, t.get(row, Rows.LEGAL_GUID));
+    }
+
+    @Test
+    void typicalLegalRowDoesNotOverflow() {
+        // как собирает LegalRowBuilder без карточки: пустые реквизиты, "н/д" в дате завершения, торги не считались
+        RowTable t = Rows.legalTable(1);
+        for (int i = 0; i < 100; i++) {
+            LegalEntityRow r = new LegalEntityRow();
+            r.guid = "0f8fad5b-d9cb-469f-a165-70867728950e";
+            r.fullName = "ООО \"Ромашка " + i + "\"";
+            r.inn = "0274062111";
+            r.caseNumber = "А07-" + i + "/2024";
+            r.caseStatus = "Активно";
+            r.caseEndDate = "н/д";
+            r.managerAppointmentDate = i % 2 == 0 ? "" : "12.03.2024";
+            r.publicationsCount = String.valueOf(i);
+            r.region = "Республика Башкортостан";
+            r.sourceUrl = "https://fedresurs.ru/backend/companies/" + r.guid;
+
+            assertArrayEquals(Rows.cells(r), Rows.cells(Rows.legal(t, Rows.add(t, r))));
+        }
+        assertEquals(0, t.overflowSize());
+    }
+
+    @Test
+    void clearKeepsDictionaryAndReusesTable() {
+        RowTable t = new RowTable(List.of(DICT, TEXT, DIGITS), 2);
+        for (int i = 0; i < 5; i++) t.add("Москва", "адрес " + i, "1a" + i);
+        t.clear();
+        assertEquals(0, t.size());
+        assertEquals(0, t.overflowSize());
+        assertThrows(IndexOutOfBoundsException.class, () -> t.get(0, 0));
+
+        t.add("Москва", "новый", "77");
+        assertArrayEquals(new String[]{"Москва", "новый", "77"}, t.row(0));
+        assertEquals(1, t.distinct(0));
+    }
+
+    @Test
+    void wrongCellCountIsRejected() {
+        RowTable t = new RowTable(List.of(TEXT, DIGITS), 4);
+        assertThrows(IllegalArgumentException.class, () -> t.add("only one"));
+        assertThrows(IndexOutOfBoundsException.class, () -> t.get(0, 0));
+    }
+
+    @Test
+    void nullFieldsComeBackAsNull() {
+        RowTable t = new RowTable(List.of(DIGITS, COUNT, DATE, DICT, TEXT), 4);
+        t.add(null, null, null, null, null);
+        assertNull(t.get(0, 0));
+        assertArrayEquals(new String[5], t.row(0));
+    }
+}
@@ -0,0 +1,68 @@
+package com.ain.bankrot.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GuidCountMapTest {
+
+    @Test
+    void countsIgnoreCaseAndDashes() {
+        GuidCountMap m = new GuidCountMap(4);
+        assertTrue(m.increment("0f8fad5b-d9cb-469f-a165-70867728950e"));
+        assertTrue(m.increment("0F8FAD5BD9CB469FA16570867728950E"));
+        assertTrue(m.increment("7c9e6679-7425-40de-944b-e07fc1f90ae7"));
+
+        assertEquals(2, m.get("0f8fad5b-d9cb-469f-a165-70867728950e"));
+        assertEquals(1, m.get("7c9e6679-7425-40de-944b-e07fc1f90ae7"));
+        assertEquals(0, m.get("11111111-2222-3333-4444-555555555555"));
+        assertEquals(2, m.size());
+        assertEquals(3, m.total());
+    }
+
+    @Test
+    void nonGuidIsNotCountedAndNotCountable() {
+        GuidCountMap m = new GuidCountMap(4);
+        assertFalse(m.increment(""));
+        assertFalse(m.increment("not-a-guid"));
+        assertFalse(m.countable("not-a-guid"));
+        assertFalse(m.countable(""));
+        assertTrue(m.countable("7c9e6679-7425-40de-944b-e07fc1f90ae7"));
+        assertEquals(0, m.size());
+        assertEquals(0, m.total());
+    }
+
+    @Test
+    void zeroGuidHasItsOwnCounter() {
+        GuidCountMap m = new GuidCountMap(4);
+        String zero = "00000000-0000-0000-0000-000000000000";
+        m.increment(zero);
+        m.increment(zero);
+        assertEquals(2, m.get(zero));
+        assertEquals(1, m.size());
+    }
+
+    @Test
+    void growsAndMatchesHashMap() {
+        GuidCountMap m = new GuidCountMap(1);
+        Map<UUID, Integer> ref = new HashMap<>();
+        Random rnd = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            UUID u = new UUID(rnd.nextInt(500), rnd.nextInt(5_000));
+            ref.merge(u, 1, Integer::sum);
+            m.increment(u.toString());
+        }
+        assertEquals(ref.size(), m.size());
+        assertEquals(50_000, m.total());
+        for (Map.Entry<UUID, Integer> e : ref.entrySet()) {
+            assertEquals(e.getValue().intValue(), m.get(e.getKey().toString()), e.getKey().toString());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.ain.bankrot.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GuidSetTest {
+
+    @Test
+    void addAndContainsIgnoreCaseAndDashes() {
+        GuidSet s = new GuidSet(4);
+        assertTrue(s.add("0f8fad5b-d9cb-469f-a165-70867728950e"));
+        assertFalse(s.add("0F8FAD5B-D9CB-469F-A165-70867728950E"));
+        assertFalse(s.add("0f8fad5bd9cb469fa16570867728950e"));
+        assertTrue(s.contains("0f8fad5b-d9cb-469f-a165-70867728950e"));
+        assertFalse(s.contains("7c9e6679-7425-40de-944b-e07fc1f90ae7"));
+        assertEquals(1, s.size());
+    }
+
+    @Test
+    void zeroGuidIsAnOrdinaryMember() {
+        GuidSet s = new GuidSet(4);
+        String zero = "00000000-0000-0000-0000-000000000000";
+        assertFalse(s.contains(zero));
+        assertTrue(s.add(zero));
+        assertFalse(s.add(zero));
+        assertTrue(s.contains(zero));
+        assertEquals(1, s.size());
+    }
+
+    @Test
+    void nonGuidStringsAreNeverDeduplicated() {
+        GuidSet s = new GuidSet(4);
+        assertTrue(s.add("not-a-guid"));
+        assertTrue(s.add("not-a-guid"));
+        assertTrue(s.add(null));
+        assertFalse(s.contains("not-a-guid"));
+        assertEquals(0, s.size());
+    }
+
+    @Test
+    void growsAndMatchesHashSet() {
+        GuidSet s = new GuidSet(1);
+        Set<UUID> ref = new HashSet<>();
+        Random rnd = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            // повторы и соседние значения, чтобы пробирование упиралось в занятые ячейки
+            UUID u = new UUID(rnd.nextInt(2_000), rnd.nextInt(20_000));
+            assertEquals(ref.add(u), s.add(u.toString()), u.toString());
+        }
+        assertEquals(ref.size(), s.size());
+        for (UUID u : ref) assertTrue(s.contains(u.toString()));
+    }
+}